@@ -0,0 +1,74 @@
+package calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MyCalendar#add(Event)} on sparse and dense days.
+ * Each day already holds {@code eventsPerDay} one minute events on the even minutes, and every
+ * call adds a new event on an odd minute, so each add succeeds and has to search a full day.
+ * Adding changes the calendar, so each measurement is a batch of adds into a freshly filled calendar.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = AddEventBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = AddEventBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Thread)
+public class AddEventBenchmark {
+    static final int BATCH = 10_000;
+
+    @Param({"1", "50", "700"})
+    private int eventsPerDay;
+
+    private MyCalendar calendar;
+    private Event[] newEvents;
+    private Event[] conflictingEvents;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        calendar = new MyCalendar();
+        int days = (BATCH + eventsPerDay - 1) / eventsPerDay;
+        for (int day = 0; day < days; day++) {
+            for (int i = 0; i < eventsPerDay; i++) {
+                calendar.add(Workloads.oneMinuteEvent("Existing", Workloads.dayAt(day), 2 * i));
+            }
+        }
+        newEvents = new Event[BATCH];
+        conflictingEvents = new Event[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            LocalDate date = Workloads.dayAt(i / eventsPerDay);
+            newEvents[i] = Workloads.oneMinuteEvent("New", date, 2 * (i % eventsPerDay) + 1);
+            conflictingEvents[i] = Workloads.oneMinuteEvent("Conflict", date, 2 * (i % eventsPerDay));
+        }
+        Workloads.shuffle(newEvents);
+        Workloads.shuffle(conflictingEvents);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean add() {
+        return calendar.add(newEvents[next++]);
+    }
+
+    @Benchmark
+    public boolean addConflicting() {
+        return calendar.add(conflictingEvents[next++]);
+    }
+}
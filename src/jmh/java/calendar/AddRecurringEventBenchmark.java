@@ -0,0 +1,64 @@
+package calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MyCalendar#add(RecurringEvent)} for series lasting one to ten years on a calendar
+ * that already holds one time events on every day of the series.
+ * Each measurement is a batch of weekday series at different times into a freshly filled calendar.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = AddRecurringEventBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = AddRecurringEventBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Thread)
+public class AddRecurringEventBenchmark {
+    static final int BATCH = 500;
+
+    @Param({"1", "10"})
+    private int years;
+
+    private MyCalendar calendar;
+    private RecurringEvent[] newEvents;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        calendar = new MyCalendar();
+        int days = years * 365;
+        // one time events late in the day so the series have to be checked against them
+        for (int day = 0; day < days; day++) {
+            calendar.add(Workloads.oneMinuteEvent("Existing", Workloads.dayAt(day), 23 * 60));
+        }
+        newEvents = new RecurringEvent[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            int minute = 2 * i;
+            newEvents[i] = new RecurringEvent("Series " + i, "MTWRF", Workloads.dayAt(0), Workloads.dayAt(days),
+                    LocalTime.of(minute / 60, minute % 60), LocalTime.of((minute + 1) / 60, (minute + 1) % 60));
+        }
+        Workloads.shuffle(newEvents);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean add() {
+        return calendar.add(newEvents[next++]);
+    }
+}
@@ -0,0 +1,80 @@
+package calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MyCalendar#deleteEvent(String, java.time.LocalDate)} and
+ * {@link MyCalendar#deleteRecurringEvent(String)} on a calendar holding {@code events} one time
+ * events and a tenth as many recurring events.
+ * Deleting changes the calendar, so each measurement is a batch of deletes from a freshly filled calendar.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = DeleteBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = DeleteBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Thread)
+public class DeleteBenchmark {
+    static final int BATCH = 500;
+    private static final int EVENTS_PER_DAY = 10;
+
+    @Param({"10000", "100000"})
+    private int events;
+
+    private MyCalendar calendar;
+    private Event[] oneTimeEvents;
+    private String[] recurringNames;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        calendar = new MyCalendar();
+        oneTimeEvents = new Event[events];
+        for (int i = 0; i < events; i++) {
+            oneTimeEvents[i] = Workloads.oneMinuteEvent("Event " + i, Workloads.dayAt(i / EVENTS_PER_DAY),
+                    2 * (i % EVENTS_PER_DAY));
+            calendar.add(oneTimeEvents[i]);
+        }
+        int series = events / 10;
+        recurringNames = new String[series];
+        for (int i = 0; i < series; i++) {
+            // each series gets its own minute late in the day so none of them conflict
+            int minute = 60 + i % 600 * 2;
+            int week = i / 600 * 13;
+            recurringNames[i] = "Series " + i;
+            calendar.add(new RecurringEvent(recurringNames[i], "MWF", Workloads.dayAt(7 * week),
+                    Workloads.dayAt(7 * week + 90), LocalTime.of(minute / 60, minute % 60),
+                    LocalTime.of((minute + 1) / 60, (minute + 1) % 60)));
+        }
+        Workloads.shuffle(oneTimeEvents);
+        Workloads.shuffle(recurringNames);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean deleteEvent() {
+        Event event = oneTimeEvents[next++];
+        return calendar.deleteEvent(event.getName(), event.getStartDate());
+    }
+
+    @Benchmark
+    public boolean deleteRecurringEvent() {
+        return calendar.deleteRecurringEvent(recurringNames[next++]);
+    }
+}
@@ -0,0 +1,78 @@
+package calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MyCalendar#displayMonth()} on a calendar loaded from a generated workload.
+ * {@code displaySameMonth} redraws one month the way the month view is redrawn on every keypress,
+ * so after the first call it measures the month view cache. {@code displayNextMonth} moves to the
+ * next month before every call, going through more months than the calendar keeps, so every call
+ * builds a month view.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplayMonthBenchmark {
+    private static final int MONTHS = 120;
+
+    @Param({"10000", "100000"})
+    private int records;
+
+    private MyCalendar calendar;
+    private int month;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = Files.createTempFile("display-month", ".txt");
+        try {
+            WorkloadGenerator.generate(file, records, Workloads.SEED);
+            calendar = new MyCalendar();
+            MyCalendarTester.readFile(file.toFile(), calendar);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public String displaySameMonth() {
+        return calendar.displayMonth();
+    }
+
+    @Benchmark
+    public String displayNextMonth() {
+        if (++month == MONTHS) {
+            // go back to the first month, which was dropped from the cache long ago
+            for (int i = 1; i < MONTHS; i++) calendar.prevMonth();
+            month = 0;
+        }
+        else calendar.nextMonth();
+        return calendar.displayMonth();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        calendar = null;
+    }
+}
@@ -0,0 +1,58 @@
+package calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MyCalendarTester#readFile(java.io.File, MyCalendar)} on generated files of
+ * 10 thousand to 10 million events. The file is generated once per trial in the temp directory;
+ * the 10 million event file is roughly 400 MB, so run it with a large heap ({@code -jvmArgs -Xmx8g}).
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ReadFileBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    private int records;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("events-" + records, ".txt");
+        WorkloadGenerator.generate(file, records, Workloads.SEED);
+    }
+
+    @Benchmark
+    public MyCalendar readFile() {
+        MyCalendar calendar = new MyCalendar();
+        MyCalendarTester.readFile(file.toFile(), calendar);
+        return calendar;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,52 @@
+package calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TimeInterval#isConflicting(TimeInterval)} over a fixed mix of random intervals,
+ * so both the conflicting and the non-conflicting branches are taken.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeIntervalBenchmark {
+    private static final int INTERVALS = 1024;
+
+    private TimeInterval[] intervals;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Workloads.SEED);
+        intervals = new TimeInterval[INTERVALS];
+        for (int i = 0; i < INTERVALS; i++) {
+            int start = random.nextInt(24 * 60 - 121);
+            int end = start + 1 + random.nextInt(120);
+            intervals[i] = new TimeInterval(LocalTime.of(start / 60, start % 60), LocalTime.of(end / 60, end % 60));
+        }
+    }
+
+    @Benchmark
+    public boolean isConflicting() {
+        int i = next++ & (INTERVALS - 1);
+        return intervals[i].isConflicting(intervals[(i + 1) & (INTERVALS - 1)]);
+    }
+}
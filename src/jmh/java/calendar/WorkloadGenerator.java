@@ -0,0 +1,110 @@
+package calendar;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Writes synthetic calendars in the events.txt format read by {@link MyCalendarTester#readFile}.
+ * The same number of records and seed always give the same file, so results can be reproduced.
+ * <p>
+ * Most records are one time events spread over ten years starting in 2023, with names drawn from a
+ * small pool the way real calendars repeat names. About one record in twenty is a recurring event
+ * lasting a few weeks to a year.
+ * <p>
+ * Usage: {@code WorkloadGenerator <records> <file> [seed]}
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+public class WorkloadGenerator {
+    private static final String[] NAMES = {
+            "Standup", "Lunch", "1:1", "Design Review", "Planning", "Retro", "Gym", "Dentist",
+            "CS 147 Computer Architecture", "CS 149 Operating Systems", "CS 151 Object-Oriented Design",
+            "ASTR 101 Astronomy", "Wednesday Night Dinner", "Office Hours", "Interview", "All Hands"
+    };
+    private static final String[] DAYS = {"MW", "TR", "MWF", "F", "S", "A", "MTWRF", "W", "SA"};
+    private static final LocalDate FIRST_DATE = LocalDate.of(2023, 1, 1);
+    private static final int DATE_RANGE = 3650;
+
+    /**
+     * Writes a synthetic calendar to a file.
+     * @param args  the number of records, the file, and an optional seed
+     * @throws IOException  if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: WorkloadGenerator <records> <file> [seed]");
+            System.exit(1);
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 151;
+        Path file = Paths.get(args[1]);
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        generate(file, Integer.parseInt(args[0]), seed);
+    }
+
+    /**
+     * Writes a synthetic calendar to a file.
+     * @param file      the file being written
+     * @param records   the number of events
+     * @param seed      the seed for the random generator
+     * @throws IOException  if the file can't be written
+     */
+    public static void generate(Path file, int records, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(64);
+            for (int i = 0; i < records; i++) {
+                line.setLength(0);
+                line.append(NAMES[random.nextInt(NAMES.length)]);
+                // a quarter of the names are unique so the name pool doesn't hide allocation costs
+                if (random.nextInt(4) == 0) line.append(' ').append(i);
+                line.append('\n');
+
+                int start = random.nextInt(24 * 60 - 30);
+                int end = Math.min(start + 15 + random.nextInt(120), 24 * 60 - 1);
+                LocalDate date = FIRST_DATE.plusDays(random.nextInt(DATE_RANGE));
+                if (random.nextInt(20) == 0) {
+                    line.append(DAYS[random.nextInt(DAYS.length)]).append(' ');
+                    appendTime(line, start).append(' ');
+                    appendTime(line, end).append(' ');
+                    appendDate(line, date).append(' ');
+                    appendDate(line, date.plusWeeks(2 + random.nextInt(50)));
+                }
+                else {
+                    appendDate(line, date).append(' ');
+                    appendTime(line, start).append(' ');
+                    appendTime(line, end);
+                }
+                writer.append(line).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Appends a date using the {@code M/d/yy} pattern.
+     * @param line  the line being built
+     * @param date  the date
+     * @return      the line
+     */
+    private static StringBuilder appendDate(StringBuilder line, LocalDate date) {
+        return line.append(date.getMonthValue()).append('/').append(date.getDayOfMonth())
+                .append('/').append(date.getYear() % 100);
+    }
+
+    /**
+     * Appends a minute of the day using the {@code H:mm} pattern.
+     * @param line      the line being built
+     * @param minute    the minute of the day
+     * @return          the line
+     */
+    private static StringBuilder appendTime(StringBuilder line, int minute) {
+        line.append(minute / 60).append(':');
+        if (minute % 60 < 10) line.append('0');
+        return line.append(minute % 60);
+    }
+}
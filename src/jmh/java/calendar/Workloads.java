@@ -0,0 +1,50 @@
+package calendar;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Random;
+
+/**
+ * Builds the events used by the benchmarks.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230225
+ */
+final class Workloads {
+    static final LocalDate FIRST_DATE = LocalDate.of(2023, 1, 1);
+    static final long SEED = 151;
+
+    private Workloads() {}
+
+    /**
+     * Gets a date a number of days after the first benchmark date.
+     * @param day   the number of days
+     * @return      the date
+     */
+    static LocalDate dayAt(int day) {return FIRST_DATE.plusDays(day);}
+
+    /**
+     * Creates an event lasting one minute.
+     * @param name      name of the event
+     * @param date      date of the event
+     * @param minute    the minute of the day the event starts
+     * @return          the event
+     */
+    static Event oneMinuteEvent(String name, LocalDate date, int minute) {
+        return new Event(name, date, LocalTime.of(minute / 60, minute % 60),
+                LocalTime.of((minute + 1) / 60, (minute + 1) % 60));
+    }
+
+    /**
+     * Shuffles an array the same way every time.
+     * @param array the array
+     */
+    static void shuffle(Object[] array) {
+        Random random = new Random(SEED);
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Object swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package calendar;
+
+import java.util.ArrayList;
+
+/**
+ * The result of adding one event with {@code MyCalendar.addAll} or {@code MyCalendar.addAllRecurring}.
+ * An event that wasn't added keeps the events it conflicted with.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230303
+ */
+public class AddResult {
+    private final Event event;
+    private final ArrayList<Event> conflicts;
+
+    /**
+     * Creates an {@code AddResult}.
+     * @param event     the event that was being added
+     * @param conflicts the events it conflicted with, empty if it was added
+     */
+    AddResult(Event event, ArrayList<Event> conflicts) {
+        this.event = event;
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * Gets the event that was being added.
+     * @return  the event
+     */
+    public Event getEvent() {return event;}
+
+    /**
+     * Checks if the event was added to the calendar.
+     * @return  true if it was added and false if it conflicted with an event
+     */
+    public boolean isAccepted() {return conflicts.isEmpty();}
+
+    /**
+     * Gets the events that stopped the event from being added.
+     * @return  the conflicting events, empty if the event was added
+     */
+    public ArrayList<Event> getConflicts() {return conflicts;}
+
+    /**
+     * Outputs {@code AddResult} as a String, such as {@code Lunch: 12:00-13:00 conflicts with [Standup: 12:30-12:45]}
+     * @return  a String of {@code AddResult}
+     */
+    @Override
+    public String toString() {
+        String event = this.event.toString().stripTrailing();
+        if (isAccepted()) return event + " added";
+        ArrayList<String> conflicting = new ArrayList<>();
+        for (Event conflict : conflicts) conflicting.add(conflict.toString().stripTrailing());
+        return event + " conflicts with " + conflicting;
+    }
+}
@@ -0,0 +1,115 @@
+package calendar;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Finds the times when every one of many calendars is free, such as when a group of people can meet.
+ * Each calendar is turned into a {@code BitSet} with one bit for every minute between the two
+ * dates, set when the calendar has an event. The calendars are read in parallel, their bits are
+ * combined with {@code or}, and the clear runs left over are the common free periods.
+ * <p>
+ * Times are rounded to whole minutes, the precision events are stored with, so a free period
+ * never overlaps an event. As with an event, a window ending at {@code LocalTime.MAX} lasts until
+ * the end of the day. The calendars must not be changed while they are being read.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230301
+ */
+public class AvailabilityEngine {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private AvailabilityEngine() {}
+
+    /**
+     * Finds every period between two dates when all the calendars are free.
+     * @param calendars the calendars
+     * @param from      the first date, inclusive
+     * @param to        the last date, inclusive
+     * @return          the free periods in order of date and time
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+    public static ArrayList<TimeSlot> findCommonFreeSlots(Collection<MyCalendar> calendars, LocalDate from, LocalDate to) {
+        return findCommonFreeSlots(calendars, from, to, Duration.ofMinutes(1), LocalTime.MIN, LocalTime.MAX);
+    }
+
+    /**
+     * Finds every period between two dates when all the calendars are free that fits an event of a
+     * certain length inside a window of each day, such as 30 minutes between 9:00 and 17:00.
+     * @param calendars     the calendars
+     * @param from          the first date, inclusive
+     * @param to            the last date, inclusive
+     * @param length        the shortest free period wanted
+     * @param windowStart   the earliest time of day a free period can start
+     * @param windowEnd     the latest time of day a free period can end
+     * @return              the free periods in order of date and time
+     * @throws IllegalArgumentException if {@code length} isn't positive, {@code windowStart} isn't before
+     *                                  {@code windowEnd}, or {@code from} is after {@code to}
+     */
+    public static ArrayList<TimeSlot> findCommonFreeSlots(Collection<MyCalendar> calendars, LocalDate from, LocalDate to,
+                                                          Duration length, LocalTime windowStart, LocalTime windowEnd) {
+        if (length.isNegative() || length.isZero()) throw new IllegalArgumentException("length must be positive");
+        if (!windowStart.isBefore(windowEnd)) throw new IllegalArgumentException("windowStart must be before windowEnd");
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days * MINUTES_PER_DAY > Integer.MAX_VALUE) throw new IllegalArgumentException("date range is too long");
+
+        // each thread ors into its own BitSet, so no set is changed after another thread has seen it
+        BitSet busy = calendars.parallelStream()
+                .collect(BitSet::new, (minutes, calendar) -> minutes.or(busyMinutes(calendar, from, to)), BitSet::or);
+
+        // round the window to whole minutes as TimeInterval does, so LocalTime.MAX ends at minute 1440,
+        // and the length up to whole minutes
+        int firstMinute = ceilMinute(windowStart);
+        int lastMinute = ceilMinute(windowEnd);
+        long lengthMinutes = (length.toSeconds() + 59) / 60;
+
+        ArrayList<TimeSlot> slots = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            int dayStart = day * MINUTES_PER_DAY;
+            int free = busy.nextClearBit(dayStart + firstMinute);
+            while (free < dayStart + lastMinute) {
+                int end = busy.nextSetBit(free);
+                if (end < 0 || end > dayStart + lastMinute) end = dayStart + lastMinute;
+                if (end - free >= lengthMinutes) {
+                    slots.add(new TimeSlot(from.plusDays(day), new TimeInterval(free - dayStart, end - dayStart)));
+                }
+                free = busy.nextClearBit(end);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Sets a bit for every minute between two dates that a calendar has an event.
+     * @param calendar  the calendar
+     * @param from      the first date, inclusive
+     * @param to        the last date, inclusive
+     * @return          the busy minutes, where bit {@code day * 1440 + minute} is the minute of the day
+     *                  {@code day} days after {@code from}
+     */
+    private static BitSet busyMinutes(MyCalendar calendar, LocalDate from, LocalDate to) {
+        BitSet busy = new BitSet();
+        long firstDay = from.toEpochDay();
+        calendar.query(from, to).forEach(event -> {
+            int dayStart = (int) (event.getStartDate().toEpochDay() - firstDay) * MINUTES_PER_DAY;
+            TimeInterval timeInterval = event.getTimeInterval();
+            busy.set(dayStart + timeInterval.getStartMinute(), dayStart + timeInterval.getEndMinute());
+        });
+        return busy;
+    }
+
+    /**
+     * Gets the minute of the day of a time, rounded up to the next whole minute.
+     * @param time  the time
+     * @return      the minute of the day, up to 1440
+     */
+    private static int ceilMinute(LocalTime time) {
+        int minute = time.getHour() * 60 + time.getMinute();
+        return time.getSecond() == 0 && time.getNano() == 0 ? minute : minute + 1;
+    }
+}
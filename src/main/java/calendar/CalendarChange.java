@@ -0,0 +1,92 @@
+package calendar;
+
+import java.time.LocalDate;
+
+/**
+ * One change made to a {@code MyCalendar}, as sent by a {@code CalendarChangeFeed}.
+ * Each change has a sequence number one higher than the change before it on the same feed, so a
+ * subscriber can tell that it has seen every change in order.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230311
+ */
+public class CalendarChange {
+    /**
+     * The kinds of change, one for each method of {@code CalendarListener}.
+     */
+    public enum Type {
+        EVENT_ADDED,
+        RECURRING_EVENT_ADDED,
+        EVENT_DELETED,
+        RECURRING_DATE_DELETED,
+        EVENTS_DELETED_ON,
+        RECURRING_EVENT_DELETED,
+        ALL_EVENTS_DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Event event;
+    private final String name;
+    private final LocalDate date;
+
+    /**
+     * Creates a {@code CalendarChange}.
+     * @param sequence  the sequence number of the change
+     * @param type      the kind of change
+     * @param event     the event that was added or lost a date, or null
+     * @param name      the name of the deleted event, or null
+     * @param date      the date events were deleted on, or null
+     */
+    CalendarChange(long sequence, Type type, Event event, String name, LocalDate date) {
+        this.sequence = sequence;
+        this.type = type;
+        this.event = event;
+        this.name = name;
+        this.date = date;
+    }
+
+    /**
+     * Gets the sequence number of the change, starting from 1 on each feed.
+     * @return  the sequence number
+     */
+    public long getSequence() {return sequence;}
+
+    /**
+     * Gets the kind of change.
+     * @return  the type
+     */
+    public Type getType() {return type;}
+
+    /**
+     * Gets the event that was added, a {@code RecurringEvent} for {@code RECURRING_EVENT_ADDED}, or
+     * the {@code RecurringEvent} that lost a date for {@code RECURRING_DATE_DELETED}.
+     * @return  the event, or null for other changes
+     */
+    public Event getEvent() {return event;}
+
+    /**
+     * Gets the name of the deleted event for {@code EVENT_DELETED} and {@code RECURRING_EVENT_DELETED}.
+     * @return  the name, or null for other changes
+     */
+    public String getName() {return name;}
+
+    /**
+     * Gets the date for {@code EVENT_DELETED}, {@code RECURRING_DATE_DELETED}, and {@code EVENTS_DELETED_ON}.
+     * @return  the date, or null for other changes
+     */
+    public LocalDate getDate() {return date;}
+
+    /**
+     * Outputs {@code CalendarChange} as a String, such as {@code 12 EVENT_DELETED Lunch 2023-03-01}
+     * @return  a String of {@code CalendarChange}
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(sequence).append(' ').append(type);
+        if (event != null) stringBuilder.append(' ').append(event.toString().stripTrailing());
+        if (name != null) stringBuilder.append(' ').append(name);
+        if (date != null) stringBuilder.append(' ').append(date);
+        return stringBuilder.toString();
+    }
+}
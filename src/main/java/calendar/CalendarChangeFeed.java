@@ -0,0 +1,159 @@
+package calendar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes the changes made to a {@code MyCalendar}, so caches and sync services can follow the
+ * calendar without reading every event and working out what changed.
+ * <p>
+ * Each item sent to a subscriber is a list of {@code CalendarChange}s in order. A change made on
+ * its own is sent as a list of one. The changes made in a batch, such as {@code MyCalendar.addAll},
+ * loading a file, or any changes between {@code MyCalendar.beginBatch()} and {@code endBatch()},
+ * are sent as one list when the batch ends. Within a batch, a {@code deleteAllEvents} replaces
+ * every change before it, since none of them are left afterwards.
+ * <p>
+ * Each subscriber has a buffer of at most {@code bufferCapacity} items. When a subscriber's buffer
+ * is full, the thread changing the calendar waits until the subscriber has caught up, so a slow
+ * subscriber slows down the calendar rather than missing changes.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230311
+ */
+public class CalendarChangeFeed implements CalendarListener, Flow.Publisher<List<CalendarChange>>, AutoCloseable {
+    private final MyCalendar calendar;
+    private final SubmissionPublisher<List<CalendarChange>> publisher;
+    private ArrayList<CalendarChange> pending;
+    private long sequence;
+    private boolean inBatch;
+
+    /**
+     * Creates a {@code CalendarChangeFeed} and starts listening to a calendar. Changes are
+     * delivered on the common pool with the default buffer size of {@code Flow}.
+     * @param calendar  the calendar
+     */
+    public CalendarChangeFeed(MyCalendar calendar) {
+        this(calendar, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a {@code CalendarChangeFeed} and starts listening to a calendar.
+     * @param calendar          the calendar
+     * @param executor          the executor subscribers are called on
+     * @param bufferCapacity    the largest number of items waiting for each subscriber
+     * @throws IllegalArgumentException if {@code bufferCapacity} is less than 1
+     */
+    public CalendarChangeFeed(MyCalendar calendar, Executor executor, int bufferCapacity) {
+        this.calendar = calendar;
+        publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+        pending = new ArrayList<>();
+        calendar.addListener(this);
+    }
+
+    /**
+     * Adds a subscriber. It is sent the changes made from now on.
+     * @param subscriber    the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<CalendarChange>> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Gets the sequence number of the last change.
+     * @return  the sequence number, or 0 if nothing changed yet
+     */
+    public long getSequence() {return sequence;}
+
+    /**
+     * Gets the number of subscribers.
+     * @return  the number of subscribers
+     */
+    public int getSubscriberCount() {return publisher.getNumberOfSubscribers();}
+
+    /**
+     * Stops listening to the calendar and completes every subscriber.
+     */
+    @Override
+    public void close() {
+        calendar.removeListener(this);
+        publish();
+        publisher.close();
+    }
+
+    @Override
+    public void eventAdded(Event event) {
+        changed(CalendarChange.Type.EVENT_ADDED, event, null, null);
+    }
+
+    @Override
+    public void recurringEventAdded(RecurringEvent event) {
+        changed(CalendarChange.Type.RECURRING_EVENT_ADDED, event, null, null);
+    }
+
+    @Override
+    public void eventDeleted(String name, LocalDate date) {
+        changed(CalendarChange.Type.EVENT_DELETED, null, name, date);
+    }
+
+    @Override
+    public void recurringDateDeleted(RecurringEvent event, LocalDate date) {
+        changed(CalendarChange.Type.RECURRING_DATE_DELETED, event, null, date);
+    }
+
+    @Override
+    public void eventsDeletedOn(LocalDate date) {
+        changed(CalendarChange.Type.EVENTS_DELETED_ON, null, null, date);
+    }
+
+    @Override
+    public void recurringEventDeleted(String name) {
+        changed(CalendarChange.Type.RECURRING_EVENT_DELETED, null, name, null);
+    }
+
+    @Override
+    public void allEventsDeleted() {
+        // nothing earlier in the batch is left, so subscribers only need the delete
+        if (inBatch) {
+            sequence -= pending.size();
+            pending.clear();
+        }
+        changed(CalendarChange.Type.ALL_EVENTS_DELETED, null, null, null);
+    }
+
+    @Override
+    public void batchStarted() {inBatch = true;}
+
+    @Override
+    public void batchEnded() {
+        inBatch = false;
+        publish();
+    }
+
+    /**
+     * Records a change, and sends it unless a batch is in progress.
+     * @param type  the kind of change
+     * @param event the event that was added, or null
+     * @param name  the name of the deleted event, or null
+     * @param date  the date events were deleted on, or null
+     */
+    private void changed(CalendarChange.Type type, Event event, String name, LocalDate date) {
+        pending.add(new CalendarChange(++sequence, type, event, name, date));
+        if (!inBatch) publish();
+    }
+
+    /**
+     * Sends the changes waiting to be sent as one item, waiting for room in any full buffer.
+     */
+    private void publish() {
+        if (pending.isEmpty()) return;
+        List<CalendarChange> changes = Collections.unmodifiableList(pending);
+        pending = new ArrayList<>();
+        if (publisher.hasSubscribers()) publisher.submit(changes);
+    }
+}
@@ -0,0 +1,531 @@
+package calendar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Writes the events of a {@code MyCalendar} to a file in one of several formats.
+ * Every field is written straight into one reused {@code CharBuffer}, which is encoded into one
+ * reused {@code ByteBuffer} and written to a {@code FileChannel}. Dates, times, and numbers are
+ * written a digit at a time, so exporting a calendar doesn't build a String for every event.
+ * <p>
+ * The formats are:
+ * <ul>
+ *     <li>{@link Format#TEXT}: the format of output.txt, one line with the name of the event and one
+ *     line with its dates and times</li>
+ *     <li>{@link Format#CSV}: one row per event with a header row, dates written as {@code yyyy-MM-dd}</li>
+ *     <li>{@link Format#ICALENDAR}: an RFC 5545 calendar with one {@code VEVENT} per event, where a
+ *     {@code RecurringEvent} is a weekly {@code RRULE} with its deleted dates as {@code EXDATE}s</li>
+ * </ul>
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230304
+ */
+public class CalendarExporter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final String CSV_HEADER = "type,name,days,start_date,end_date,start_time,end_time,excluded_dates\n";
+    private static final String[] ICALENDAR_DAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    /**
+     * The file formats {@code CalendarExporter} can write.
+     */
+    public enum Format {TEXT, CSV, ICALENDAR}
+
+    private final FileChannel channel;
+    private final Format format;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+    private final StringBuilder line;
+    private final LocalDateTime timestamp;
+
+    /**
+     * Creates a {@code CalendarExporter} that replaces the contents of a file.
+     * @param file      the file being written
+     * @param format    the format of the file
+     * @throws IOException  if the file can't be opened
+     */
+    public CalendarExporter(Path file, Format format) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.format = format;
+        chars = CharBuffer.allocate(BUFFER_SIZE);
+        bytes = ByteBuffer.allocateDirect(BUFFER_SIZE * 3);
+        encoder = StandardCharsets.UTF_8.newEncoder();
+        line = new StringBuilder(128);
+        timestamp = LocalDateTime.now(ZoneOffset.UTC).withNano(0);
+    }
+
+    /**
+     * Writes every event on a calendar to a file.
+     * @param calendar  the calendar
+     * @param file      the file being written
+     * @param format    the format of the file
+     * @throws IOException  if the file can't be written
+     */
+    public static void export(MyCalendar calendar, Path file, Format format) throws IOException {
+        try (CalendarExporter exporter = new CalendarExporter(file, format)) {
+            exporter.export(calendar);
+        }
+    }
+
+    /**
+     * Writes every event on a calendar, the one time events first and then the recurring events.
+     * @param calendar  the calendar
+     * @throws IOException  if the file can't be written
+     */
+    public void export(MyCalendar calendar) throws IOException {
+        writeHeader();
+        for (Event event : calendar.getOneTimeEventsList()) write(event);
+        for (RecurringEvent event : calendar.getRecurringEventsList()) write(event, calendar.getExcludedDates(event));
+        writeFooter();
+    }
+
+    /**
+     * Writes the events on a calendar taking place between two dates. A {@code RecurringEvent} that
+     * takes place between the dates is written whole.
+     * @param calendar  the calendar
+     * @param from      the first date, inclusive
+     * @param to        the last date, inclusive
+     * @throws IOException  if the file can't be written
+     */
+    public void export(MyCalendar calendar, LocalDate from, LocalDate to) throws IOException {
+        writeHeader();
+        for (Event event : calendar.oneTimeEventsBetween(from, to)) write(event);
+        RecurringIndex index = calendar.recurringIndex();
+        ArrayList<RecurringEvent> recurringEvents = new ArrayList<>();
+        index.anyBetween(from, to, RecurringEvent.ALL_DAYS, event -> {
+            LocalDate next = index.nextOccurrence(event, from);
+            if (next != null && !next.isAfter(to)) recurringEvents.add(event);
+            return false;
+        });
+        // written in the same order as the whole calendar
+        recurringEvents.sort(Event.DATE_TIME_ORDER);
+        for (RecurringEvent event : recurringEvents) write(event, index.getExcludedDates(event));
+        writeFooter();
+    }
+
+    /**
+     * Writes one event. A {@code RecurringEvent} is written with none of its dates deleted.
+     * @param event the event
+     * @throws IOException  if the file can't be written
+     */
+    public void write(Event event) throws IOException {writeEvent(event, Collections.emptySet());}
+
+    /**
+     * Writes one {@code RecurringEvent} and the dates deleted from it. The text format has no
+     * place for deleted dates and leaves them out.
+     * @param event         the event
+     * @param excludedDates the dates deleted from it, in order
+     * @throws IOException  if the file can't be written
+     */
+    public void write(RecurringEvent event, Set<LocalDate> excludedDates) throws IOException {
+        writeEvent(event, excludedDates);
+    }
+
+    /**
+     * Writes one event in the format of the file.
+     * @param event         the event
+     * @param excludedDates the dates deleted from it if it is a {@code RecurringEvent}, in order
+     * @throws IOException  if the file can't be written
+     */
+    private void writeEvent(Event event, Set<LocalDate> excludedDates) throws IOException {
+        switch (format) {
+            case TEXT -> writeText(event);
+            case CSV -> writeCsv(event, excludedDates);
+            case ICALENDAR -> writeICalendar(event, excludedDates);
+        }
+    }
+
+    /**
+     * Writes what comes before the first event.
+     * @throws IOException  if the file can't be written
+     */
+    private void writeHeader() throws IOException {
+        if (format == Format.CSV) put(CSV_HEADER);
+        else if (format == Format.ICALENDAR) {
+            putLine("BEGIN:VCALENDAR");
+            putLine("VERSION:2.0");
+            putLine("PRODID:-//Jonathan Stewart Thomas//MyFirstCalendar//EN");
+            putLine("CALSCALE:GREGORIAN");
+        }
+    }
+
+    /**
+     * Writes what comes after the last event.
+     * @throws IOException  if the file can't be written
+     */
+    private void writeFooter() throws IOException {
+        if (format == Format.ICALENDAR) putLine("END:VCALENDAR");
+    }
+
+    /**
+     * Writes an event in the format of output.txt.
+     * @param event the event
+     * @throws IOException  if the file can't be written
+     */
+    private void writeText(Event event) throws IOException {
+        put(event.getName());
+        put('\n');
+        if (event instanceof RecurringEvent recurringEvent) {
+            put(recurringEvent.getDays());
+            put(' ');
+            putShortDate(recurringEvent.getStartDate());
+            put(' ');
+            putShortDate(recurringEvent.getEndDate());
+        }
+        else putShortDate(event.getStartDate());
+        put(' ');
+        putTime(event.getTimeInterval().getStartMinute());
+        put('-');
+        putTime(event.getTimeInterval().getEndMinute());
+        put('\n');
+    }
+
+    /**
+     * Writes an event as a CSV row.
+     * @param event         the event
+     * @param excludedDates the dates deleted from it
+     * @throws IOException  if the file can't be written
+     */
+    private void writeCsv(Event event, Set<LocalDate> excludedDates) throws IOException {
+        RecurringEvent recurringEvent = event instanceof RecurringEvent ? (RecurringEvent) event : null;
+        put(recurringEvent == null ? "event," : "recurring,");
+        putCsvField(event.getName());
+        put(',');
+        if (recurringEvent != null) put(recurringEvent.getDays());
+        put(',');
+        putIsoDate(event.getStartDate());
+        put(',');
+        putIsoDate(recurringEvent == null ? event.getStartDate() : recurringEvent.getEndDate());
+        put(',');
+        putTime(event.getTimeInterval().getStartMinute());
+        put(',');
+        putTime(event.getTimeInterval().getEndMinute());
+        put(',');
+        if (recurringEvent != null) {
+            boolean first = true;
+            for (LocalDate date : excludedDates) {
+                if (!first) put(';');
+                putIsoDate(date);
+                first = false;
+            }
+        }
+        put('\n');
+    }
+
+    /**
+     * Writes an event as a {@code VEVENT}. Times are floating local times, the same as on the calendar.
+     * @param event         the event
+     * @param excludedDates the dates deleted from it
+     * @throws IOException  if the file can't be written
+     */
+    private void writeICalendar(Event event, Set<LocalDate> excludedDates) throws IOException {
+        TimeInterval timeInterval = event.getTimeInterval();
+        LocalDate date = event.getStartDate();
+        RecurringEvent recurringEvent = event instanceof RecurringEvent ? (RecurringEvent) event : null;
+
+        putLine("BEGIN:VEVENT");
+        // a day never has two events starting at the same time, so the date and time make the event unique
+        line.setLength(0);
+        line.append("UID:").append(recurringEvent == null ? "E" : "R").append(date.toEpochDay())
+                .append('-').append(timeInterval.getStartMinute()).append("@myfirstcalendar");
+        putFolded();
+
+        line.setLength(0);
+        appendICalendarDateTime(line.append("DTSTAMP:"), timestamp.toLocalDate(),
+                timestamp.toLocalTime().toSecondOfDay() / 60).append('Z');
+        putFolded();
+
+        line.setLength(0);
+        appendICalendarDateTime(line.append("DTSTART:"), date, timeInterval.getStartMinute());
+        putFolded();
+
+        line.setLength(0);
+        appendICalendarDateTime(line.append("DTEND:"), date, timeInterval.getEndMinute());
+        putFolded();
+
+        line.setLength(0);
+        appendICalendarText(line.append("SUMMARY:"), event.getName());
+        putFolded();
+
+        if (recurringEvent != null) {
+            line.setLength(0);
+            line.append("RRULE:FREQ=WEEKLY;BYDAY=");
+            boolean first = true;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((recurringEvent.getDayMask() & RecurringEvent.dayBit(day)) == 0) continue;
+                if (!first) line.append(',');
+                line.append(ICALENDAR_DAYS[day.ordinal()]);
+                first = false;
+            }
+            // UNTIL is a floating time like DTSTART, and the last date is the last occurrence
+            appendICalendarDateTime(line.append(";UNTIL="), recurringEvent.getEndDate(), timeInterval.getStartMinute());
+            putFolded();
+
+            if (!excludedDates.isEmpty()) {
+                line.setLength(0);
+                line.append("EXDATE:");
+                first = true;
+                for (LocalDate excluded : excludedDates) {
+                    if (!first) line.append(',');
+                    appendICalendarDateTime(line, excluded, timeInterval.getStartMinute());
+                    first = false;
+                }
+                putFolded();
+            }
+        }
+        putLine("END:VEVENT");
+    }
+
+    /**
+     * Appends a date and time in the iCalendar form {@code yyyyMMdd'T'HHmmss}.
+     * Minute 1440 is written as midnight of the next day.
+     * @param builder   the line being built
+     * @param date      the date
+     * @param minute    the minute of the day
+     * @return          the line
+     */
+    private static StringBuilder appendICalendarDateTime(StringBuilder builder, LocalDate date, int minute) {
+        if (minute == 24 * 60) {
+            date = date.plusDays(1);
+            minute = 0;
+        }
+        builder.append(date.getYear());
+        appendTwoDigits(builder, date.getMonthValue());
+        appendTwoDigits(builder, date.getDayOfMonth());
+        builder.append('T');
+        appendTwoDigits(builder, minute / 60);
+        appendTwoDigits(builder, minute % 60);
+        return builder.append("00");
+    }
+
+    /**
+     * Appends a number from 0 to 99 as two digits.
+     * @param builder   the line being built
+     * @param number    the number
+     */
+    private static void appendTwoDigits(StringBuilder builder, int number) {
+        builder.append((char) ('0' + number / 10)).append((char) ('0' + number % 10));
+    }
+
+    /**
+     * Appends text to an iCalendar line, escaping backslashes, semicolons, commas, and newlines.
+     * @param builder   the line being built
+     * @param text      the text
+     */
+    private static void appendICalendarText(StringBuilder builder, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\', ';', ',' -> builder.append('\\').append(c);
+                case '\n' -> builder.append("\\n");
+                case '\r' -> {}
+                default -> builder.append(c);
+            }
+        }
+    }
+
+    /**
+     * Writes the line being built as an iCalendar content line, folding it so no line is longer
+     * than 75 octets. A surrogate pair is never split across lines.
+     * @throws IOException  if the file can't be written
+     */
+    private void putFolded() throws IOException {
+        int octets = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int length = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+            if (octets + length > MAX_LINE_OCTETS) {
+                put("\r\n ");
+                octets = 1;
+            }
+            put(c);
+            octets += length;
+        }
+        put("\r\n");
+    }
+
+    /**
+     * Writes a short iCalendar content line.
+     * @param contentLine   the line
+     * @throws IOException  if the file can't be written
+     */
+    private void putLine(String contentLine) throws IOException {
+        put(contentLine);
+        put("\r\n");
+    }
+
+    /**
+     * Writes a CSV field, quoting it if it contains a comma, quote, or line break.
+     * @param field the field
+     * @throws IOException  if the file can't be written
+     */
+    private void putCsvField(String field) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < field.length() && !quoted; i++) {
+            char c = field.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            put(field);
+            return;
+        }
+        put('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') put('"');
+            put(c);
+        }
+        put('"');
+    }
+
+    /**
+     * Writes a date using the {@code M/d/yy} pattern.
+     * @param date  the date
+     * @throws IOException  if the file can't be written
+     */
+    private void putShortDate(LocalDate date) throws IOException {
+        putInt(date.getMonthValue());
+        put('/');
+        putInt(date.getDayOfMonth());
+        put('/');
+        putTwoDigits(Math.floorMod(date.getYear(), 100));
+    }
+
+    /**
+     * Writes a date using the {@code yyyy-MM-dd} pattern.
+     * @param date  the date
+     * @throws IOException  if the file can't be written
+     */
+    private void putIsoDate(LocalDate date) throws IOException {
+        putInt(date.getYear());
+        put('-');
+        putTwoDigits(date.getMonthValue());
+        put('-');
+        putTwoDigits(date.getDayOfMonth());
+    }
+
+    /**
+     * Writes a minute of the day the same way as {@code LocalTime.toString()}, such as {@code 09:30}.
+     * @param minute    the minute of the day
+     * @throws IOException  if the file can't be written
+     */
+    private void putTime(int minute) throws IOException {
+        if (minute == 24 * 60) {
+            put(LocalTime.MAX.toString());
+            return;
+        }
+        putTwoDigits(minute / 60);
+        put(':');
+        putTwoDigits(minute % 60);
+    }
+
+    /**
+     * Writes a number from 0 to 99 as two digits.
+     * @param number    the number
+     * @throws IOException  if the file can't be written
+     */
+    private void putTwoDigits(int number) throws IOException {
+        put((char) ('0' + number / 10));
+        put((char) ('0' + number % 10));
+    }
+
+    /**
+     * Writes a number without creating a String.
+     * @param number    the number
+     * @throws IOException  if the file can't be written
+     */
+    private void putInt(int number) throws IOException {
+        if (number < 0) {
+            put('-');
+            number = -number;
+        }
+        if (number >= 10) putInt(number / 10);
+        put((char) ('0' + number % 10));
+    }
+
+    /**
+     * Writes a String.
+     * @param text  the String
+     * @throws IOException  if the file can't be written
+     */
+    private void put(String text) throws IOException {
+        for (int offset = 0; offset < text.length(); ) {
+            if (!chars.hasRemaining()) flushChars(false);
+            int length = Math.min(chars.remaining(), text.length() - offset);
+            chars.put(text, offset, offset + length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes a character.
+     * @param c the character
+     * @throws IOException  if the file can't be written
+     */
+    private void put(char c) throws IOException {
+        if (!chars.hasRemaining()) flushChars(false);
+        chars.put(c);
+    }
+
+    /**
+     * Encodes the characters written so far and writes the bytes to the file.
+     * A surrogate pair split across two flushes is kept until the next flush.
+     * @param endOfInput    true if no more characters will be written
+     * @throws IOException  if the file can't be written
+     */
+    private void flushChars(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) result.throwException();
+            writeBytes();
+            if (result.isUnderflow()) break;
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) writeBytes();
+            writeBytes();
+        }
+        chars.compact();
+    }
+
+    /**
+     * Writes out everything in the byte buffer and empties it.
+     * @throws IOException  if the file can't be written
+     */
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) channel.write(bytes);
+        bytes.clear();
+    }
+
+    /**
+     * Writes out anything still buffered and closes the file.
+     * @throws IOException  if the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushChars(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package calendar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a {@code MyCalendar}.
+ * Once attached to a calendar, every add and delete is written to the journal as it happens, so a
+ * crash loses at most the last few milliseconds of changes instead of the whole session.
+ * <p>
+ * Changes are written by a background thread that collects everything appended while the previous
+ * write was being forced to disk and writes it as one batch with one {@code fsync}, so many changes
+ * share the cost of a single sync. {@link #sync()} waits until every change so far is on disk.
+ * <p>
+ * After {@code compactEvery} changes the calendar is due to be written to a {@code CalendarSnapshot}
+ * and the journal started over. A snapshot is never written while a change is being made: a due
+ * compaction runs when the calendar's current batch ends, or when the owner of the calendar calls
+ * {@link #compactIfDue()} between changes. The journal remembers the id of the snapshot it was
+ * started on, so if the program stops between writing the snapshot and starting over, the old
+ * changes are not replayed a second time.
+ * <p>
+ * Each record is its length, a CRC-32 checksum, and the change. A record cut short by a crash
+ * fails the checksum and is dropped, along with anything after it, when the journal is replayed.
+ * <p>
+ * Names are written by their id in the calendar's {@code NameTable}. The first record since the
+ * journal started over, or since it was attached, that uses an id also holds the name, so replaying
+ * the records in order always knows every name. A journal written before names had ids is replayed
+ * and then compacted, so it is never appended to in the old format.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.1.230317
+ */
+public class CalendarJournal implements CalendarListener, Closeable {
+    private static final int MAGIC = 0x4D59434B;    // "MYCK"
+    private static final int INLINE_NAMES_MAGIC = 0x4D59434A;   // "MYCJ", every record holds its names
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final long LINGER_MILLIS = 2;
+
+    private static final byte ADD_EVENT = 1;
+    private static final byte ADD_RECURRING_EVENT = 2;
+    private static final byte DELETE_EVENT = 3;
+    private static final byte DELETE_ALL_EVENTS_ON = 4;
+    private static final byte DELETE_RECURRING_EVENT = 5;
+    private static final byte DELETE_ALL_EVENTS = 6;
+    private static final byte DELETE_RECURRING_DATE = 7;
+
+    private final Path file;
+    private final Path snapshotFile;
+    private final int compactEvery;
+    private final FileChannel channel;
+    private final Object lock;
+    private final Thread writer;
+    private final BitSet journaledNames;
+    private ByteArrayOutputStream pending;
+    private ByteArrayOutputStream writing;
+    private long appended;
+    private long durable;
+    private long snapshotId;
+    private int changesSinceCompaction;
+    private int batchDepth;
+    private MyCalendar calendar;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens a journal, creating it if it doesn't exist.
+     * @param file          the journal file
+     * @param snapshotFile  the snapshot the journal is compacted into
+     * @param compactEvery  the number of changes between compactions
+     * @throws IOException  if the journal can't be opened
+     */
+    public CalendarJournal(Path file, Path snapshotFile, int compactEvery) throws IOException {
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+        this.compactEvery = compactEvery;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = new Object();
+        journaledNames = new BitSet();
+        pending = new ByteArrayOutputStream();
+        writing = new ByteArrayOutputStream();
+        writer = new Thread(this::writeBatches, "calendar-journal-" + file.getFileName());
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Replays the journal onto a calendar that was just loaded from the journal's snapshot, or from
+     * events.txt if there is no snapshot, then starts journaling the calendar's changes.
+     * If the journal was started on a different snapshot than the one on disk its changes are
+     * already in the snapshot, so they are skipped.
+     * @param calendar  the calendar
+     * @return          the number of changes replayed
+     * @throws IOException  if the journal can't be read
+     */
+    public int replayAndAttach(MyCalendar calendar) throws IOException {
+        long currentSnapshotId = Files.exists(snapshotFile) ? CalendarSnapshot.readId(snapshotFile) : 0;
+        int replayed = 0;
+        long end = HEADER_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        int magic = header.remaining() == HEADER_SIZE ? header.getInt() : 0;
+        boolean inlineNames = magic == INLINE_NAMES_MAGIC;
+        if ((magic == MAGIC || inlineNames) && header.getLong() == currentSnapshotId) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) ;
+            buffer.flip();
+            buffer.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            ArrayList<String> names = new ArrayList<>();
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) break;     // cut short by a crash
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) break;
+                apply(record, calendar, new NameReader(names, inlineNames));
+                buffer.position(buffer.position() + length);
+                end = buffer.position();
+                replayed++;
+            }
+        }
+        else {
+            startOver(currentSnapshotId);
+        }
+        // drop anything after the last good record
+        channel.truncate(end);
+        channel.position(end);
+
+        snapshotId = currentSnapshotId;
+        changesSinceCompaction = replayed;
+        this.calendar = calendar;
+        calendar.addListener(this);
+        writer.start();
+        if (inlineNames) compact();
+        return replayed;
+    }
+
+    /**
+     * Applies one journal record to a calendar.
+     * @param record    the record
+     * @param calendar  the calendar
+     * @param names     reads the names in the record
+     */
+    private static void apply(ByteBuffer record, MyCalendar calendar, NameReader names) {
+        byte change = record.get();
+        switch (change) {
+            case ADD_EVENT -> {
+                String name = names.read(record);
+                LocalDate date = LocalDate.ofEpochDay(record.getLong());
+                calendar.add(new Event(name, date, readTime(record), readTime(record)));
+            }
+            case ADD_RECURRING_EVENT -> {
+                RecurringEvent event = readRecurringEvent(record, names);
+                // records written before deleted dates were journaled end here
+                LocalDate[] excludedDates = new LocalDate[record.hasRemaining() ? record.getInt() : 0];
+                for (int i = 0; i < excludedDates.length; i++) excludedDates[i] = LocalDate.ofEpochDay(record.getLong());
+                calendar.add(event, Arrays.asList(excludedDates));
+            }
+            case DELETE_EVENT -> {
+                String name = names.read(record);
+                calendar.deleteEvent(name, LocalDate.ofEpochDay(record.getLong()));
+            }
+            case DELETE_RECURRING_DATE -> {
+                RecurringEvent event = calendar.findRecurringEvent(readRecurringEvent(record, names));
+                LocalDate date = LocalDate.ofEpochDay(record.getLong());
+                if (event != null) calendar.excludeDate(event, date);
+            }
+            case DELETE_ALL_EVENTS_ON -> calendar.deleteAllEventsOn(LocalDate.ofEpochDay(record.getLong()));
+            case DELETE_RECURRING_EVENT -> calendar.deleteRecurringEvent(names.read(record));
+            case DELETE_ALL_EVENTS -> calendar.deleteAllEvents();
+            default -> throw new IllegalStateException("unknown journal record " + change);
+        }
+    }
+
+    /**
+     * Reads a recurring event written by {@link #writeRecurringEvent(DataOutputStream, RecurringEvent)}.
+     * @param record    the record
+     * @param names     reads the name in the record
+     * @return          the recurring event
+     */
+    private static RecurringEvent readRecurringEvent(ByteBuffer record, NameReader names) {
+        String name = names.read(record);
+        int dayMask = record.get();
+        LocalDate firstDate = LocalDate.ofEpochDay(record.getLong());
+        LocalDate lastDate = LocalDate.ofEpochDay(record.getLong());
+        return new RecurringEvent(name, dayMask, firstDate, lastDate, new TimeInterval(readTime(record), readTime(record)));
+    }
+
+    /**
+     * Reads the names in the records of one replay, by the id written by
+     * {@link #writeName(DataOutputStream, int, String)}, or inline in a journal written before names had ids.
+     */
+    private static class NameReader {
+        private final ArrayList<String> names;
+        private final boolean inline;
+
+        /**
+         * Creates a {@code NameReader}.
+         * @param names     the names read so far in the replay, by id
+         * @param inline    true if every record holds its names
+         */
+        private NameReader(ArrayList<String> names, boolean inline) {
+            this.names = names;
+            this.inline = inline;
+        }
+
+        /**
+         * Reads a name from a record.
+         * @param record    the record
+         * @return          the name
+         */
+        private String read(ByteBuffer record) {
+            int id = inline ? -1 : record.getInt();
+            if (id >= 0) return names.get(id);
+            byte[] bytes = new byte[record.getShort() & 0xFFFF];
+            record.get(bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            if (inline) return name;
+            // the first record using an id holds its name
+            id = -id - 1;
+            while (names.size() <= id) names.add(null);
+            names.set(id, name);
+            return name;
+        }
+    }
+
+    /**
+     * Reads a time stored as the second of the day.
+     * @param record    the record
+     * @return          the time
+     */
+    private static LocalTime readTime(ByteBuffer record) {
+        return LocalTime.ofSecondOfDay(record.getInt());
+    }
+
+    @Override
+    public void eventAdded(Event event) {
+        append(ADD_EVENT, out -> {
+            writeName(out, event.getNameId(), event.getName());
+            out.writeLong(event.getStartDate().toEpochDay());
+            writeInterval(out, event.getTimeInterval());
+        });
+    }
+
+    @Override
+    public void recurringEventAdded(RecurringEvent event) {
+        append(ADD_RECURRING_EVENT, out -> {
+            writeRecurringEvent(out, event);
+            Set<LocalDate> excludedDates = calendar.getExcludedDates(event);
+            out.writeInt(excludedDates.size());
+            for (LocalDate date : excludedDates) out.writeLong(date.toEpochDay());
+        });
+    }
+
+    @Override
+    public void eventDeleted(String name, LocalDate date) {
+        append(DELETE_EVENT, out -> {
+            writeName(out, calendar.nameTable().find(name), name);
+            out.writeLong(date.toEpochDay());
+        });
+    }
+
+    @Override
+    public void recurringDateDeleted(RecurringEvent event, LocalDate date) {
+        append(DELETE_RECURRING_DATE, out -> {
+            writeRecurringEvent(out, event);
+            out.writeLong(date.toEpochDay());
+        });
+    }
+
+    @Override
+    public void eventsDeletedOn(LocalDate date) {
+        append(DELETE_ALL_EVENTS_ON, out -> out.writeLong(date.toEpochDay()));
+    }
+
+    @Override
+    public void recurringEventDeleted(String name) {
+        append(DELETE_RECURRING_EVENT, out -> writeName(out, calendar.nameTable().find(name), name));
+    }
+
+    @Override
+    public void allEventsDeleted() {
+        append(DELETE_ALL_EVENTS, out -> {});
+        // the calendar gives out its name ids again from 0
+        journaledNames.clear();
+    }
+
+    @Override
+    public void batchStarted() {batchDepth++;}
+
+    @Override
+    public void batchEnded() {
+        // the calendar is whole again, so a compaction that came due during the batch can run
+        if (--batchDepth == 0) {
+            try {
+                compactIfDue();
+            } catch (IOException e) {
+                // the batch ends in a finally block, so the failure is kept for the next append, sync,
+                // or compaction instead of hiding the exception that ended the batch
+                synchronized (lock) {
+                    if (failure == null) failure = e;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a name as its id in the calendar's name table. The first time an id is written since
+     * the journal started over it is written as {@code -id - 1} followed by the name's length and
+     * UTF-8 bytes.
+     * @param out       the record being written
+     * @param nameId    the id of the name
+     * @param name      the name
+     * @throws IOException  if the name is longer than 65535 bytes
+     */
+    private void writeName(DataOutputStream out, int nameId, String name) throws IOException {
+        if (journaledNames.get(nameId)) {
+            out.writeInt(nameId);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IOException("event name is too long for the journal");
+        out.writeInt(-nameId - 1);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+        journaledNames.set(nameId);
+    }
+
+    /**
+     * Writes the name, days, dates, and time of a recurring event.
+     * @param out   the record being written
+     * @param event the recurring event
+     * @throws IOException  if the record can't be written
+     */
+    private void writeRecurringEvent(DataOutputStream out, RecurringEvent event) throws IOException {
+        writeName(out, event.getNameId(), event.getName());
+        out.writeByte(event.getDayMask());
+        out.writeLong(event.getStartDate().toEpochDay());
+        out.writeLong(event.getEndDate().toEpochDay());
+        writeInterval(out, event.getTimeInterval());
+    }
+
+    /**
+     * Writes the start and end time of a {@code TimeInterval} as seconds of the day.
+     * @param out           the record being written
+     * @param timeInterval  the time interval
+     * @throws IOException  if the record can't be written
+     */
+    private static void writeInterval(DataOutputStream out, TimeInterval timeInterval) throws IOException {
+        out.writeInt(timeInterval.getStart().toSecondOfDay());
+        out.writeInt(timeInterval.getEnd().toSecondOfDay());
+    }
+
+    /**
+     * Writes the body of a journal record.
+     */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Adds a record to the next batch written by the background thread.
+     * @param change    the kind of change
+     * @param body      writes the rest of the record
+     * @throws UncheckedIOException if the journal has failed or the record can't be written
+     */
+    private void append(byte change, RecordWriter body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(change);
+            body.write(out);
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record);
+
+            synchronized (lock) {
+                if (failure != null) throw failure;
+                if (closed) throw new IOException("journal is closed");
+                DataOutputStream pendingOut = new DataOutputStream(pending);
+                pendingOut.writeInt(record.length);
+                pendingOut.writeInt((int) crc.getValue());
+                pendingOut.write(record);
+                appended++;
+                lock.notifyAll();
+            }
+            changesSinceCompaction++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs on the background thread, writing and syncing everything appended since the last batch.
+     */
+    private void writeBatches() {
+        while (true) {
+            long batchEnd;
+            synchronized (lock) {
+                try {
+                    while (pending.size() == 0 && !closed) lock.wait();
+                    if (pending.size() == 0) return;
+                    // wait a moment so changes arriving together go out in the same batch
+                    if (!closed) lock.wait(LINGER_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ByteArrayOutputStream swap = writing;
+                writing = pending;
+                pending = swap;
+                batchEnd = appended;
+            }
+
+            try {
+                ByteBuffer batch = ByteBuffer.wrap(writing.toByteArray());
+                while (batch.hasRemaining()) channel.write(batch);
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            writing.reset();
+            synchronized (lock) {
+                durable = batchEnd;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every change appended so far has been written and synced to disk.
+     * @throws IOException  if the journal failed to write
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appended;
+            while (durable < target) {
+                if (failure != null) throw failure;
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted waiting for the journal", e);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Compacts the journal if {@code compactEvery} changes have been made since the last compaction
+     * and the calendar isn't in the middle of a batch. It must be called on the thread that changes
+     * the calendar, between changes, such as once per command.
+     * @return  true if the journal was compacted
+     * @throws IOException  if the snapshot or journal can't be written, or an earlier write failed
+     */
+    public boolean compactIfDue() throws IOException {
+        synchronized (lock) {
+            if (failure != null) throw failure;
+        }
+        if (changesSinceCompaction < compactEvery || batchDepth > 0) return false;
+        compact();
+        return true;
+    }
+
+    /**
+     * Writes the calendar to the snapshot file and starts the journal over.
+     * It must be called on the thread that changes the calendar, and not during a batch.
+     * @throws IOException  if the snapshot or journal can't be written
+     */
+    public void compact() throws IOException {
+        sync();
+        long newSnapshotId = Math.max(snapshotId + 1, System.currentTimeMillis());
+        CalendarSnapshot.write(calendar, snapshotFile, newSnapshotId);
+        synchronized (lock) {
+            // the calendar is changed on one thread, so nothing was appended since sync returned
+            startOver(newSnapshotId);
+        }
+        snapshotId = newSnapshotId;
+        changesSinceCompaction = 0;
+    }
+
+    /**
+     * Starts the journal over without writing a snapshot, once the calendar has been saved somewhere
+     * the next start loads it from. The snapshot is older than that save, so it is deleted.
+     * It must be called on the thread that changes the calendar, and not during a batch.
+     * @throws IOException  if the snapshot can't be deleted or the journal can't be written
+     */
+    public void discard() throws IOException {
+        sync();
+        // a journal naming a snapshot that no longer exists is skipped on the next start
+        Files.deleteIfExists(snapshotFile);
+        synchronized (lock) {
+            startOver(0);
+        }
+        snapshotId = 0;
+        changesSinceCompaction = 0;
+    }
+
+    /**
+     * Empties the journal and writes a header naming the snapshot it starts from.
+     * @param newSnapshotId the id of the snapshot
+     * @throws IOException  if the journal can't be written
+     */
+    private void startOver(long newSnapshotId) throws IOException {
+        journaledNames.clear();
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(newSnapshotId);
+        header.flip();
+        channel.position(0);
+        while (header.hasRemaining()) channel.write(header);
+        channel.force(true);
+    }
+
+    /**
+     * Gets the journal file.
+     * @return  the journal file
+     */
+    public Path getFile() {return file;}
+
+    /**
+     * Syncs every change to disk, stops journaling the calendar, and closes the journal.
+     * @throws IOException  if the journal failed to write
+     */
+    @Override
+    public void close() throws IOException {
+        if (calendar != null) calendar.removeListener(this);
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            if (writer.isAlive()) writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (lock) {
+                if (failure != null) throw failure;
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package calendar;
+
+import java.time.LocalDate;
+
+/**
+ * Listens for changes to a {@code MyCalendar}.
+ * Each method is called after the change has been made, and only if it changed the calendar.
+ * Every method does nothing by default, so a listener only overrides the changes it cares about.
+ * @see MyCalendar#addListener(CalendarListener)
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230227
+ */
+public interface CalendarListener {
+    /**
+     * Called after a {@code OneTimeEvent} is added.
+     * @param event the event that was added
+     */
+    default void eventAdded(Event event) {}
+
+    /**
+     * Called after a {@code RecurringEvent} is added. Dates it was added without are in
+     * {@link MyCalendar#getExcludedDates(RecurringEvent)}.
+     * @param event the event that was added
+     */
+    default void recurringEventAdded(RecurringEvent event) {}
+
+    /**
+     * Called after {@link MyCalendar#deleteEvent(String, LocalDate)} deletes an event.
+     * @param name  the name of the deleted event
+     * @param date  the date it was deleted on
+     */
+    default void eventDeleted(String name, LocalDate date) {}
+
+    /**
+     * Called after {@link MyCalendar#excludeDate(RecurringEvent, LocalDate)} deletes one date of a
+     * {@code RecurringEvent}.
+     * @param event the recurring event, which is still on the calendar
+     * @param date  the date deleted from it
+     */
+    default void recurringDateDeleted(RecurringEvent event, LocalDate date) {}
+
+    /**
+     * Called after {@link MyCalendar#deleteAllEventsOn(LocalDate)}.
+     * @param date  the date the events were deleted on
+     */
+    default void eventsDeletedOn(LocalDate date) {}
+
+    /**
+     * Called after {@link MyCalendar#deleteRecurringEvent(String)} deletes a {@code RecurringEvent}.
+     * @param name  the name of the deleted event
+     */
+    default void recurringEventDeleted(String name) {}
+
+    /**
+     * Called after {@link MyCalendar#deleteAllEvents()}.
+     */
+    default void allEventsDeleted() {}
+
+    /**
+     * Called when a batch of changes starts, such as {@code MyCalendar.addAll} or loading a file.
+     * The changes in the batch are reported as usual until {@link #batchEnded()}.
+     * @see MyCalendar#beginBatch()
+     */
+    default void batchStarted() {}
+
+    /**
+     * Called when a batch of changes ends.
+     * @see MyCalendar#endBatch()
+     */
+    default void batchEnded() {}
+}
@@ -0,0 +1,150 @@
+package calendar;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times the operations done on a {@code MyCalendar}, and reports how many events it holds.
+ * Metrics are turned on with {@code MyCalendar.enableMetrics()}; until then the calendar doesn't
+ * read the clock at all. Recording doesn't allocate, so the latencies measured are the same as
+ * with metrics turned off.
+ * <p>
+ * The metrics can be read in one go with {@link #snapshot()}, or through JMX once
+ * {@link #register(String)} has been called, as one MBean for the calendar and one for each operation.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230308
+ */
+public class CalendarMetrics implements CalendarMetricsMBean {
+    private static final String DOMAIN = "calendar";
+
+    /**
+     * The operations that are counted and timed.
+     */
+    public enum Operation {
+        ADD("add"),
+        ADD_RECURRING("addRecurring"),
+        DELETE_EVENT("deleteEvent"),
+        DELETE_ALL_EVENTS_ON("deleteAllEventsOn"),
+        DELETE_RECURRING_EVENT("deleteRecurringEvent"),
+        DELETE_ALL_EVENTS("deleteAllEvents"),
+        DISPLAY_MONTH("displayMonth"),
+        DISPLAY_SELECTED_DAY("displaySelectedDay"),
+        LOAD("load"),
+        SAVE("save");
+
+        private final String displayName;
+
+        Operation(String displayName) {this.displayName = displayName;}
+
+        /**
+         * Gets the name of the operation as it is shown in JMX and snapshots.
+         * @return  the name, such as {@code deleteEvent}
+         */
+        public String getDisplayName() {return displayName;}
+    }
+
+    private final MyCalendar calendar;
+    private final OperationMetrics[] operations;
+    private final LongAdder rejections;
+    private String registeredName;
+
+    /**
+     * Creates the metrics of a calendar.
+     * @param calendar  the calendar
+     */
+    CalendarMetrics(MyCalendar calendar) {
+        this.calendar = calendar;
+        operations = new OperationMetrics[Operation.values().length];
+        for (Operation operation : Operation.values()) {
+            operations[operation.ordinal()] = new OperationMetrics(operation.getDisplayName());
+        }
+        rejections = new LongAdder();
+    }
+
+    /**
+     * Records one operation.
+     * @param operation the operation
+     * @param nanos     how long it took in nanoseconds
+     */
+    void record(Operation operation, long nanos) {operations[operation.ordinal()].record(nanos);}
+
+    /**
+     * Counts an event that wasn't added because it conflicted with an event.
+     */
+    void rejected() {rejections.increment();}
+
+    /**
+     * Gets the count and latencies of one operation.
+     * @param operation the operation
+     * @return          the metrics of the operation
+     */
+    public OperationMetrics get(Operation operation) {return operations[operation.ordinal()];}
+
+    @Override
+    public int getEventCount() {return calendar.getOneTimeEventsList().size();}
+
+    @Override
+    public int getPopulatedDays() {return calendar.populatedDays();}
+
+    @Override
+    public int getRecurringEventCount() {return calendar.getRecurringEventsList().size();}
+
+    @Override
+    public long getRejectionCount() {return rejections.sum();}
+
+    @Override
+    public void reset() {
+        for (OperationMetrics operation : operations) operation.reset();
+        rejections.reset();
+    }
+
+    /**
+     * Copies every metric at once.
+     * @return  the snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(operations, getRejectionCount(),
+                getEventCount(), getPopulatedDays(), getRecurringEventCount());
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, under the domain {@code calendar}.
+     * @param name  the name of the calendar, used in the MBean names
+     * @throws JMException  if the MBeans can't be registered, such as when the name is already used
+     */
+    public synchronized void register(String name) throws JMException {
+        if (registeredName != null) throw new IllegalStateException("metrics are already registered as " + registeredName);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName(name, null));
+        for (OperationMetrics operation : operations) server.registerMBean(operation, objectName(name, operation));
+        registeredName = name;
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     * @throws JMException  if the MBeans can't be removed
+     */
+    public synchronized void unregister() throws JMException {
+        if (registeredName == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(objectName(registeredName, null));
+        for (OperationMetrics operation : operations) server.unregisterMBean(objectName(registeredName, operation));
+        registeredName = null;
+    }
+
+    /**
+     * Creates the JMX name of the calendar's MBean or one of its operations.
+     * @param name      the name of the calendar
+     * @param operation the operation, or null for the calendar
+     * @return          the name of the MBean
+     * @throws JMException  if the name isn't a valid MBean name
+     */
+    private static ObjectName objectName(String name, OperationMetrics operation) throws JMException {
+        String objectName = DOMAIN + ":type=CalendarMetrics,name=" + ObjectName.quote(name);
+        if (operation != null) objectName += ",operation=" + operation.getName();
+        return new ObjectName(objectName);
+    }
+}
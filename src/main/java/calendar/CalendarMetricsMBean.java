@@ -0,0 +1,38 @@
+package calendar;
+
+/**
+ * The JMX view of {@code CalendarMetrics}. The latency of each operation has its own
+ * {@code OperationMetricsMBean}.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230308
+ */
+public interface CalendarMetricsMBean {
+    /**
+     * Gets the number of one time events on the calendar.
+     * @return  the number of events
+     */
+    int getEventCount();
+
+    /**
+     * Gets the number of days with at least one one time event.
+     * @return  the number of days
+     */
+    int getPopulatedDays();
+
+    /**
+     * Gets the number of recurring events on the calendar.
+     * @return  the number of recurring events
+     */
+    int getRecurringEventCount();
+
+    /**
+     * Gets the number of events that weren't added because they conflicted with an event.
+     * @return  the number of rejected events
+     */
+    long getRejectionCount();
+
+    /**
+     * Clears every count and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,295 @@
+package calendar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Holds one {@code MyCalendar} for each tenant, such as a user or a room, keeping only the most
+ * recently used ones in memory.
+ * <p>
+ * Each tenant's calendar is kept in its own {@code CalendarSnapshot} file in the registry's
+ * directory and is read the first time the tenant is used. Once more than {@code maxCalendars}
+ * calendars are loaded, the least recently used one is dropped, and written back to its file first
+ * if it changed since it was loaded.
+ * <p>
+ * {@code MyCalendar} isn't safe to use from more than one thread, so a calendar is only used
+ * through {@link #apply(String, Function)}, which holds the tenant's lock while it runs. Tenants
+ * share a fixed number of locks, so calendars of different tenants are usually loaded, saved,
+ * and used in parallel.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230309
+ */
+public class CalendarRegistry implements Closeable {
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final String EXTENSION = ".mycs";
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Path directory;
+    private final int maxCalendars;
+    private final ReentrantLock[] stripes;
+    private final LinkedHashMap<String, Entry> calendars;
+
+    /**
+     * A loaded calendar, which listens to its calendar to know if it needs saving.
+     */
+    private static class Entry implements CalendarListener {
+        private final MyCalendar calendar;
+        private volatile boolean dirty;
+
+        /**
+         * Creates an {@code Entry}.
+         * @param calendar  the loaded calendar
+         */
+        private Entry(MyCalendar calendar) {
+            this.calendar = calendar;
+            calendar.addListener(this);
+        }
+
+        @Override
+        public void eventAdded(Event event) {dirty = true;}
+
+        @Override
+        public void recurringEventAdded(RecurringEvent event) {dirty = true;}
+
+        @Override
+        public void eventDeleted(String name, LocalDate date) {dirty = true;}
+
+        @Override
+        public void recurringDateDeleted(RecurringEvent event, LocalDate date) {dirty = true;}
+
+        @Override
+        public void eventsDeletedOn(LocalDate date) {dirty = true;}
+
+        @Override
+        public void recurringEventDeleted(String name) {dirty = true;}
+
+        @Override
+        public void allEventsDeleted() {dirty = true;}
+    }
+
+    /**
+     * Creates a {@code CalendarRegistry}.
+     * @param directory     the directory holding a file for each tenant, created if it doesn't exist
+     * @param maxCalendars  the largest number of calendars kept in memory
+     * @throws IOException  if the directory can't be created
+     */
+    public CalendarRegistry(Path directory, int maxCalendars) throws IOException {
+        this(directory, maxCalendars, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a {@code CalendarRegistry}.
+     * @param directory     the directory holding a file for each tenant, created if it doesn't exist
+     * @param maxCalendars  the largest number of calendars kept in memory
+     * @param stripes       the number of locks shared by the tenants
+     * @throws IOException  if the directory can't be created
+     * @throws IllegalArgumentException if {@code maxCalendars} or {@code stripes} is less than 1
+     */
+    public CalendarRegistry(Path directory, int maxCalendars, int stripes) throws IOException {
+        if (maxCalendars < 1) throw new IllegalArgumentException("maxCalendars must be at least 1");
+        if (stripes < 1) throw new IllegalArgumentException("stripes must be at least 1");
+        this.directory = Files.createDirectories(directory);
+        this.maxCalendars = maxCalendars;
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) this.stripes[i] = new ReentrantLock();
+        // access order keeps the least recently used calendar first
+        calendars = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Runs an action on a tenant's calendar, loading it first if it isn't in memory.
+     * A tenant with no file starts with an empty calendar. No other thread uses the calendar
+     * while the action runs, and the action must not keep the calendar after it returns.
+     * @param tenant    the tenant id, made of letters, digits, {@code .}, {@code _}, and {@code -}
+     * @param action    the action
+     * @param <T>       the type of the action's result
+     * @return          the result of the action
+     * @throws IllegalArgumentException if the tenant id has other characters
+     * @throws UncheckedIOException     if the calendar can't be loaded, or another calendar can't be saved
+     */
+    public <T> T apply(String tenant, Function<MyCalendar, T> action) {
+        if (!TENANT_ID.matcher(tenant).matches()) throw new IllegalArgumentException("invalid tenant id: " + tenant);
+        T result;
+        ReentrantLock lock = lockFor(tenant);
+        lock.lock();
+        try {
+            Entry entry;
+            synchronized (calendars) {
+                entry = calendars.get(tenant);
+            }
+            if (entry == null) {
+                // only this tenant's lock is held while the file is read
+                entry = new Entry(load(tenant));
+                synchronized (calendars) {
+                    calendars.put(tenant, entry);
+                }
+            }
+            result = action.apply(entry.calendar);
+        } finally {
+            lock.unlock();
+        }
+        evictOverflow();
+        return result;
+    }
+
+    /**
+     * Checks if a tenant's calendar is in memory.
+     * @param tenant    the tenant id
+     * @return          true if the calendar is loaded
+     */
+    public boolean isLoaded(String tenant) {
+        synchronized (calendars) {
+            return calendars.containsKey(tenant);
+        }
+    }
+
+    /**
+     * Gets the number of calendars in memory.
+     * @return  the number of calendars
+     */
+    public int size() {
+        synchronized (calendars) {
+            return calendars.size();
+        }
+    }
+
+    /**
+     * Gets the tenants whose calendars are in memory, least recently used first.
+     * @return  the tenant ids
+     */
+    public ArrayList<String> loadedTenants() {
+        synchronized (calendars) {
+            return new ArrayList<>(calendars.keySet());
+        }
+    }
+
+    /**
+     * Saves every calendar in memory that changed since it was loaded or last saved.
+     * @throws IOException  if a calendar can't be saved
+     */
+    public void flush() throws IOException {
+        // walking the entries doesn't count as using the calendars, so the order is kept
+        ArrayList<Map.Entry<String, Entry>> loaded;
+        synchronized (calendars) {
+            loaded = new ArrayList<>(calendars.size());
+            for (Map.Entry<String, Entry> entry : calendars.entrySet()) loaded.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<String, Entry> entry : loaded) {
+            ReentrantLock lock = lockFor(entry.getKey());
+            lock.lock();
+            try {
+                // a calendar dropped since was already saved, so this does nothing for it
+                save(entry.getKey(), entry.getValue());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Saves every changed calendar and drops them all from memory.
+     * @throws IOException  if a calendar can't be saved
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        synchronized (calendars) {
+            calendars.clear();
+        }
+    }
+
+    /**
+     * Drops the least recently used calendars until no more than {@code maxCalendars} are loaded,
+     * saving each one first if it changed.
+     * @throws UncheckedIOException if a calendar can't be saved
+     */
+    private void evictOverflow() {
+        while (true) {
+            String tenant;
+            synchronized (calendars) {
+                if (calendars.size() <= maxCalendars) return;
+                tenant = calendars.keySet().iterator().next();
+            }
+            // the tenant's lock is taken on its own, so it never waits while holding another
+            ReentrantLock lock = lockFor(tenant);
+            lock.lock();
+            try {
+                Entry entry;
+                synchronized (calendars) {
+                    if (calendars.size() <= maxCalendars) return;
+                    // skip it if it was used or dropped while waiting for the lock
+                    if (!calendars.keySet().iterator().next().equals(tenant)) continue;
+                    entry = calendars.remove(tenant);
+                }
+                // the tenant can't be loaded again until the lock is released, so the file is saved first
+                try {
+                    save(tenant, entry);
+                } catch (IOException e) {
+                    synchronized (calendars) {
+                        calendars.put(tenant, entry);
+                    }
+                    throw new UncheckedIOException(e);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads a tenant's calendar from its file.
+     * @param tenant    the tenant id
+     * @return          the calendar, empty if the tenant has no file
+     * @throws UncheckedIOException if the file can't be read
+     */
+    private MyCalendar load(String tenant) {
+        MyCalendar calendar = new MyCalendar();
+        Path file = fileOf(tenant);
+        if (Files.exists(file)) {
+            try {
+                CalendarSnapshot.read(file, calendar);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * Writes a calendar to its tenant's file if it changed. The caller must hold the tenant's lock.
+     * @param tenant    the tenant id
+     * @param entry     the loaded calendar
+     * @throws IOException  if the file can't be written
+     */
+    private void save(String tenant, Entry entry) throws IOException {
+        if (!entry.dirty) return;
+        CalendarSnapshot.write(entry.calendar, fileOf(tenant));
+        entry.dirty = false;
+    }
+
+    /**
+     * Gets the file a tenant's calendar is kept in.
+     * @param tenant    the tenant id
+     * @return          the file
+     */
+    private Path fileOf(String tenant) {return directory.resolve(tenant + EXTENSION);}
+
+    /**
+     * Gets the lock a tenant shares with other tenants.
+     * @param tenant    the tenant id
+     * @return          the lock
+     */
+    private ReentrantLock lockFor(String tenant) {
+        return stripes[Math.floorMod(tenant.hashCode() * 0x9E3779B9, stripes.length)];
+    }
+}
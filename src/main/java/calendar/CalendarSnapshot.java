@@ -0,0 +1,271 @@
+package calendar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Reads and writes {@code MyCalendar} in a compact binary snapshot format.
+ * The text format of events.txt is kept for sharing calendars, but parsing it line by line is slow
+ * once a calendar holds millions of events. A snapshot is memory-mapped and read as fixed width
+ * records, and each name is only decoded once.
+ * <p>
+ * A snapshot holds, in order:
+ * <ul>
+ *     <li>the magic number {@code MYCS}, the format version, and the snapshot id</li>
+ *     <li>the name table: a count, then each name as a length and UTF-8 bytes. A snapshot of a
+ *     whole calendar writes the calendar's own {@code NameTable}, in order of id</li>
+ *     <li>the one time events: a count, then for each the name index, epoch day,
+ *     and start and end minute of the day</li>
+ *     <li>the recurring events: a count, then for each the name index, first and last epoch day,
+ *     day-of-week mask, start and end minute of the day, and the epoch days of its excluded dates</li>
+ * </ul>
+ * Times are stored to the minute, the same precision as events.txt. The snapshot id lets a
+ * {@code CalendarJournal} tell which snapshot its changes were made on top of.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230226
+ */
+public class CalendarSnapshot {
+    private static final int MAGIC = 0x4D594353;    // "MYCS"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CalendarSnapshot() {}
+
+    /**
+     * Writes a snapshot of a calendar with no snapshot id.
+     * @param calendar  the calendar
+     * @param file      the snapshot file
+     * @throws IOException  if the snapshot can't be written
+     */
+    public static void write(MyCalendar calendar, Path file) throws IOException {
+        write(calendar, file, 0);
+    }
+
+    /**
+     * Writes a snapshot of a calendar. The snapshot is written to a temporary file first and then
+     * moved into place, so an existing snapshot is never left half written.
+     * @param calendar  the calendar
+     * @param file      the snapshot file
+     * @param id        the snapshot id
+     * @throws IOException  if the snapshot can't be written
+     */
+    public static void write(MyCalendar calendar, Path file, long id) throws IOException {
+        write(calendar.getOneTimeEventsList(), calendar.getRecurringEventsList(), calendar.recurringIndex(),
+                calendar.nameTable(), file, id);
+    }
+
+    /**
+     * Writes a snapshot holding only some of the events of a calendar, such as one month of it.
+     * @param oneTimeEvents     the one time events, sorted by date
+     * @param recurringEvents   the recurring events
+     * @param index             the index holding the dates deleted from the recurring events
+     * @param file              the snapshot file
+     * @param id                the snapshot id
+     * @throws IOException  if the snapshot can't be written
+     */
+    static void write(Collection<Event> oneTimeEvents, Collection<RecurringEvent> recurringEvents,
+                      RecurringIndex index, Path file, long id) throws IOException {
+        // give every distinct name of these events an index in the name table of this file
+        NameTable names = new NameTable();
+        for (Event event : oneTimeEvents) names.idOf(event.getName());
+        for (RecurringEvent event : recurringEvents) names.idOf(event.getName());
+        write(oneTimeEvents, recurringEvents, index, names, file, id);
+    }
+
+    /**
+     * Writes a snapshot with a name table holding the name of every event being written.
+     * @param oneTimeEvents     the one time events, sorted by date
+     * @param recurringEvents   the recurring events
+     * @param index             the index holding the dates deleted from the recurring events
+     * @param names             the name table written to the snapshot
+     * @param file              the snapshot file
+     * @param id                the snapshot id
+     * @throws IOException  if the snapshot can't be written
+     */
+    private static void write(Collection<Event> oneTimeEvents, Collection<RecurringEvent> recurringEvents,
+                              RecurringIndex index, NameTable names, Path file, long id) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(id);
+
+            buffer.putInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                byte[] bytes = names.nameOf(i).getBytes(StandardCharsets.UTF_8);
+                ensureRemaining(channel, buffer, Integer.BYTES + bytes.length);
+                buffer.putInt(bytes.length);
+                // a name longer than the buffer is written in pieces
+                for (int offset = 0; offset < bytes.length; ) {
+                    int length = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, length);
+                    offset += length;
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                }
+            }
+
+            ensureRemaining(channel, buffer, Integer.BYTES);
+            buffer.putInt(oneTimeEvents.size());
+            for (Event event : oneTimeEvents) {
+                ensureRemaining(channel, buffer, 3 * Integer.BYTES);
+                buffer.putInt(names.idOf(event.getName()));
+                buffer.putInt((int) event.getStartDate().toEpochDay());
+                buffer.putShort((short) event.getTimeInterval().getStartMinute());
+                buffer.putShort((short) event.getTimeInterval().getEndMinute());
+            }
+
+            ensureRemaining(channel, buffer, Integer.BYTES);
+            buffer.putInt(recurringEvents.size());
+            for (RecurringEvent event : recurringEvents) {
+                Set<LocalDate> excludedDates = index.getExcludedDates(event);
+                ensureRemaining(channel, buffer, 5 * Integer.BYTES + 1);
+                buffer.putInt(names.idOf(event.getName()));
+                buffer.putInt((int) event.getStartDate().toEpochDay());
+                buffer.putInt((int) event.getEndDate().toEpochDay());
+                buffer.put((byte) event.getDayMask());
+                buffer.putShort((short) event.getTimeInterval().getStartMinute());
+                buffer.putShort((short) event.getTimeInterval().getEndMinute());
+                buffer.putInt(excludedDates.size());
+                for (LocalDate date : excludedDates) {
+                    ensureRemaining(channel, buffer, Integer.BYTES);
+                    buffer.putInt((int) date.toEpochDay());
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot and adds its events to a calendar.
+     * The events in a snapshot were already checked for conflicts when it was written, so they are
+     * added without checking again.
+     * @param file      the snapshot file
+     * @param calendar  the calendar the events are added to
+     * @return          the snapshot id
+     * @throws IOException  if the file can't be read or isn't a snapshot
+     */
+    public static long read(Path file, MyCalendar calendar) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("snapshot is larger than 2 GB: " + file);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            long id = readHeader(buffer, file);
+
+            // the names go straight into the calendar's name table, which every event read shares
+            NameTable nameTable = calendar.nameTable();
+            String[] names = new String[buffer.getInt()];
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < names.length; i++) {
+                int length = buffer.getInt();
+                if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+                buffer.get(bytes, 0, length);
+                names[i] = nameTable.intern(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            }
+
+            // the one time events are written in date order, so most records reuse the previous date
+            int oneTimeCount = buffer.getInt();
+            long epochDay = Long.MIN_VALUE;
+            LocalDate date = null;
+            for (int i = 0; i < oneTimeCount; i++) {
+                String name = names[buffer.getInt()];
+                int day = buffer.getInt();
+                if (day != epochDay) {
+                    epochDay = day;
+                    date = LocalDate.ofEpochDay(day);
+                }
+                TimeInterval timeInterval = new TimeInterval(buffer.getShort(), buffer.getShort());
+                calendar.addUnchecked(new Event(name, date, timeInterval));
+            }
+
+            int recurringCount = buffer.getInt();
+            for (int i = 0; i < recurringCount; i++) {
+                String name = names[buffer.getInt()];
+                LocalDate firstDate = LocalDate.ofEpochDay(buffer.getInt());
+                LocalDate lastDate = LocalDate.ofEpochDay(buffer.getInt());
+                int dayMask = buffer.get();
+                TimeInterval timeInterval = new TimeInterval(buffer.getShort(), buffer.getShort());
+                RecurringEvent event = new RecurringEvent(name, dayMask, firstDate, lastDate, timeInterval);
+                LocalDate[] excludedDates = new LocalDate[buffer.getInt()];
+                for (int j = 0; j < excludedDates.length; j++) excludedDates[j] = LocalDate.ofEpochDay(buffer.getInt());
+                calendar.addUnchecked(event, Arrays.asList(excludedDates));
+            }
+            return id;
+        } catch (RuntimeException e) {
+            // a truncated or corrupt file shows up as a buffer underflow or a bad index
+            throw new IOException("corrupt calendar snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Reads only the id of a snapshot.
+     * @param file  the snapshot file
+     * @return      the snapshot id
+     * @throws IOException  if the file can't be read or isn't a snapshot
+     */
+    public static long readId(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + Long.BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+            buffer.flip();
+            try {
+                return readHeader(buffer, file);
+            } catch (RuntimeException e) {
+                throw new IOException("corrupt calendar snapshot: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the magic number, version, and id at the start of a snapshot.
+     * Version 1 snapshots have no id and are read with an id of {@code 0}.
+     * @param buffer    the buffer positioned at the start of the snapshot
+     * @param file      the snapshot file
+     * @return          the snapshot id
+     * @throws IOException  if the file isn't a snapshot
+     */
+    private static long readHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.getInt() != MAGIC) throw new IOException("not a calendar snapshot: " + file);
+        int version = buffer.getInt();
+        if (version == 1) return 0;
+        if (version != VERSION) throw new IOException("unsupported snapshot version " + version + ": " + file);
+        return buffer.getLong();
+    }
+
+    /**
+     * Writes out the buffer if it doesn't have room for a number of bytes.
+     * @param channel   the channel being written to
+     * @param buffer    the buffer
+     * @param bytes     the number of bytes about to be put in the buffer
+     * @throws IOException  if the buffer can't be written
+     */
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush(channel, buffer);
+    }
+
+    /**
+     * Writes out everything in the buffer and empties it.
+     * @param channel   the channel being written to
+     * @param buffer    the buffer
+     * @throws IOException  if the buffer can't be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,250 @@
+package calendar;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@code MyCalendar} commands read from a script, such as a file or a pipe, without the menus
+ * of {@code MyCalendarTester}. Each line is one command, and everything written by the commands
+ * goes through a single {@code Writer}, so replaying a long log of commands costs little more than
+ * the calendar operations themselves.
+ * <p>
+ * Dates are written {@code M/d/yyyy} and times {@code H:m}, as in the menus. A name is the rest of
+ * the line, so it can have spaces. Blank lines and lines starting with {@code #} are skipped.
+ * <ul>
+ *     <li>{@code create DATE START END NAME}: adds a one time event</li>
+ *     <li>{@code recurring DAYS START END FIRST_DATE LAST_DATE NAME}: adds a recurring event, such as {@code MWF}</li>
+ *     <li>{@code delete DATE NAME}: deletes an event on a date</li>
+ *     <li>{@code delete-on DATE}: deletes every event on a date</li>
+ *     <li>{@code delete-recurring NAME}: deletes a recurring event</li>
+ *     <li>{@code delete-all}: deletes every event</li>
+ *     <li>{@code goto DATE}: selects a date</li>
+ *     <li>{@code next day}, {@code prev day}, {@code next month}, {@code prev month}: move the selection</li>
+ *     <li>{@code view day}, {@code view month}: write the selected day or month</li>
+ *     <li>{@code list}: writes every event</li>
+ *     <li>{@code export FILE}: exports every event to a file, as CSV if it ends in {@code .csv},
+ *     iCalendar if it ends in {@code .ics}, and in the events.txt format otherwise</li>
+ * </ul>
+ * A command that can't be run writes the line number and the reason, and the script carries on.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.1.230317
+ */
+public class CommandRunner {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MyCalendar calendar;
+    private final Writer out;
+    private int commands;
+    private int added;
+    private int rejected;
+    private int deleted;
+    private int failed;
+
+    /**
+     * Creates a {@code CommandRunner}.
+     * @param calendar  the calendar the commands are run on
+     * @param out       where the results of the commands are written, best buffered
+     */
+    public CommandRunner(MyCalendar calendar, Writer out) {
+        this.calendar = calendar;
+        this.out = out;
+    }
+
+    /**
+     * Runs every command in a script and flushes the output.
+     * @param script    the script, one command per line
+     * @throws IOException  if the script can't be read or the output can't be written
+     */
+    public void run(BufferedReader script) throws IOException {
+        int lineNumber = 0;
+        String line;
+        while ((line = script.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            commands++;
+            try {
+                runCommand(line);
+            } catch (RuntimeException e) {
+                // a bad date or a missing argument only loses this command
+                failed++;
+                out.write("line " + lineNumber + ": " + e.getMessage() + "\n");
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Runs one command.
+     * @param line  the command and its arguments
+     * @throws IOException  if the output can't be written
+     * @throws IllegalArgumentException if the command is unknown or has too few arguments
+     * @throws DateTimeException        if a date or time is invalid
+     */
+    private void runCommand(String line) throws IOException {
+        String[] words = WHITESPACE.split(line, 2);
+        String rest = words.length > 1 ? words[1] : "";
+        switch (words[0].toLowerCase()) {
+            case "create" -> {
+                String[] arguments = arguments(rest, 4);
+                Event event = new Event(arguments[3], date(arguments[0]), time(arguments[1]), time(arguments[2]));
+                added(calendar.add(event));
+            }
+            case "recurring" -> {
+                String[] arguments = arguments(rest, 6);
+                RecurringEvent event = new RecurringEvent(arguments[5], arguments[0].toUpperCase(),
+                        date(arguments[3]), date(arguments[4]), time(arguments[1]), time(arguments[2]));
+                added(calendar.add(event));
+            }
+            case "delete" -> {
+                String[] arguments = arguments(rest, 2);
+                deleted(calendar.deleteEvent(arguments[1], date(arguments[0])));
+            }
+            case "delete-on" -> {
+                if (calendar.deleteAllEventsOn(date(arguments(rest, 1)[0]))) deleted++;
+            }
+            case "delete-recurring" -> deleted(calendar.deleteRecurringEvent(arguments(rest, 1)[0]));
+            case "delete-all" -> {
+                boolean hadEvents = !calendar.getOneTimeEventsList().isEmpty()
+                        || !calendar.getRecurringEventsList().isEmpty();
+                calendar.deleteAllEvents();
+                if (hadEvents) deleted++;
+            }
+            case "goto" -> calendar.goTo(date(arguments(rest, 1)[0]));
+            case "next" -> {
+                if (isDay(rest)) calendar.nextDay();
+                else calendar.nextMonth();
+            }
+            case "prev" -> {
+                if (isDay(rest)) calendar.previousDay();
+                else calendar.prevMonth();
+            }
+            case "view" -> out.write(isDay(rest) ? calendar.displaySelectedDay() : calendar.displayMonth() + "\n");
+            // the event list starts from the first one time event, so it needs at least one
+            case "list" -> out.write(calendar.displayEventsList());
+            case "export" -> {
+                String file = arguments(rest, 1)[0];
+                try {
+                    CalendarExporter.export(calendar, Path.of(file), format(file));
+                } catch (IOException e) {
+                    // only this command fails, unlike the output not being written
+                    throw new UncheckedIOException("could not export to " + file, e);
+                }
+                out.write("Events saved to " + file + "\n");
+            }
+            default -> throw new IllegalArgumentException("unknown command " + words[0]);
+        }
+    }
+
+    /**
+     * Gets the number of commands run, not counting blank lines and comments.
+     * @return  the number of commands
+     */
+    public int getCommandCount() {return commands;}
+
+    /**
+     * Gets the number of commands that couldn't be run.
+     * @return  the number of failed commands
+     */
+    public int getFailedCount() {return failed;}
+
+    /**
+     * Outputs a summary of the commands run, such as
+     * {@code 120 commands: 40 added, 3 rejected, 10 deleted, 1 failed}
+     * @return  a String of the summary
+     */
+    public String summary() {
+        return commands + " commands: " + added + " added, " + rejected + " rejected, "
+                + deleted + " deleted, " + failed + " failed";
+    }
+
+    /**
+     * Counts and reports an event being added.
+     * @param success   true if the event was added, false if it conflicted with another
+     * @throws IOException  if the output can't be written
+     */
+    private void added(boolean success) throws IOException {
+        if (success) {
+            added++;
+            out.write("Event added\n");
+        }
+        else {
+            rejected++;
+            out.write("Failed to add event: Event conflicted with another.\n");
+        }
+    }
+
+    /**
+     * Counts and reports an event being deleted.
+     * @param success   true if the event was deleted
+     * @throws IOException  if the output can't be written
+     */
+    private void deleted(boolean success) throws IOException {
+        if (success) {
+            deleted++;
+            out.write("Event Deleted\n");
+        }
+        else out.write("Deletion Failed!\n");
+    }
+
+    /**
+     * Splits the arguments of a command, the last one taking the rest of the line.
+     * @param rest  the line after the command
+     * @param count the number of arguments
+     * @return      the arguments
+     * @throws IllegalArgumentException if there are fewer than {@code count} arguments
+     */
+    private static String[] arguments(String rest, int count) {
+        String[] arguments = WHITESPACE.split(rest, count);
+        if (arguments.length < count || arguments[count - 1].isEmpty())
+            throw new IllegalArgumentException("expected " + count + " arguments");
+        return arguments;
+    }
+
+    /**
+     * Checks if the argument of a {@code next}, {@code prev}, or {@code view} command is a day.
+     * @param argument  the argument
+     * @return          true for {@code day}, false for {@code month}
+     * @throws IllegalArgumentException if it is neither
+     */
+    private static boolean isDay(String argument) {
+        if (argument.equalsIgnoreCase("day")) return true;
+        if (argument.equalsIgnoreCase("month")) return false;
+        throw new IllegalArgumentException("expected day or month");
+    }
+
+    /**
+     * Picks the format of an exported file from its extension.
+     * @param file  the name of the file
+     * @return      the format
+     */
+    private static CalendarExporter.Format format(String file) {
+        String name = file.toLowerCase();
+        if (name.endsWith(".csv")) return CalendarExporter.Format.CSV;
+        if (name.endsWith(".ics")) return CalendarExporter.Format.ICALENDAR;
+        return CalendarExporter.Format.TEXT;
+    }
+
+    /**
+     * Parses a date using the {@code M/d/yyyy} pattern.
+     * @param text  the date
+     * @return      the date
+     * @throws DateTimeException    if it isn't a valid date
+     */
+    private static LocalDate date(String text) {return DateTimeText.parseDate(text);}
+
+    /**
+     * Parses a time using the {@code H:m} pattern.
+     * @param text  the time
+     * @return      the time
+     * @throws DateTimeException    if it isn't a valid time
+     */
+    private static LocalTime time(String text) {return DateTimeText.parseTime(text);}
+}
@@ -0,0 +1,302 @@
+package calendar;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A calendar that can be shared by many threads, such as the threads of a booking server.
+ * {@code ConcurrentCalendar} follows the same rules as {@code MyCalendar}: events on a day never
+ * conflict, and a {@code RecurringEvent} is only added if none of its dates conflict.
+ * <p>
+ * Each day's one time events are kept in a {@code ConcurrentSkipListMap} keyed by epoch day as an
+ * array sorted by start time that is replaced, never changed, when the day is updated. Readers
+ * such as {@link #displayMonth(YearMonth)} never take a lock. Changes to a day lock one of a fixed
+ * set of stripes, so bookings on different days run in parallel and the conflict check and insert
+ * for a day happen as one step. Adding or deleting a {@code RecurringEvent} touches many days and
+ * locks out all other changes while it runs. The recurring events are kept in a
+ * {@code RecurringIndex} that is copied and replaced, never changed, when one is added or deleted.
+ * <p>
+ * A change to a day takes no lock shared with other days. Holding its stripe, it takes an
+ * optimistic read of a {@code StampedLock}, which only fails while a recurring event is being
+ * changed. A change to a recurring event takes the write lock and then waits for every stripe to
+ * be free once, so changes to days that started before it finish first and those starting after
+ * it wait for it.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.2.230317
+ */
+public class ConcurrentCalendar {
+    private static final int STRIPES = 64;
+    private static final Event[] NO_EVENTS = new Event[0];
+
+    private final ConcurrentSkipListMap<Long, Event[]> events;
+    private volatile RecurringIndex recurringEvents;
+    private final StampedLock recurringLock;
+    private final ReentrantLock[] dayLocks;
+    private final LocalDate today;
+
+    /**
+     * Creates a new {@code ConcurrentCalendar}.
+     */
+    public ConcurrentCalendar() {
+        events = new ConcurrentSkipListMap<>();
+        recurringEvents = new RecurringIndex();
+        recurringLock = new StampedLock();
+        dayLocks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) dayLocks[i] = new ReentrantLock();
+        today = LocalDate.now();
+    }
+
+    /**
+     * Gets the lock guarding changes to a day.
+     * @param day   the epoch day
+     * @return      the lock for that day
+     */
+    private ReentrantLock lockFor(long day) {
+        return dayLocks[(int) (day ^ (day >>> 32)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Changes a day while holding its lock, waiting first for any change to a recurring event.
+     * @param day       the epoch day
+     * @param change    the change
+     * @return          the result of the change
+     */
+    private <T> T changeDay(long day, Supplier<T> change) {
+        ReentrantLock dayLock = lockFor(day);
+        while (true) {
+            dayLock.lock();
+            try {
+                // no recurring change has started, and one starting now waits for this day's lock
+                if (recurringLock.tryOptimisticRead() != 0) return change.get();
+            } finally {
+                dayLock.unlock();
+            }
+            // wait for the recurring change without holding the day's lock, which it waits for
+            recurringLock.unlockRead(recurringLock.readLock());
+        }
+    }
+
+    /**
+     * Changes the recurring events while no day is being changed.
+     * @param change    the change
+     * @return          the result of the change
+     */
+    private <T> T changeRecurring(Supplier<T> change) {
+        long stamp = recurringLock.writeLock();
+        try {
+            // changes to days that began before the write lock finish before the days are read
+            for (ReentrantLock dayLock : dayLocks) {
+                dayLock.lock();
+                dayLock.unlock();
+            }
+            return change.get();
+        } finally {
+            recurringLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds a {@code OneTimeEvent} to the calendar. If the event conflicts with an existing event
+     * it is not added. Checking for conflicts and adding the event happen as one step.
+     * @param newEvent  the event being added
+     * @return          true if the event is successfully added and false if it conflicts with an event
+     */
+    public boolean add(Event newEvent) {
+        long day = newEvent.getStartDate().toEpochDay();
+        return changeDay(day, () -> {
+            Event[] eventList = events.getOrDefault(day, NO_EVENTS);
+            if (DayIndex.hasConflict(eventList, eventList.length, newEvent.getTimeInterval())) return false;
+            if (recurringEvents.anyOn(newEvent.getStartDate(),
+                    recurringEvent -> recurringEvent.getTimeInterval().isConflicting(newEvent.getTimeInterval()))) return false;
+
+            // copy the day so readers never see a half updated array
+            int i = DayIndex.firstStartingAtOrAfter(eventList, eventList.length, newEvent.getTimeInterval().getStartMinute());
+            Event[] newEventList = new Event[eventList.length + 1];
+            System.arraycopy(eventList, 0, newEventList, 0, i);
+            newEventList[i] = newEvent;
+            System.arraycopy(eventList, i, newEventList, i + 1, eventList.length - i);
+            events.put(day, newEventList);
+            return true;
+        });
+    }
+
+    /**
+     * Adds a {@code RecurringEvent} to the calendar. If any of its dates conflicts with an
+     * existing event the {@code RecurringEvent} is not added at all.
+     * @param newEvent  the event being added
+     * @return          true if the event is successfully added and false if it conflicts with an event
+     */
+    public boolean add(RecurringEvent newEvent) {
+        return changeRecurring(() -> {
+            if (!findConflicts(newEvent).isEmpty()) return false;
+            RecurringIndex updated = RecurringIndex.copyOf(recurringEvents);
+            updated.add(newEvent);
+            recurringEvents = updated;
+            return true;
+        });
+    }
+
+    /**
+     * Finds the events that conflict with an {@code Event} on its date.
+     * The result may be out of date as soon as it is returned if other threads are adding events.
+     * @param event the event being checked
+     * @return      the conflicting events, empty if there are none
+     */
+    public ArrayList<Event> findConflicts(Event event) {
+        ArrayList<Event> conflicts = new ArrayList<>();
+        Event[] eventList = events.getOrDefault(event.getStartDate().toEpochDay(), NO_EVENTS);
+        DayIndex.collectConflicts(eventList, eventList.length, event.getTimeInterval(), conflicts);
+        recurringEvents.collectConflicts(event, conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Finds the events that conflict with any of the dates of a {@code RecurringEvent}.
+     * The result may be out of date as soon as it is returned if other threads are adding events.
+     * @param event the event being checked
+     * @return      the conflicting events, empty if there are none
+     */
+    public ArrayList<Event> findConflicts(RecurringEvent event) {
+        ArrayList<Event> conflicts = new ArrayList<>();
+        // only the days the event takes place on are looked up
+        for (LocalDate date = event.getStartDate(); date != null; date = event.nextOccurrence(date.plusDays(1))) {
+            Event[] eventList = events.get(date.toEpochDay());
+            if (eventList != null) DayIndex.collectConflicts(eventList, eventList.length, event.getTimeInterval(), conflicts);
+        }
+        recurringEvents.collectConflicts(event, Collections.emptySet(), conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Gets every event taking place on a date, including the dates of recurring events.
+     * @param date  the date
+     * @return      the events sorted by start time
+     */
+    public TreeSet<Event> eventsOn(LocalDate date) {
+        TreeSet<Event> eventList = new TreeSet<>(Event.START_TIME_ORDER);
+        eventList.addAll(Arrays.asList(events.getOrDefault(date.toEpochDay(), NO_EVENTS)));
+        eventList.addAll(recurringEvents.on(date));
+        return eventList;
+    }
+
+    /**
+     * Checks if there is an {@code Event} on a certain date.
+     * @param date  The date we are checking.
+     * @return      true if there is an event on that date
+     */
+    public boolean hasEventsOn(LocalDate date) {
+        if (events.containsKey(date.toEpochDay())) return true;
+        return recurringEvents.anyOn(date, recurringEvent -> true);
+    }
+
+    /**
+     * Gets the recurring events on the calendar.
+     * @return  a copy of the recurring events sorted by first date
+     */
+    public List<RecurringEvent> getRecurringEventsList() {return List.copyOf(recurringEvents.getRecurringEvents());}
+
+    /**
+     * Gets the dates deleted from a recurring event on the calendar.
+     * @param event the recurring event
+     * @return      a read-only view of the deleted dates in order
+     */
+    public NavigableSet<LocalDate> getExcludedDates(RecurringEvent event) {return recurringEvents.getExcludedDates(event);}
+
+    /**
+     * Deletes an event on the specified date and with the specified name.
+     * @param name  the name of the event being deleted
+     * @param date  the date the event is on
+     * @return      true if the event was successfully deleted and false if it wasn't
+     */
+    public boolean deleteEvent(String name, LocalDate date) {
+        long day = date.toEpochDay();
+        return changeDay(day, () -> {
+            boolean deleted = false;
+            Event[] eventList = events.get(day);
+            if (eventList != null) {
+                Event[] kept = Arrays.stream(eventList).filter(event -> !event.getName().equals(name)).toArray(Event[]::new);
+                deleted = kept.length != eventList.length;
+                if (kept.length == 0) events.remove(day);
+                else if (deleted) events.put(day, kept);
+            }
+            // a recurring event only loses this one date
+            RecurringIndex index = recurringEvents;
+            for (RecurringEvent recurringEvent : index.on(date)) {
+                if (recurringEvent.getName().equals(name) && index.exclude(recurringEvent, date)) deleted = true;
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Deletes all events on a specific date.
+     * @param date  the date the events are being deleted on
+     * @return      true if any event was deleted and false if there were none on the date
+     */
+    public boolean deleteAllEventsOn(LocalDate date) {
+        long day = date.toEpochDay();
+        return changeDay(day, () -> {
+            boolean deleted = events.remove(day) != null;
+            RecurringIndex index = recurringEvents;
+            for (RecurringEvent recurringEvent : index.on(date)) {
+                if (index.exclude(recurringEvent, date)) deleted = true;
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Deletes a {@code RecurringEvent} with the name provided.
+     * @param name  name of the {@code RecurringEvent} being removed.
+     * @return      True if the {@code RecurringEvent} event got removed
+     */
+    public boolean deleteRecurringEvent(String name) {
+        return changeRecurring(() -> {
+            RecurringIndex updated = RecurringIndex.copyOf(recurringEvents);
+            boolean deleted = false;
+            for (RecurringEvent event : recurringEvents.getRecurringEvents()) {
+                if (event.getName().equals(name)) {
+                    updated.remove(event);
+                    deleted = true;
+                }
+            }
+            if (deleted) recurringEvents = updated;
+            return deleted;
+        });
+    }
+
+    /**
+     * Deletes every event on the calendar.
+     */
+    public void deleteAllEvents() {
+        // like a recurring change, this keeps out every change to a day
+        changeRecurring(() -> {
+            events.clear();
+            recurringEvents = new RecurringIndex();
+            return null;
+        });
+    }
+
+    /**
+     * Outputs a month view of the calendar as a String with the month and year at the top.
+     * This never waits for threads that are changing the calendar. Every day is shown with the same
+     * recurring events, so a recurring event being added or deleted is on all of its days or none.
+     * @param month the month being displayed
+     * @return      the String of the month view.
+     */
+    public String displayMonth(YearMonth month) {
+        RecurringIndex index = recurringEvents;
+        return MyCalendar.displayMonth(month.atDay(1), today,
+                date -> events.containsKey(date.toEpochDay()) || index.anyOn(date, recurringEvent -> true));
+    }
+}
@@ -0,0 +1,112 @@
+package calendar;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Parses the dates and times written in events.txt and in {@code CommandRunner} scripts, a digit
+ * at a time straight from the bytes of a line. Millions of them are read when a large file is
+ * loaded, and a {@code DateTimeFormatter} costs more than the rest of the record.
+ * <p>
+ * Dates are {@code M/d/yy} in events.txt and {@code M/d/yyyy} in scripts, with one or two digits
+ * for the month and day. Times are {@code H:m}, with one or two digits for each.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230315
+ */
+final class DateTimeText {
+    private DateTimeText() {}
+
+    /**
+     * Parses a date using the {@code M/d/yy} or {@code M/d/yyyy} pattern.
+     * @param bytes         the line
+     * @param start         the start of the date
+     * @param end           the end of the date
+     * @param yearDigits    the number of digits in the year, 2 for a year in the 2000s or 4
+     * @return              the date
+     * @throws DateTimeException    if it isn't a valid date
+     */
+    static LocalDate parseDate(byte[] bytes, int start, int end, int yearDigits) {
+        int month = 0, day = 0, year = 0;
+        int part = 0, digits = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '/' && part < 2 && digits > 0) {
+                part++;
+                digits = 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || digits == (part == 2 ? yearDigits : 2)) throw error("date", bytes, start, end);
+            int digit = b - '0';
+            if (part == 0) month = month * 10 + digit;
+            else if (part == 1) day = day * 10 + digit;
+            else year = year * 10 + digit;
+            digits++;
+        }
+        if (part != 2 || digits != yearDigits) throw error("date", bytes, start, end);
+        return LocalDate.of(yearDigits == 2 ? 2000 + year : year, month, day);
+    }
+
+    /**
+     * Parses a date using the {@code M/d/yyyy} pattern.
+     * @param text  the date
+     * @return      the date
+     * @throws DateTimeException    if it isn't a valid date
+     */
+    static LocalDate parseDate(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return parseDate(bytes, 0, bytes.length, 4);
+    }
+
+    /**
+     * Parses a time using the {@code H:m} pattern.
+     * @param bytes the line
+     * @param start the start of the time
+     * @param end   the end of the time
+     * @return      the time
+     * @throws DateTimeException    if it isn't a valid time
+     */
+    static LocalTime parseTime(byte[] bytes, int start, int end) {
+        int hour = 0, minute = 0;
+        boolean inMinutes = false;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == ':' && !inMinutes && digits > 0) {
+                inMinutes = true;
+                digits = 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || digits == 2) throw error("time", bytes, start, end);
+            if (inMinutes) minute = minute * 10 + (b - '0');
+            else hour = hour * 10 + (b - '0');
+            digits++;
+        }
+        if (!inMinutes || digits == 0 || hour > 23 || minute > 59) throw error("time", bytes, start, end);
+        return TimeInterval.timeOfMinute(hour * 60 + minute);
+    }
+
+    /**
+     * Parses a time using the {@code H:m} pattern.
+     * @param text  the time
+     * @return      the time
+     * @throws DateTimeException    if it isn't a valid time
+     */
+    static LocalTime parseTime(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return parseTime(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Creates an exception for a field that couldn't be parsed.
+     * @param kind  what the field should have been, such as {@code date}
+     * @param bytes the line
+     * @param start the start of the field
+     * @param end   the end of the field
+     * @return      the exception
+     */
+    private static DateTimeException error(String kind, byte[] bytes, int start, int end) {
+        return new DateTimeException("bad " + kind + ": " + new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+}
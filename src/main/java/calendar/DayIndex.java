@@ -0,0 +1,281 @@
+package calendar;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An index of the one time events on each day of {@code MyCalendar}.
+ * Days are keyed by {@link LocalDate#toEpochDay()} in an open-addressing hash table of
+ * primitive {@code long} keys, so no {@code LocalDate} is kept per day. Each day holds a small
+ * array of its events sorted by start time that only grows when the day gets busy.
+ * <p>
+ * Events on a day never overlap, so a conflict check only needs a binary search for the
+ * events on either side of the new one.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230222
+ */
+class DayIndex {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_DAY_CAPACITY = 2;
+
+    private long[] keys;
+    private Event[][] days;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Creates an empty {@code DayIndex}.
+     */
+    DayIndex() {
+        keys = new long[INITIAL_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+        days = new Event[INITIAL_CAPACITY][];
+        counts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Gets the slot of a day in the table.
+     * @param day   the epoch day
+     * @return      the slot holding the day, or the empty slot it would go in
+     */
+    private int slotOf(long day) {
+        int mask = keys.length - 1;
+        int slot = hash(day) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != day) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Spreads the bits of an epoch day so consecutive days don't cluster together.
+     * @param day   the epoch day
+     * @return      the hash of the day
+     */
+    private static int hash(long day) {
+        long h = day * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Gets the number of days that have at least one event.
+     * @return  the number of days
+     */
+    int size() {return size;}
+
+    /**
+     * Gets the number of events on a day.
+     * @param day   the epoch day
+     * @return      the number of events
+     */
+    int count(long day) {
+        int slot = slotOf(day);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    /**
+     * Gets the events on a day.
+     * @param day   the epoch day
+     * @return      a read-only view of the events sorted by start time
+     */
+    List<Event> eventsOn(long day) {
+        int slot = slotOf(day);
+        if (keys[slot] == EMPTY) return Collections.emptyList();
+        return Collections.unmodifiableList(Arrays.asList(days[slot]).subList(0, counts[slot]));
+    }
+
+    /**
+     * Adds an {@code Event} to its day. The event must not conflict with the events already on the day.
+     * @param event the event being added
+     */
+    void add(Event event) {
+        long day = event.getStartDate().toEpochDay();
+        int slot = slotOf(day);
+        if (keys[slot] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+                slot = slotOf(day);
+            }
+            keys[slot] = day;
+            days[slot] = new Event[INITIAL_DAY_CAPACITY];
+            size++;
+        }
+
+        Event[] eventList = days[slot];
+        int count = counts[slot];
+        if (count == eventList.length) {
+            eventList = Arrays.copyOf(eventList, count * 2);
+            days[slot] = eventList;
+        }
+        int i = firstStartingAtOrAfter(eventList, count, event.getTimeInterval().getStartMinute());
+        System.arraycopy(eventList, i, eventList, i + 1, count - i);
+        eventList[i] = event;
+        counts[slot] = count + 1;
+    }
+
+    /**
+     * Checks if a {@code TimeInterval} conflicts with an event on a day.
+     * @param day           the epoch day
+     * @param timeInterval  the time interval being checked
+     * @return              true if it is conflicting
+     */
+    boolean hasConflict(long day, TimeInterval timeInterval) {
+        int slot = slotOf(day);
+        return keys[slot] != EMPTY && hasConflict(days[slot], counts[slot], timeInterval);
+    }
+
+    /**
+     * Adds every event on a day that conflicts with a {@code TimeInterval} to a collection.
+     * @param day           the epoch day
+     * @param timeInterval  the time interval being checked
+     * @param conflicts     the collection the conflicting events are added to
+     */
+    void collectConflicts(long day, TimeInterval timeInterval, Collection<Event> conflicts) {
+        int slot = slotOf(day);
+        if (keys[slot] != EMPTY) collectConflicts(days[slot], counts[slot], timeInterval, conflicts);
+    }
+
+    /**
+     * Checks if a {@code TimeInterval} conflicts with an event in a sorted array of events that
+     * don't overlap each other.
+     * @param eventList     the events sorted by start time
+     * @param count         the number of events in the array
+     * @param timeInterval  the time interval being checked
+     * @return              true if it is conflicting
+     */
+    static boolean hasConflict(Event[] eventList, int count, TimeInterval timeInterval) {
+        // only the event starting before this one and the event starting at or after it can conflict
+        int i = firstStartingAtOrAfter(eventList, count, timeInterval.getStartMinute());
+        if (i > 0 && eventList[i - 1].getTimeInterval().isConflicting(timeInterval)) return true;
+        return i < count && eventList[i].getTimeInterval().isConflicting(timeInterval);
+    }
+
+    /**
+     * Adds every event in a sorted array of events that don't overlap each other that conflicts
+     * with a {@code TimeInterval} to a collection.
+     * @param eventList     the events sorted by start time
+     * @param count         the number of events in the array
+     * @param timeInterval  the time interval being checked
+     * @param conflicts     the collection the conflicting events are added to
+     */
+    static void collectConflicts(Event[] eventList, int count, TimeInterval timeInterval, Collection<Event> conflicts) {
+        // start from the event before this one, then walk forward until the events start after it ends
+        int i = Math.max(0, firstStartingAtOrAfter(eventList, count, timeInterval.getStartMinute()) - 1);
+        for (; i < count; i++) {
+            TimeInterval other = eventList[i].getTimeInterval();
+            if (other.getStartMinute() >= timeInterval.getEndMinute()) break;
+            if (other.isConflicting(timeInterval)) conflicts.add(eventList[i]);
+        }
+    }
+
+    /**
+     * Finds the first event in a sorted array that starts at or after a minute of the day.
+     * @param eventList the events sorted by start time
+     * @param count     the number of events in the array
+     * @param start     the minute of the day
+     * @return          the index of the event, or {@code count} if every event starts before the time
+     */
+    static int firstStartingAtOrAfter(Event[] eventList, int count, int start) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (eventList[mid].getTimeInterval().getStartMinute() < start) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Removes the events on a day that match a condition.
+     * @param day       the epoch day
+     * @param filter    the condition
+     * @return          true if any events were removed
+     */
+    boolean removeIf(long day, Predicate<Event> filter) {
+        int slot = slotOf(day);
+        if (keys[slot] == EMPTY) return false;
+        Event[] eventList = days[slot];
+        int count = counts[slot];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (!filter.test(eventList[i])) eventList[kept++] = eventList[i];
+        }
+        if (kept == count) return false;
+        Arrays.fill(eventList, kept, count, null);
+        counts[slot] = kept;
+        if (kept == 0) removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Removes every event on a day.
+     * @param day   the epoch day
+     * @return      true if the day had any events
+     */
+    boolean remove(long day) {
+        int slot = slotOf(day);
+        if (keys[slot] == EMPTY) return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Removes every day from the index.
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(days, null);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    /**
+     * Empties a slot and shifts back the slots after it so lookups still find them.
+     * @param slot  the slot being emptied
+     */
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY) break;
+            int home = hash(keys[next]) & mask;
+            // move the entry back if the emptied slot is between its home slot and where it is now
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                days[slot] = days[next];
+                counts[slot] = counts[next];
+                slot = next;
+            }
+        }
+        keys[slot] = EMPTY;
+        days[slot] = null;
+        counts[slot] = 0;
+        size--;
+    }
+
+    /**
+     * Rebuilds the table with a new capacity.
+     * @param capacity  the new capacity, a power of two
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Event[][] oldDays = days;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        days = new Event[capacity][];
+        counts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slotOf(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            days[slot] = oldDays[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+}
@@ -11,22 +11,20 @@ import java.util.Comparator;
  * {@code Event} start times. {@code Event} also utilizes
  * a Comparator to sort by start date and start time.
  * @author Jonathan Stewart Thomas
- * @version 1.0.2.230216
+ * @version 1.0.3.230317
  */
 public class Event{
     public static final Comparator<Event> DATE_TIME_ORDER = (e1, e2) -> {
         if (e1.getStartDate().isBefore(e2.getStartDate())) return -1;
         else if (e1.getStartDate().isAfter(e2.getStartDate())) return 1;
-        else if (e1.getTimeInterval().getStart().isBefore(e2.getTimeInterval().getStart())) return -1;
-        else if (e1.getTimeInterval().getStart().isAfter(e2.getTimeInterval().getStart())) return 1;
-        return 0;
+        return Integer.compare(e1.getTimeInterval().getStartMinute(), e2.getTimeInterval().getStartMinute());
     };
-    public static final Comparator<Event> START_TIME_ORDER = (e1, e2) -> {
-        if (e1.getTimeInterval().getStart().isBefore(e2.getTimeInterval().getStart())) return -1;
-        else if (e1.getTimeInterval().getStart().isAfter(e2.getTimeInterval().getStart())) return 1;
-        return 0;
-    };
-    private final String name;
+    public static final Comparator<Event> START_TIME_ORDER = (e1, e2) ->
+            Integer.compare(e1.getTimeInterval().getStartMinute(), e2.getTimeInterval().getStartMinute());
+    static final DateTimeFormatter MONTH_DAY_YEAR = DateTimeFormatter.ofPattern("M/d/yy");
+    private static final TimeInterval FIRST_MINUTE = new TimeInterval(0, 1);
+    private String name;
+    private int nameId;             // id of the name in the NameTable of the calendar the event is on
     private final LocalDate startDate;
     private final TimeInterval timeInterval;
 
@@ -40,22 +38,54 @@ public class Event{
      */
     public Event(String name, LocalDate startDate, LocalTime startTime, LocalTime endTime) {
         this.name = name;
+        this.nameId = -1;
         this.startDate = startDate;
         this.timeInterval = new TimeInterval(startTime, endTime);
     }
 
+    /**
+     * Creates a {@code Event} that shares an existing {@code TimeInterval}.
+     * @param name          name of event
+     * @param startDate     date event takes place
+     * @param timeInterval  time interval of event
+     */
+    protected Event(String name, LocalDate startDate, TimeInterval timeInterval) {
+        this.name = name;
+        this.nameId = -1;
+        this.startDate = startDate;
+        this.timeInterval = timeInterval;
+    }
+
+    /**
+     * Creates a key with no name for searching events sorted by {@link #DATE_TIME_ORDER}.
+     * The key sorts with the first event that could start on its date.
+     * @param startDate date of the key
+     */
+    Event(LocalDate startDate) {this(null, startDate, FIRST_MINUTE);}
+
     protected String getName() {return name;}
+    int getNameId() {return nameId;}
     protected LocalDate getStartDate() {return startDate;}
     protected TimeInterval getTimeInterval() {return timeInterval;}
 
+    /**
+     * Gives the event the id its name has in a calendar's {@code NameTable}, and the table's copy of
+     * the name so every event with the same name on the calendar shares one String.
+     * An event is only on one calendar at a time.
+     * @param names the name table of the calendar the event is being added to
+     */
+    void internName(NameTable names) {
+        nameId = names.idOf(name);
+        name = names.nameOf(nameId);
+    }
+
     /**
      * Outputs {@code Event} as a String using the format {@code M/d/yy}
      * pattern for the date.
      * @return  string of event
      */
     public String inFormatMonthDayYear() {
-        DateTimeFormatter monthDayYear = DateTimeFormatter.ofPattern("M/d/yy");
-        return String.format("%s\n%s %s\n", getName(), monthDayYear.format(startDate), getTimeInterval());
+        return String.format("%s\n%s %s\n", getName(), MONTH_DAY_YEAR.format(startDate), getTimeInterval());
     }
 
     /**
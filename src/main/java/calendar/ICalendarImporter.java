@@ -0,0 +1,542 @@
+package calendar;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads an iCalendar (RFC 5545) file and adds its events to a {@code MyCalendar}.
+ * The file is read one content line at a time and only the {@code VEVENT} being read is kept, so
+ * files of any size are read in a small, fixed amount of memory. A {@code VEVENT} that can't be
+ * imported is reported in the {@link ImportResult} and the import carries on with the next one.
+ * <p>
+ * A {@code VEVENT} with no {@code RRULE} becomes an {@code Event}. A weekly or daily {@code RRULE}
+ * with an {@code INTERVAL} of 1 becomes a {@code RecurringEvent}, with its {@code EXDATE}s deleted.
+ * A rule with neither {@code UNTIL} nor {@code COUNT} is read as lasting
+ * {@value #RECURRENCE_HORIZON_YEARS} year. A {@code VEVENT} with a {@code RECURRENCE-ID} replaces that
+ * date of its recurring event, and no other event on the date. Events lasting past midnight and
+ * all-day events aren't supported, since {@code MyCalendar} keeps every event at a time on a single
+ * date, so they are reported as errors.
+ * <p>
+ * To match a {@code RECURRENCE-ID} with its recurring event, the importer remembers the
+ * {@value #MAX_REMEMBERED_SERIES} recurring events it used most recently, and the replaced dates
+ * of as many recurring events it hasn't read yet. A replacement further away from its recurring
+ * event in the file than that is reported as a conflict, as is the recurring event.
+ * <p>
+ * Times in UTC or with a known {@code TZID} are converted to the calendar's time zone. Other times
+ * are read as local times, the same as the times on the calendar.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230305
+ */
+public class ICalendarImporter {
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final int RECURRENCE_HORIZON_YEARS = 1;
+    private static final int MAX_REMEMBERED_SERIES = 1024;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final BufferedReader reader;
+    private final MyCalendar calendar;
+    private final ZoneId zone;
+    private final ImportResult result;
+    private final Map<String, RecurringEvent> recurringEventsByUid;
+    private final Map<String, ArrayList<LocalDate>> replacedDates;
+    private final StringBuilder line;
+    private String nextLine;
+    private long nextLineNumber;
+    private boolean lineTooLong;
+
+    // the VEVENT being read
+    private long recordLine;
+    private String recordError;
+    private String summary;
+    private String uid;
+    private String status;
+    private String rrule;
+    private String duration;
+    private Property dtStart;
+    private Property dtEnd;
+    private Property recurrenceId;
+    private final ArrayList<Property> exDates;
+
+    /**
+     * A property value and the parameters that change how it is read.
+     */
+    private static class Property {
+        private final String value;
+        private final String tzid;
+        private final boolean dateOnly;
+
+        /**
+         * Creates a {@code Property}.
+         * @param value     the value
+         * @param tzid      the {@code TZID} parameter, or null
+         * @param dateOnly  true if the {@code VALUE} parameter is {@code DATE}
+         */
+        private Property(String value, String tzid, boolean dateOnly) {
+            this.value = value;
+            this.tzid = tzid;
+            this.dateOnly = dateOnly;
+        }
+    }
+
+    /**
+     * Creates an {@code ICalendarImporter}.
+     * @param reader    the iCalendar file
+     * @param calendar  the calendar the events are added to
+     * @param zone      the time zone of the calendar
+     */
+    private ICalendarImporter(Reader reader, MyCalendar calendar, ZoneId zone) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+        this.calendar = calendar;
+        this.zone = zone;
+        result = new ImportResult();
+        recurringEventsByUid = recentlyUsed();
+        replacedDates = recentlyUsed();
+        line = new StringBuilder(128);
+        exDates = new ArrayList<>();
+    }
+
+    /**
+     * Creates a map by UID that forgets the entry used least recently once it holds more than
+     * {@value #MAX_REMEMBERED_SERIES} entries.
+     * @param <V>   the type of value
+     * @return      the map
+     */
+    private static <V> Map<String, V> recentlyUsed() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {return size() > MAX_REMEMBERED_SERIES;}
+        };
+    }
+
+    /**
+     * Reads an iCalendar file and adds its events to a calendar in the system time zone.
+     * @param file      the iCalendar file
+     * @param calendar  the calendar the events are added to
+     * @return          the number of events added and the records that couldn't be imported
+     * @throws IOException  if the file can't be read
+     */
+    public static ImportResult read(Path file, MyCalendar calendar) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, calendar, ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * Reads iCalendar data and adds its events to a calendar.
+     * @param reader    the iCalendar data, which is not closed
+     * @param calendar  the calendar the events are added to
+     * @param zone      the time zone of the calendar
+     * @return          the number of events added and the records that couldn't be imported
+     * @throws IOException  if the data can't be read
+     */
+    public static ImportResult read(Reader reader, MyCalendar calendar, ZoneId zone) throws IOException {
+        // listeners see the whole import as one batch of changes
+        calendar.beginBatch();
+        try {
+            return new ICalendarImporter(reader, calendar, zone).read();
+        } finally {
+            calendar.endBatch();
+        }
+    }
+
+    /**
+     * Reads every content line and adds each {@code VEVENT} as it ends.
+     * @return  the result of the import
+     * @throws IOException  if the data can't be read
+     */
+    private ImportResult read() throws IOException {
+        nextLine = reader.readLine();
+        nextLineNumber = 1;
+        boolean inEvent = false;
+        int nested = 0;     // components inside the VEVENT, such as VALARM
+        long lineNumber;
+        while (nextLine != null) {
+            lineNumber = nextLineNumber;
+            String contentLine = readUnfolded();
+            if (lineTooLong) {
+                if (inEvent && recordError == null) recordError = "line " + lineNumber + " is longer than 1 MB";
+                continue;
+            }
+            if (contentLine.isEmpty()) continue;
+            int colon = valueStart(contentLine);
+            if (colon < 0) {
+                if (inEvent && recordError == null) recordError = "line " + lineNumber + " has no value";
+                continue;
+            }
+            int nameEnd = contentLine.indexOf(';');
+            if (nameEnd < 0 || nameEnd > colon) nameEnd = colon;
+            String name = contentLine.substring(0, nameEnd).toUpperCase();
+            String value = contentLine.substring(colon + 1);
+
+            if (name.equals("BEGIN")) {
+                if (inEvent) nested++;
+                else if (value.equalsIgnoreCase("VEVENT")) {
+                    startRecord(lineNumber);
+                    inEvent = true;
+                }
+                continue;
+            }
+            if (name.equals("END")) {
+                if (inEvent && nested > 0) nested--;
+                else if (inEvent && value.equalsIgnoreCase("VEVENT")) {
+                    finishRecord();
+                    inEvent = false;
+                }
+                continue;
+            }
+            if (!inEvent || nested > 0) continue;
+
+            switch (name) {
+                case "SUMMARY" -> summary = unescape(value);
+                case "UID" -> uid = value;
+                case "STATUS" -> status = value;
+                case "RRULE" -> rrule = value;
+                case "DURATION" -> duration = value;
+                case "DTSTART" -> dtStart = property(contentLine, nameEnd, colon, value);
+                case "DTEND" -> dtEnd = property(contentLine, nameEnd, colon, value);
+                case "RECURRENCE-ID" -> recurrenceId = property(contentLine, nameEnd, colon, value);
+                case "EXDATE" -> exDates.add(property(contentLine, nameEnd, colon, value));
+                default -> {}
+            }
+        }
+        if (inEvent) result.error(recordLine, "the file ends inside a VEVENT");
+        return result;
+    }
+
+    /**
+     * Reads the next content line, joining the folded lines that continue it.
+     * Sets {@code lineTooLong} if the content line is longer than {@value #MAX_LINE_LENGTH} characters.
+     * @return  the content line
+     * @throws IOException  if the data can't be read
+     */
+    private String readUnfolded() throws IOException {
+        line.setLength(0);
+        lineTooLong = false;
+        append(nextLine, 0);
+        while (true) {
+            nextLine = reader.readLine();
+            nextLineNumber++;
+            if (nextLine == null || nextLine.isEmpty() || (nextLine.charAt(0) != ' ' && nextLine.charAt(0) != '\t')) break;
+            append(nextLine, 1);
+        }
+        return lineTooLong ? null : line.toString();
+    }
+
+    /**
+     * Adds part of a line to the content line unless it is already too long.
+     * @param part  the line
+     * @param from  the index of the first character to add
+     */
+    private void append(String part, int from) {
+        if (line.length() + part.length() - from > MAX_LINE_LENGTH) lineTooLong = true;
+        else line.append(part, from, part.length());
+    }
+
+    /**
+     * Finds the colon separating a property's name and parameters from its value.
+     * A colon inside a quoted parameter value doesn't count.
+     * @param contentLine   the content line
+     * @return              the index of the colon, or -1 if there is none
+     */
+    private static int valueStart(String contentLine) {
+        boolean quoted = false;
+        for (int i = 0; i < contentLine.length(); i++) {
+            char c = contentLine.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the {@code TZID} and {@code VALUE} parameters of a property.
+     * @param contentLine   the content line
+     * @param nameEnd       the index after the property name
+     * @param colon         the index of the colon before the value
+     * @param value         the value
+     * @return              the property
+     */
+    private static Property property(String contentLine, int nameEnd, int colon, String value) {
+        String tzid = null;
+        boolean dateOnly = false;
+        int start = nameEnd + 1;
+        while (start < colon) {
+            // find the end of this parameter, skipping semicolons inside quotes
+            int end = start;
+            boolean quoted = false;
+            while (end < colon && (quoted || contentLine.charAt(end) != ';')) {
+                if (contentLine.charAt(end) == '"') quoted = !quoted;
+                end++;
+            }
+            String parameter = contentLine.substring(start, end);
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                String key = parameter.substring(0, equals).toUpperCase();
+                String parameterValue = parameter.substring(equals + 1).replace("\"", "");
+                if (key.equals("TZID")) tzid = parameterValue;
+                else if (key.equals("VALUE")) dateOnly = parameterValue.equalsIgnoreCase("DATE");
+            }
+            start = end + 1;
+        }
+        return new Property(value.trim(), tzid, dateOnly);
+    }
+
+    /**
+     * Forgets the last {@code VEVENT} and starts reading a new one.
+     * @param lineNumber    the line the {@code VEVENT} starts on
+     */
+    private void startRecord(long lineNumber) {
+        recordLine = lineNumber;
+        recordError = null;
+        summary = null;
+        uid = null;
+        status = null;
+        rrule = null;
+        duration = null;
+        dtStart = null;
+        dtEnd = null;
+        recurrenceId = null;
+        exDates.clear();
+    }
+
+    /**
+     * Adds the {@code VEVENT} that was just read to the calendar, or reports why it can't be added.
+     */
+    private void finishRecord() {
+        try {
+            if (recordError != null) throw new DateTimeException(recordError);
+            if ("CANCELLED".equalsIgnoreCase(status)) return;
+            if (dtStart == null) throw new DateTimeException("the VEVENT has no DTSTART");
+
+            if (dtStart.dateOnly || dtStart.value.length() == 8) throw new DateTimeException("all-day events aren't supported");
+
+            LocalDateTime start = toLocal(dtStart);
+            LocalDateTime end;
+            if (dtEnd != null) end = toLocal(dtEnd);
+            else if (duration != null) end = start.plus(parseDuration(duration));
+            else end = start;
+
+            LocalDate date = start.toLocalDate();
+            int startMinute = start.getHour() * 60 + start.getMinute();
+            int endMinute;
+            if (end.toLocalDate().equals(date)) {
+                endMinute = end.getHour() * 60 + end.getMinute() + (end.getSecond() > 0 ? 1 : 0);
+            }
+            else if (end.toLocalDate().equals(date.plusDays(1)) && end.toLocalTime().equals(LocalTime.MIDNIGHT)) {
+                endMinute = 24 * 60;
+            }
+            else throw new DateTimeException("events lasting past midnight aren't supported");
+            TimeInterval timeInterval = new TimeInterval(startMinute, endMinute);
+            String name = summary == null ? "" : summary;
+
+            if (rrule != null) addRecurringEvent(name, date, timeInterval);
+            else addEvent(new Event(name, date, timeInterval));
+        } catch (DateTimeException | ArithmeticException e) {
+            result.error(recordLine, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a one time event. If it replaces a date of a recurring event, that date is deleted from
+     * the recurring event first.
+     * @param event the event
+     */
+    private void addEvent(Event event) {
+        if (recurrenceId != null && uid != null) {
+            LocalDate replaced = toLocal(recurrenceId).toLocalDate();
+            RecurringEvent recurringEvent = recurringEventsByUid.get(uid);
+            if (recurringEvent != null) calendar.excludeDate(recurringEvent, replaced);
+            // the recurring event hasn't been read yet, delete the date when it is
+            else replacedDates.computeIfAbsent(uid, key -> new ArrayList<>()).add(replaced);
+        }
+        if (calendar.add(event)) result.eventAdded();
+        else result.error(recordLine, "conflicts with an event on " + event.getStartDate());
+    }
+
+    /**
+     * Adds a recurring event from the {@code RRULE}, {@code EXDATE}s, and earlier replaced dates.
+     * @param name          the name of the event
+     * @param date          the date of the first occurrence
+     * @param timeInterval  the time of each occurrence
+     */
+    private void addRecurringEvent(String name, LocalDate date, TimeInterval timeInterval) {
+        String frequency = null;
+        int dayMask = 0;
+        LocalDate endDate = null;
+        int count = -1;
+        for (String part : rrule.split(";")) {
+            int equals = part.indexOf('=');
+            if (equals < 0) throw new DateTimeException("bad RRULE part " + part);
+            String key = part.substring(0, equals).toUpperCase();
+            String value = part.substring(equals + 1).toUpperCase();
+            switch (key) {
+                case "FREQ" -> frequency = value;
+                case "INTERVAL" -> {
+                    if (!value.equals("1")) throw new DateTimeException("only an RRULE INTERVAL of 1 is supported");
+                }
+                case "BYDAY" -> {
+                    for (String day : value.split(",")) dayMask |= RecurringEvent.dayBit(dayOfWeek(day));
+                }
+                case "UNTIL" -> {
+                    LocalDateTime until = toLocal(new Property(value, null, false));
+                    endDate = until.toLocalDate();
+                    // an occurrence on the last date only counts if it starts by UNTIL
+                    if (value.length() > 8 && until.getHour() * 60 + until.getMinute() < timeInterval.getStartMinute()) {
+                        endDate = endDate.minusDays(1);
+                    }
+                }
+                case "COUNT" -> {
+                    try {
+                        count = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new DateTimeException("bad RRULE COUNT " + value);
+                    }
+                    if (count < 1) throw new DateTimeException("bad RRULE COUNT " + value);
+                }
+                case "WKST" -> {}
+                default -> throw new DateTimeException("RRULE " + key + " isn't supported");
+            }
+        }
+        if ("DAILY".equals(frequency)) {
+            if (dayMask == 0) dayMask = RecurringEvent.ALL_DAYS;
+        }
+        else if ("WEEKLY".equals(frequency)) {
+            if (dayMask == 0) dayMask = RecurringEvent.dayBit(date.getDayOfWeek());
+        }
+        else throw new DateTimeException("only DAILY and WEEKLY rules are supported, not " + frequency);
+
+        if (count > 0) {
+            // walk forward to the date of the last occurrence
+            endDate = date;
+            for (int found = 0; ; endDate = endDate.plusDays(1)) {
+                if ((dayMask & RecurringEvent.dayBit(endDate.getDayOfWeek())) != 0 && ++found == count) break;
+            }
+        }
+        else if (endDate == null) endDate = date.plusYears(RECURRENCE_HORIZON_YEARS);
+
+        if (!endDate.isAfter(date)) {
+            // a rule with a single occurrence is a one time event
+            if (endDate.equals(date) && (dayMask & RecurringEvent.dayBit(date.getDayOfWeek())) != 0) {
+                addEvent(new Event(name, date, timeInterval));
+            }
+            else throw new DateTimeException("the RRULE has no occurrences");
+            return;
+        }
+
+        RecurringEvent event = new RecurringEvent(name, RecurringEvent.convertDayMaskToDays(dayMask), date, endDate,
+                timeInterval.getStart(), timeInterval.getEnd());
+        ArrayList<LocalDate> excludedDates = new ArrayList<>();
+        for (Property exDate : exDates) {
+            for (String value : exDate.value.split(",")) {
+                excludedDates.add(toLocal(new Property(value.trim(), exDate.tzid, exDate.dateOnly)).toLocalDate());
+            }
+        }
+        if (uid != null) {
+            ArrayList<LocalDate> replaced = replacedDates.remove(uid);
+            if (replaced != null) excludedDates.addAll(replaced);
+        }
+        if (calendar.add(event, excludedDates)) {
+            result.recurringEventAdded();
+            if (uid != null) recurringEventsByUid.put(uid, event);
+        }
+        else result.error(recordLine, "conflicts with an event between " + event.getStartDate() + " and " + event.getEndDate());
+    }
+
+    /**
+     * Converts a date or date-time value to a local date and time in the calendar's time zone.
+     * @param property  the property
+     * @return          the local date and time, midnight for a date
+     * @throws DateTimeException    if the value isn't a date or date-time
+     */
+    private LocalDateTime toLocal(Property property) {
+        String value = property.value;
+        if (property.dateOnly || value.length() == 8) return LocalDate.parse(value, DATE).atStartOfDay();
+        boolean utc = value.endsWith("Z") || value.endsWith("z");
+        LocalDateTime time = LocalDateTime.parse(utc ? value.substring(0, value.length() - 1) : value, DATE_TIME);
+        if (utc) return time.atOffset(ZoneOffset.UTC).atZoneSameInstant(zone).toLocalDateTime();
+        if (property.tzid != null) {
+            try {
+                return time.atZone(ZoneId.of(property.tzid)).withZoneSameInstant(zone).toLocalDateTime();
+            } catch (DateTimeException e) {
+                // a zone Java doesn't know, such as a Windows zone name, is read as a local time
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Parses an iCalendar duration, such as {@code PT1H30M} or {@code P1W}.
+     * @param value the duration
+     * @return      the duration
+     * @throws DateTimeException    if the value isn't a duration
+     */
+    private static Duration parseDuration(String value) {
+        String upper = value.toUpperCase();
+        int weeks = upper.indexOf('W');
+        if (weeks > 0) {
+            try {
+                boolean negative = upper.startsWith("-");
+                Duration duration = Duration.ofDays(7L * Integer.parseInt(upper.substring(negative || upper.startsWith("+") ? 2 : 1, weeks)));
+                return negative ? duration.negated() : duration;
+            } catch (NumberFormatException e) {
+                throw new DateTimeException("bad DURATION " + value);
+            }
+        }
+        return Duration.parse(upper);
+    }
+
+    /**
+     * Gets the day of the week of an iCalendar day abbreviation, such as {@code MO}.
+     * @param day   the abbreviation
+     * @return      the day of the week
+     * @throws DateTimeException    if the abbreviation isn't a day or has a number in front of it
+     */
+    private static DayOfWeek dayOfWeek(String day) {
+        return switch (day.trim()) {
+            case "MO" -> DayOfWeek.MONDAY;
+            case "TU" -> DayOfWeek.TUESDAY;
+            case "WE" -> DayOfWeek.WEDNESDAY;
+            case "TH" -> DayOfWeek.THURSDAY;
+            case "FR" -> DayOfWeek.FRIDAY;
+            case "SA" -> DayOfWeek.SATURDAY;
+            case "SU" -> DayOfWeek.SUNDAY;
+            default -> throw new DateTimeException("BYDAY " + day + " isn't supported");
+        };
+    }
+
+    /**
+     * Removes the escapes from an iCalendar text value. A newline becomes a space, since a name is one line.
+     * @param value the text value
+     * @return      the text
+     */
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) return value;
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                text.append(escaped == 'n' || escaped == 'N' ? ' ' : escaped);
+            }
+            else text.append(c);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package calendar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of importing a file with {@code ICalendarImporter} or loading one with
+ * {@code ParallelEventLoader}. A record that couldn't be imported doesn't stop the import; it is counted and, for the first
+ * {@value #MAX_ERRORS} records, kept with the line it started on and what was wrong with it.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230305
+ */
+public class ImportResult {
+    public static final int MAX_ERRORS = 1000;
+
+    private final ArrayList<RecordError> errors;
+    private int eventsAdded;
+    private int recurringEventsAdded;
+    private int errorCount;
+
+    /**
+     * A record that couldn't be imported.
+     */
+    public static class RecordError {
+        private final long line;
+        private final String message;
+
+        /**
+         * Creates a {@code RecordError}.
+         * @param line      the line the record starts on
+         * @param message   what was wrong with the record
+         */
+        RecordError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * Gets the line the record starts on.
+         * @return  the line number, starting from 1
+         */
+        public long getLine() {return line;}
+
+        /**
+         * Gets what was wrong with the record.
+         * @return  the message
+         */
+        public String getMessage() {return message;}
+
+        /**
+         * Outputs {@code RecordError} as a String, such as {@code line 12: bad DTSTART}
+         * @return  a String of {@code RecordError}
+         */
+        @Override
+        public String toString() {return "line " + line + ": " + message;}
+    }
+
+    /**
+     * Creates an empty {@code ImportResult}.
+     */
+    ImportResult() {
+        errors = new ArrayList<>();
+    }
+
+    /**
+     * Counts a one time event that was added.
+     */
+    void eventAdded() {eventsAdded++;}
+
+    /**
+     * Counts a recurring event that was added.
+     */
+    void recurringEventAdded() {recurringEventsAdded++;}
+
+    /**
+     * Counts a record that couldn't be imported.
+     * @param line      the line the record starts on
+     * @param message   what was wrong with the record
+     */
+    void error(long line, String message) {
+        if (errors.size() < MAX_ERRORS) errors.add(new RecordError(line, message));
+        errorCount++;
+    }
+
+    /**
+     * Gets the number of one time events added to the calendar.
+     * @return  the number of events
+     */
+    public int getEventsAdded() {return eventsAdded;}
+
+    /**
+     * Gets the number of recurring events added to the calendar.
+     * @return  the number of recurring events
+     */
+    public int getRecurringEventsAdded() {return recurringEventsAdded;}
+
+    /**
+     * Gets the number of records that couldn't be imported, including those that conflicted with an event.
+     * @return  the number of records
+     */
+    public int getErrorCount() {return errorCount;}
+
+    /**
+     * Gets the first {@value #MAX_ERRORS} records that couldn't be imported.
+     * @return  a read-only list of the errors in file order
+     */
+    public List<RecordError> getErrors() {return Collections.unmodifiableList(errors);}
+
+    /**
+     * Outputs {@code ImportResult} as a String, such as {@code 120 events, 4 recurring events, 2 errors}
+     * @return  a String of {@code ImportResult}
+     */
+    @Override
+    public String toString() {
+        return eventsAdded + " events, " + recurringEventsAdded + " recurring events, " + errorCount + " errors";
+    }
+}
@@ -0,0 +1,139 @@
+package calendar;
+
+import calendar.CalendarMetrics.Operation;
+
+/**
+ * A copy of the metrics of a {@code MyCalendar} taken at one moment.
+ * Each operation is copied separately, so an operation finishing while the snapshot is taken may
+ * be in one count and not another.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230308
+ */
+public class MetricsSnapshot {
+    private final long[] counts;
+    private final long[] totalNanos;
+    private final long[] maxNanos;
+    private final long[][] bucketCounts;
+    private final long rejectionCount;
+    private final int eventCount;
+    private final int populatedDays;
+    private final int recurringEventCount;
+
+    /**
+     * Creates a {@code MetricsSnapshot}.
+     * @param operations            the metrics of each operation, in order of {@code Operation}
+     * @param rejectionCount        the number of events rejected for conflicting
+     * @param eventCount            the number of one time events
+     * @param populatedDays         the number of days with a one time event
+     * @param recurringEventCount   the number of recurring events
+     */
+    MetricsSnapshot(OperationMetrics[] operations, long rejectionCount,
+                    int eventCount, int populatedDays, int recurringEventCount) {
+        counts = new long[operations.length];
+        totalNanos = new long[operations.length];
+        maxNanos = new long[operations.length];
+        bucketCounts = new long[operations.length][];
+        for (int i = 0; i < operations.length; i++) {
+            counts[i] = operations[i].getCount();
+            totalNanos[i] = operations[i].getTotalNanos();
+            maxNanos[i] = operations[i].getMaxNanos();
+            bucketCounts[i] = operations[i].bucketCounts();
+        }
+        this.rejectionCount = rejectionCount;
+        this.eventCount = eventCount;
+        this.populatedDays = populatedDays;
+        this.recurringEventCount = recurringEventCount;
+    }
+
+    /**
+     * Gets the number of times an operation was done.
+     * @param operation the operation
+     * @return          the count
+     */
+    public long getCount(Operation operation) {return counts[operation.ordinal()];}
+
+    /**
+     * Gets the average latency of an operation.
+     * @param operation the operation
+     * @return          the mean in nanoseconds, or 0 if it was never done
+     */
+    public long getMeanNanos(Operation operation) {
+        long count = getCount(operation);
+        return count == 0 ? 0 : totalNanos[operation.ordinal()] / count;
+    }
+
+    /**
+     * Gets the longest latency of an operation.
+     * @param operation the operation
+     * @return          the maximum in nanoseconds
+     */
+    public long getMaxNanos(Operation operation) {return maxNanos[operation.ordinal()];}
+
+    /**
+     * Gets a percentile of the latencies of an operation. The result is at most an eighth above
+     * the true percentile.
+     * @param operation     the operation
+     * @param percentile    the percentile, from 0 to 100
+     * @return              the percentile in nanoseconds, or 0 if it was never done
+     * @throws IllegalArgumentException if the percentile isn't between 0 and 100
+     */
+    public long getPercentileNanos(Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("percentile must be between 0 and 100");
+        return OperationMetrics.percentileOf(bucketCounts[operation.ordinal()], percentile, getMaxNanos(operation));
+    }
+
+    /**
+     * Gets the number of events that weren't added because they conflicted with an event.
+     * @return  the number of rejected events
+     */
+    public long getRejectionCount() {return rejectionCount;}
+
+    /**
+     * Gets the number of one time events on the calendar.
+     * @return  the number of events
+     */
+    public int getEventCount() {return eventCount;}
+
+    /**
+     * Gets the number of days with at least one one time event.
+     * @return  the number of days
+     */
+    public int getPopulatedDays() {return populatedDays;}
+
+    /**
+     * Gets the number of recurring events on the calendar.
+     * @return  the number of recurring events
+     */
+    public int getRecurringEventCount() {return recurringEventCount;}
+
+    /**
+     * Outputs {@code MetricsSnapshot} as a String, with the events on the calendar on the first
+     * line and then a line for each operation that was done, such as
+     * {@code add: 120 calls, mean 2.1 us, median 1.9 us, p99 8.4 us, max 40.2 us}
+     * @return  a String of {@code MetricsSnapshot}
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(eventCount).append(" events on ").append(populatedDays).append(" days, ")
+                .append(recurringEventCount).append(" recurring events, ")
+                .append(rejectionCount).append(" rejected\n");
+        for (Operation operation : Operation.values()) {
+            if (getCount(operation) == 0) continue;
+            stringBuilder.append(operation.getDisplayName()).append(": ")
+                    .append(getCount(operation)).append(" calls, mean ")
+                    .append(micros(getMeanNanos(operation))).append(", median ")
+                    .append(micros(getPercentileNanos(operation, 50))).append(", p99 ")
+                    .append(micros(getPercentileNanos(operation, 99))).append(", max ")
+                    .append(micros(getMaxNanos(operation))).append('\n');
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Formats a latency in microseconds.
+     * @param nanos the latency in nanoseconds
+     * @return      the latency, such as {@code 2.1 us}
+     */
+    private static String micros(long nanos) {return String.format("%.1f us", nanos / 1000.0);}
+}
@@ -1,9 +1,27 @@
 package calendar;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Personal implementation of a Calendar similar to one that might be seen
@@ -14,10 +32,25 @@ import java.util.TreeSet;
  * @version 1.0.3.230216
  */
 public class MyCalendar {
-    private final HashMap<LocalDate, TreeSet<Event>> events;
-    private final TreeSet<RecurringEvent> recurringEventsList;
+    private static final DateTimeFormatter MONTH_YEAR = DateTimeFormatter.ofPattern("MMM yyyy");
+    private static final String[] PLAIN_CELLS = dayCells(' ', ' ');
+    private static final String[] EVENT_CELLS = dayCells('{', '}');
+    private static final String[] TODAY_CELLS = dayCells('[', ']');
+    private static final int MAX_MONTH_VIEWS = 24;
+
+    private final DayIndex events;
+    private final RecurringIndex recurringEvents;
     private final TreeSet<Event> oneTimeEventsList;
+    private final NameTable names;
+    private final HashMap<Integer, ArrayList<Event>> oneTimeEventsByName;
+    private final HashMap<Integer, ArrayList<RecurringEvent>> recurringEventsByName;
+    private final ArrayList<CalendarListener> listeners;
+    private final LinkedHashMap<YearMonth, String> monthViews;
+    private final TreeSet<YearMonth> dirtyMonths;
+    private boolean recurringDirty;
+    private int batchDepth;
     private final LocalDate today;
+    private CalendarMetrics metrics;
     private LocalDate firstDay;
     private LocalDate selectedDay;
     private int lastDay;
@@ -28,9 +61,18 @@ public class MyCalendar {
      * month.
      */
     public MyCalendar() {
-        events = new HashMap<>();
-        recurringEventsList = new TreeSet<>(Event.DATE_TIME_ORDER);
+        events = new DayIndex();
+        recurringEvents = new RecurringIndex();
         oneTimeEventsList = new TreeSet<>(Event.DATE_TIME_ORDER);
+        names = new NameTable();
+        oneTimeEventsByName = new HashMap<>();
+        recurringEventsByName = new HashMap<>();
+        listeners = new ArrayList<>();
+        monthViews = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<YearMonth, String> eldest) {return size() > MAX_MONTH_VIEWS;}
+        };
+        dirtyMonths = new TreeSet<>();
         today = LocalDate.now();
         selectedDay = today;
         firstDay = LocalDate.of(today.getYear(), today.getMonth(), 1);
@@ -47,7 +89,91 @@ public class MyCalendar {
      * Gets an {@code ArrayList} of {@code RecurringEvent}.
      * @return  the {@code ArrayList}
      */
-    public TreeSet<RecurringEvent> getRecurringEventsList() {return  recurringEventsList;}
+    public TreeSet<RecurringEvent> getRecurringEventsList() {return recurringEvents.getRecurringEvents();}
+
+    /**
+     * Gets the dates deleted from a {@code RecurringEvent} on {@code MyCalendar}.
+     * @param event the recurring event
+     * @return      a read-only view of the deleted dates in order
+     */
+    public NavigableSet<LocalDate> getExcludedDates(RecurringEvent event) {return recurringEvents.getExcludedDates(event);}
+
+    /**
+     * Gets the recurring events and their deleted dates.
+     * @return  the index of the recurring events
+     */
+    RecurringIndex recurringIndex() {return recurringEvents;}
+
+    /**
+     * Gets the names of the events on the calendar, by the id each event keeps.
+     * @return  the name table of the calendar
+     */
+    NameTable nameTable() {return names;}
+
+    /**
+     * Adds a {@code CalendarListener} that is told about every change to {@code MyCalendar}.
+     * @param listener  the listener
+     */
+    public void addListener(CalendarListener listener) {listeners.add(listener);}
+
+    /**
+     * Removes a {@code CalendarListener}.
+     * @param listener  the listener
+     */
+    public void removeListener(CalendarListener listener) {listeners.remove(listener);}
+
+    /**
+     * Starts a batch of changes, so listeners can treat them as one, such as sending one
+     * notification for a whole file. Batches can be nested, and listeners only see the outermost one.
+     * Every call must be matched by a call to {@link #endBatch()}.
+     */
+    public void beginBatch() {
+        if (batchDepth++ == 0) {
+            for (CalendarListener listener : listeners) listener.batchStarted();
+        }
+    }
+
+    /**
+     * Ends a batch of changes started with {@link #beginBatch()}.
+     * @throws IllegalStateException    if no batch was started
+     */
+    public void endBatch() {
+        if (batchDepth == 0) throw new IllegalStateException("no batch was started");
+        if (--batchDepth == 0) {
+            for (CalendarListener listener : listeners) listener.batchEnded();
+        }
+    }
+
+    /**
+     * Turns on counting and timing of the operations done on {@code MyCalendar}.
+     * Calling it again returns the same metrics.
+     * @return  the metrics
+     */
+    public CalendarMetrics enableMetrics() {
+        if (metrics == null) metrics = new CalendarMetrics(this);
+        return metrics;
+    }
+
+    /**
+     * Gets the metrics of {@code MyCalendar}.
+     * @return  the metrics, or null if they were never turned on
+     */
+    public CalendarMetrics getMetrics() {return metrics;}
+
+    /**
+     * Starts timing an operation.
+     * @return  the current time in nanoseconds, or 0 if metrics are off
+     */
+    long startTimer() {return metrics == null ? 0 : System.nanoTime();}
+
+    /**
+     * Records an operation that was timed with {@link #startTimer()}.
+     * @param operation the operation
+     * @param start     the time returned by {@code startTimer}
+     */
+    void stopTimer(CalendarMetrics.Operation operation, long start) {
+        if (metrics != null) metrics.record(operation, System.nanoTime() - start);
+    }
 
     /**
      * Adds a {@code OneTimeEvent} to the event list. If the event conflicts with an existing event
@@ -56,45 +182,361 @@ public class MyCalendar {
      * @return          true if the event is successfully added and false if it conflicts with an event
      */
     public boolean add(Event newEvent) {
-        // grab the eventList for this date
-        TreeSet<Event> eventList = events.get(newEvent.getStartDate());
-
-        // if there is an event list for this date
-        // go through each event to make sure the event TimeInterval isn't conflicting
-        if (eventList != null) {
-            for (Event event : eventList) {
-                // the eventTimeInterval is conflicting, don't add the event
-                if (newEvent.getTimeInterval().isConflicting(event.getTimeInterval())) {
-                    return false;   // the event is conflicting, don't add it
+        long start = startTimer();
+        // the event is conflicting, don't add it
+        boolean added = !hasConflict(newEvent);
+        if (added) {
+            newEvent.internName(names);
+            events.add(newEvent);                               // add event to the events on this date
+            oneTimeEventsList.add(newEvent);                    // add event to oneTimeEvents list
+            oneTimeEventsByName.computeIfAbsent(newEvent.getNameId(), id -> new ArrayList<>()).add(newEvent);
+            invalidateMonth(newEvent.getStartDate());
+            dirtyMonths.add(YearMonth.from(newEvent.getStartDate()));
+            for (CalendarListener listener : listeners) listener.eventAdded(newEvent);
+        }
+        else if (metrics != null) metrics.rejected();
+        stopTimer(CalendarMetrics.Operation.ADD, start);
+        return added;
+    }
+
+    /**
+     * Checks if a {@code OneTimeEvent} conflicts with any event on its date.
+     * @param newEvent  the event being checked
+     * @return          true if it conflicts with an event
+     */
+    private boolean hasConflict(Event newEvent) {
+        if (events.hasConflict(newEvent.getStartDate().toEpochDay(), newEvent.getTimeInterval())) return true;
+        return recurringEvents.anyOn(newEvent.getStartDate(),
+                recurringEvent -> recurringEvent.getTimeInterval().isConflicting(newEvent.getTimeInterval()));
+    }
+
+    /**
+     * Adds a {@code RecurringEvent} to the calendar. If any of its dates conflicts with an
+     * existing event the {@code RecurringEvent} is not added at all.
+     * The dates of the event are not stored, they are worked out when a day is displayed.
+     * @param newEvent  the event being added
+     * @return          true if the event is successfully added and false if it conflicts with an event
+     */
+    public boolean add(RecurringEvent newEvent) {return add(newEvent, Collections.emptySet());}
+
+    /**
+     * Adds a {@code RecurringEvent} with some of its dates already deleted, such as one read from a file
+     * with its exceptions. The deleted dates aren't checked for conflicts.
+     * @param newEvent      the event being added
+     * @param excludedDates the dates deleted from the event
+     * @return              true if the event is successfully added and false if it conflicts with an event
+     */
+    public boolean add(RecurringEvent newEvent, Collection<LocalDate> excludedDates) {
+        long start = startTimer();
+        Set<LocalDate> excluded = excludedDates.isEmpty() ? Collections.emptySet() : new HashSet<>(excludedDates);
+        boolean added = findConflicts(newEvent, excluded).isEmpty();
+        if (added) {
+            newEvent.internName(names);
+            recurringEvents.add(newEvent, excludedDates);
+            recurringEventsByName.computeIfAbsent(newEvent.getNameId(), id -> new ArrayList<>()).add(newEvent);
+            invalidateMonths(newEvent);
+            recurringDirty = true;
+            for (CalendarListener listener : listeners) listener.recurringEventAdded(newEvent);
+        }
+        else if (metrics != null) metrics.rejected();
+        stopTimer(CalendarMetrics.Operation.ADD_RECURRING, start);
+        return added;
+    }
+
+    /**
+     * Adds many {@code OneTimeEvent}s at once. The events are grouped by date and sorted by start
+     * time, so the recurring events on a date are only looked up once for the whole group.
+     * When events in the batch conflict with each other the one starting first is added.
+     * @param newEvents the events being added
+     * @return          the result for each event, in the same order as {@code newEvents}
+     */
+    public ArrayList<AddResult> addAll(Collection<Event> newEvents) {
+        ArrayList<AddResult> results = new ArrayList<>(newEvents.size());
+        for (Event newEvent : newEvents) results.add(new AddResult(newEvent, new ArrayList<>()));
+        ArrayList<AddResult> sorted = new ArrayList<>(results);
+        sorted.sort((r1, r2) -> Event.DATE_TIME_ORDER.compare(r1.getEvent(), r2.getEvent()));
+
+        // listeners see the whole batch as one change
+        beginBatch();
+        try {
+            LocalDate date = null;
+            ArrayList<RecurringEvent> recurringOnDate = null;
+            for (AddResult result : sorted) {
+                Event newEvent = result.getEvent();
+                if (!newEvent.getStartDate().equals(date)) {
+                    // a new date, find the recurring events on it once
+                    date = newEvent.getStartDate();
+                    recurringOnDate = recurringEvents.on(date);
+                    invalidateMonth(date);
                 }
+
+                // events accepted earlier in the batch are already in the day index
+                ArrayList<Event> conflicts = result.getConflicts();
+                events.collectConflicts(date.toEpochDay(), newEvent.getTimeInterval(), conflicts);
+                for (RecurringEvent recurringEvent : recurringOnDate) {
+                    if (recurringEvent.getTimeInterval().isConflicting(newEvent.getTimeInterval())) conflicts.add(recurringEvent);
+                }
+                if (!conflicts.isEmpty()) {
+                    if (metrics != null) metrics.rejected();
+                    continue;
+                }
+
+                newEvent.internName(names);
+                events.add(newEvent);
+                oneTimeEventsList.add(newEvent);
+                oneTimeEventsByName.computeIfAbsent(newEvent.getNameId(), id -> new ArrayList<>()).add(newEvent);
+                dirtyMonths.add(YearMonth.from(date));
+                for (CalendarListener listener : listeners) listener.eventAdded(newEvent);
             }
+        } finally {
+            endBatch();
         }
-        // there isn't an eventList for this date, create a new one
-        else {
-            eventList = new TreeSet<>(Event.START_TIME_ORDER);
+        return results;
+    }
+
+    /**
+     * Adds many {@code RecurringEvent}s at once. The events are added in order of their first date,
+     * so when events in the batch conflict with each other the one starting first is added.
+     * @param newEvents the events being added
+     * @return          the result for each event, in the same order as {@code newEvents}
+     */
+    public ArrayList<AddResult> addAllRecurring(Collection<RecurringEvent> newEvents) {
+        ArrayList<AddResult> results = new ArrayList<>(newEvents.size());
+        for (RecurringEvent newEvent : newEvents) results.add(new AddResult(newEvent, new ArrayList<>()));
+        ArrayList<AddResult> sorted = new ArrayList<>(results);
+        sorted.sort((r1, r2) -> Event.DATE_TIME_ORDER.compare(r1.getEvent(), r2.getEvent()));
+
+        // listeners see the whole batch as one change
+        beginBatch();
+        try {
+            for (AddResult result : sorted) {
+                RecurringEvent newEvent = (RecurringEvent) result.getEvent();
+                result.getConflicts().addAll(findConflicts(newEvent));
+                if (!result.isAccepted()) {
+                    if (metrics != null) metrics.rejected();
+                    continue;
+                }
+                newEvent.internName(names);
+                recurringEvents.add(newEvent);
+                recurringEventsByName.computeIfAbsent(newEvent.getNameId(), id -> new ArrayList<>()).add(newEvent);
+                invalidateMonths(newEvent);
+                recurringDirty = true;
+                for (CalendarListener listener : listeners) listener.recurringEventAdded(newEvent);
+            }
+        } finally {
+            endBatch();
         }
+        return results;
+    }
 
-        eventList.add(newEvent);                            // add event to eventList for this date
-        oneTimeEventsList.add(newEvent);                    // add event to oneTimeEvents list
-        events.put(newEvent.getStartDate(), eventList);     // add event to events list
-        return true;
+    /**
+     * Adds a {@code OneTimeEvent} that is already known not to conflict with any event,
+     * such as one read back from a snapshot of a calendar.
+     * @param newEvent  the event being added
+     */
+    void addUnchecked(Event newEvent) {
+        newEvent.internName(names);
+        events.add(newEvent);
+        oneTimeEventsList.add(newEvent);
+        oneTimeEventsByName.computeIfAbsent(newEvent.getNameId(), id -> new ArrayList<>()).add(newEvent);
+        invalidateMonth(newEvent.getStartDate());
     }
 
     /**
-     * Adds a {@code RecurringEvent} to the calendar.
+     * Adds a {@code RecurringEvent} that is already known not to conflict with any event.
      * @param newEvent  the event being added
      */
-    public void add(RecurringEvent newEvent) {
-        // for every date the event recurs on, add it to the calendar
-        for (LocalDate date : newEvent.getDates()) {
-            TreeSet<Event> eventList = events.get(date);
-            if (eventList == null) {
-                eventList = new TreeSet<>(Event.START_TIME_ORDER);
+    void addUnchecked(RecurringEvent newEvent) {addUnchecked(newEvent, Collections.emptySet());}
+
+    /**
+     * Adds a {@code RecurringEvent} with some of its dates already deleted that is already known not
+     * to conflict with any event, such as one read back from a snapshot of a calendar.
+     * @param newEvent      the event being added
+     * @param excludedDates the dates deleted from the event
+     */
+    void addUnchecked(RecurringEvent newEvent, Collection<LocalDate> excludedDates) {
+        newEvent.internName(names);
+        recurringEvents.add(newEvent, excludedDates);
+        recurringEventsByName.computeIfAbsent(newEvent.getNameId(), id -> new ArrayList<>()).add(newEvent);
+        invalidateMonths(newEvent);
+    }
+
+    /**
+     * Finds the events that conflict with an {@code Event} on its date.
+     * @param event the event being checked
+     * @return      the conflicting events, empty if there are none
+     */
+    public ArrayList<Event> findConflicts(Event event) {
+        ArrayList<Event> conflicts = new ArrayList<>();
+        events.collectConflicts(event.getStartDate().toEpochDay(), event.getTimeInterval(), conflicts);
+        recurringEvents.collectConflicts(event, conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Finds the events that conflict with any of the dates of a {@code RecurringEvent}.
+     * @param event the event being checked
+     * @return      the conflicting events, empty if there are none
+     */
+    public ArrayList<Event> findConflicts(RecurringEvent event) {return findConflicts(event, Collections.emptySet());}
+
+    /**
+     * Finds the events that conflict with any of the dates of a {@code RecurringEvent} that weren't deleted.
+     * @param event         the event being checked
+     * @param excludedDates the dates deleted from the event
+     * @return              the conflicting events, empty if there are none
+     */
+    private ArrayList<Event> findConflicts(RecurringEvent event, Set<LocalDate> excludedDates) {
+        ArrayList<Event> conflicts = new ArrayList<>();
+        TimeInterval timeInterval = event.getTimeInterval();
+
+        // look up each date of the event in the day index, unless fewer days have events than that
+        long weeks = (event.getEndDate().toEpochDay() - event.getStartDate().toEpochDay()) / 7 + 1;
+        if (weeks * Integer.bitCount(event.getDayMask()) <= events.size()) {
+            for (LocalDate date = event.getStartDate(); date != null; date = event.nextOccurrence(date.plusDays(1))) {
+                if (!excludedDates.contains(date)) events.collectConflicts(date.toEpochDay(), timeInterval, conflicts);
+            }
+        }
+        else {
+            for (Event oneTimeEvent : oneTimeEventsBetween(event.getStartDate(), event.getEndDate())) {
+                if (event.occursOn(oneTimeEvent.getStartDate()) && !excludedDates.contains(oneTimeEvent.getStartDate())
+                        && timeInterval.isConflicting(oneTimeEvent.getTimeInterval())) {
+                    conflicts.add(oneTimeEvent);
+                }
             }
-            eventList.add(newEvent);
-            events.put(date, eventList);
         }
-        recurringEventsList.add(newEvent);
+        recurringEvents.collectConflicts(event, excludedDates, conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Finds every event with a name, using an index of the events by name.
+     * @param name  the name of the events
+     * @return      the one time events with that name in the order they were added,
+     *              followed by the recurring events with that name
+     */
+    public ArrayList<Event> findByName(String name) {
+        int nameId = names.find(name);
+        ArrayList<Event> found = new ArrayList<>(oneTimeEventsByName.getOrDefault(nameId, new ArrayList<>()));
+        found.addAll(recurringEventsByName.getOrDefault(nameId, new ArrayList<>()));
+        return found;
+    }
+
+    /**
+     * Streams every event taking place between two dates in order of date and start time.
+     * Each date of a {@code RecurringEvent} is returned as its own {@code Event} on that date.
+     * The dates of recurring events are worked out as the stream reaches them, so no list of the
+     * events is built. {@code MyCalendar} must not be changed while the stream is being used.
+     * @param from  the first date, inclusive
+     * @param to    the last date, inclusive
+     * @return      a stream of the events
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+    public Stream<Event> query(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        Iterator<Event> iterator = new OccurrenceIterator(oneTimeEventsBetween(from, to), recurringEvents, from, to);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Finds every free period between two dates that fits an event of a certain length inside a
+     * window of each day, such as 30 minutes between 9:00 and 17:00.
+     * @param from          the first date, inclusive
+     * @param to            the last date, inclusive
+     * @param length        the shortest free period wanted
+     * @param windowStart   the earliest time of day a free period can start
+     * @param windowEnd     the latest time of day a free period can end
+     * @return              the free periods in order of date and time
+     * @throws IllegalArgumentException if {@code length} isn't positive, {@code windowStart} isn't before
+     *                                  {@code windowEnd}, or {@code from} is after {@code to}
+     */
+    public ArrayList<TimeSlot> findFreeSlots(LocalDate from, LocalDate to, Duration length,
+                                             LocalTime windowStart, LocalTime windowEnd) {
+        return findFreeSlots(from, to, length, windowStart, windowEnd, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the first free periods between two dates that fit an event of a certain length inside a
+     * window of each day. The search stops as soon as {@code limit} periods are found.
+     * @param from          the first date, inclusive
+     * @param to            the last date, inclusive
+     * @param length        the shortest free period wanted
+     * @param windowStart   the earliest time of day a free period can start
+     * @param windowEnd     the latest time of day a free period can end
+     * @param limit         the most free periods to find
+     * @return              the free periods in order of date and time
+     * @throws IllegalArgumentException if {@code length} isn't positive, {@code windowStart} isn't before
+     *                                  {@code windowEnd}, or {@code from} is after {@code to}
+     */
+    public ArrayList<TimeSlot> findFreeSlots(LocalDate from, LocalDate to, Duration length,
+                                             LocalTime windowStart, LocalTime windowEnd, int limit) {
+        if (length.isNegative() || length.isZero()) throw new IllegalArgumentException("length must be positive");
+        if (!windowStart.isBefore(windowEnd)) throw new IllegalArgumentException("windowStart must be before windowEnd");
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        ArrayList<TimeSlot> slots = new ArrayList<>();
+        if (Duration.between(windowStart, windowEnd).compareTo(length) < 0) return slots;
+        Iterator<Event> occurrences = query(from, to).iterator();
+        long lengthNanos = length.toNanos();
+
+        Event next = occurrences.hasNext() ? occurrences.next() : null;
+        for (LocalDate date = from; !date.isAfter(to) && slots.size() < limit; date = date.plusDays(1)) {
+            LocalTime free = windowStart;   // start of the current free period
+            // events on a date never overlap and arrive in start order, so one pass finds every gap
+            while (next != null && next.getStartDate().equals(date)) {
+                TimeInterval busy = next.getTimeInterval();
+                LocalTime end = busy.getStart().isBefore(windowEnd) ? busy.getStart() : windowEnd;
+                if (slots.size() < limit) addFreeSlot(slots, date, free, end, lengthNanos);
+                if (busy.getEnd().isAfter(free)) free = busy.getEnd();
+                next = occurrences.hasNext() ? occurrences.next() : null;
+            }
+            if (slots.size() < limit) addFreeSlot(slots, date, free, windowEnd, lengthNanos);
+        }
+        return slots;
+    }
+
+    /**
+     * Adds a free period to a list if it is long enough.
+     * @param slots         the free periods found so far
+     * @param date          the date of the period
+     * @param start         the start of the period
+     * @param end           the end of the period
+     * @param lengthNanos   the shortest period wanted in nanoseconds
+     */
+    private static void addFreeSlot(ArrayList<TimeSlot> slots, LocalDate date, LocalTime start, LocalTime end,
+                                    long lengthNanos) {
+        if (end.toNanoOfDay() - start.toNanoOfDay() >= lengthNanos) {
+            slots.add(new TimeSlot(date, new TimeInterval(start, end)));
+        }
+    }
+
+    /**
+     * Gets the one time events taking place between two dates.
+     * @param from  the first date, inclusive
+     * @param to    the last date, inclusive
+     * @return      a view of the one time events sorted by start date and time
+     */
+    NavigableSet<Event> oneTimeEventsBetween(LocalDate from, LocalDate to) {
+        return oneTimeEventsList.subSet(new Event(from), true, new Event(to.plusDays(1)), false);
+    }
+
+    /**
+     * Gets the one time events on a date straight from the day index.
+     * @param date  the date
+     * @return      a read-only view of the events sorted by start time
+     */
+    List<Event> oneTimeEventsOn(LocalDate date) {return events.eventsOn(date.toEpochDay());}
+
+    /**
+     * Gets every event taking place on a date, including the dates of recurring events.
+     * @param date  the date
+     * @return      the events sorted by start time
+     */
+    public TreeSet<Event> eventsOn(LocalDate date) {
+        TreeSet<Event> eventList = new TreeSet<>(Event.START_TIME_ORDER);
+        eventList.addAll(events.eventsOn(date.toEpochDay()));
+        eventList.addAll(recurringEvents.on(date));
+        return eventList;
     }
 
     /**
@@ -142,15 +584,18 @@ public class MyCalendar {
     }
 
     /**
-     * Outputs a String of the event list.
+     * Outputs a String of the event list. With no one time events, the list of them is left empty.
      * @return  String of the events list
      */
     public String displayEventsList() {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("One Time Events:\n");
-        LocalDate date = oneTimeEventsList.first().getStartDate();
         DateTimeFormatter dayMonthDay = DateTimeFormatter.ofPattern("EEEE, MMMM d");
-        stringBuilder.append(dayMonthDay.format(date)).append("\n");
+        LocalDate date = null;
+        if (!oneTimeEventsList.isEmpty()) {
+            date = oneTimeEventsList.first().getStartDate();
+            stringBuilder.append(dayMonthDay.format(date)).append("\n");
+        }
         for (Event event : oneTimeEventsList) {
             if (!date.equals(event.getStartDate())) {
                 date = event.getStartDate();
@@ -167,7 +612,7 @@ public class MyCalendar {
     public String displayRecurringEventList() {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("Recurring Events:\n");
-        for (RecurringEvent e : recurringEventsList) {
+        for (RecurringEvent e : recurringEvents.getRecurringEvents()) {
             stringBuilder.append(e);
         }
         return stringBuilder.toString();
@@ -180,30 +625,124 @@ public class MyCalendar {
      * @return      true if the event was successfully deleted and false if it wasn't
      */
     public boolean deleteEvent(String name, LocalDate date) {
-        TreeSet<Event> eventList = events.get(date);
-        oneTimeEventsList.removeIf(event -> event.getName().equals(name));
-        return eventList.removeIf(event -> event.getName().equals(name));
+        long start = startTimer();
+        boolean deleted = false;
+        // only events with this name are looked at, and only the one time events on this date are removed
+        int nameId = names.find(name);
+        ArrayList<Event> named = oneTimeEventsByName.getOrDefault(nameId, new ArrayList<>());
+        ArrayList<Event> matches = new ArrayList<>();
+        for (Event event : named) {
+            if (event.getStartDate().equals(date)) matches.add(event);
+        }
+        if (!matches.isEmpty()) {
+            named.removeAll(matches);
+            if (named.isEmpty()) oneTimeEventsByName.remove(nameId);
+            for (Event event : matches) oneTimeEventsList.remove(event);
+            events.removeIf(date.toEpochDay(), event -> event.getNameId() == nameId);
+            dirtyMonths.add(YearMonth.from(date));
+            deleted = true;
+        }
+        // a recurring event only loses this one date
+        for (RecurringEvent recurringEvent : recurringEventsByName.getOrDefault(nameId, new ArrayList<>())) {
+            if (recurringEvents.exclude(recurringEvent, date)) deleted = recurringDirty = true;
+        }
+        if (deleted) {
+            invalidateMonth(date);
+            for (CalendarListener listener : listeners) listener.eventDeleted(name, date);
+        }
+        stopTimer(CalendarMetrics.Operation.DELETE_EVENT, start);
+        return deleted;
+    }
+
+    /**
+     * Deletes one date of a {@code RecurringEvent}, leaving every other event on the date alone,
+     * unlike {@link #deleteEvent(String, LocalDate)}. This is how a date moved to another time,
+     * such as an iCalendar {@code RECURRENCE-ID}, is taken out of its series.
+     * @param event the recurring event, as it was added to the calendar
+     * @param date  the date being deleted
+     * @return      true if the date was deleted, false if the event isn't on the calendar, doesn't
+     *              take place on the date, or already had the date deleted
+     */
+    public boolean excludeDate(RecurringEvent event, LocalDate date) {
+        long start = startTimer();
+        ArrayList<RecurringEvent> named = recurringEventsByName.get(event.getNameId());
+        boolean deleted = named != null && named.contains(event) && recurringEvents.exclude(event, date);
+        if (deleted) {
+            recurringDirty = true;
+            invalidateMonth(date);
+            for (CalendarListener listener : listeners) listener.recurringDateDeleted(event, date);
+        }
+        stopTimer(CalendarMetrics.Operation.DELETE_EVENT, start);
+        return deleted;
+    }
+
+    /**
+     * Finds the {@code RecurringEvent} on the calendar with the same name, days, dates, and time as
+     * another, such as one read back from a journal.
+     * @param like  the recurring event being looked for
+     * @return      the event on the calendar, or null if there isn't one
+     */
+    RecurringEvent findRecurringEvent(RecurringEvent like) {
+        for (RecurringEvent event : recurringEventsByName.getOrDefault(names.find(like.getName()), new ArrayList<>())) {
+            if (event.getDayMask() == like.getDayMask() && event.getStartDate().equals(like.getStartDate())
+                    && event.getEndDate().equals(like.getEndDate())
+                    && event.getTimeInterval().getStartMinute() == like.getTimeInterval().getStartMinute()
+                    && event.getTimeInterval().getEndMinute() == like.getTimeInterval().getEndMinute()) return event;
+        }
+        return null;
     }
 
     /**
      * Deletes every event on {@code MyCalendar}.
      */
     public void deleteAllEvents() {
+        long start = startTimer();
+        // every month that had an event is now empty
+        Event event = oneTimeEventsList.isEmpty() ? null : oneTimeEventsList.first();
+        while (event != null) {
+            YearMonth month = YearMonth.from(event.getStartDate());
+            dirtyMonths.add(month);
+            event = oneTimeEventsList.ceiling(new Event(month.plusMonths(1).atDay(1)));
+        }
+        if (!recurringEvents.isEmpty()) recurringDirty = true;
         events.clear();
         oneTimeEventsList.clear();
-        recurringEventsList.clear();
+        recurringEvents.clear();
+        oneTimeEventsByName.clear();
+        recurringEventsByName.clear();
+        names.clear();
+        monthViews.clear();
+        for (CalendarListener listener : listeners) listener.allEventsDeleted();
+        stopTimer(CalendarMetrics.Operation.DELETE_ALL_EVENTS, start);
     }
 
     /**
      * Deletes all events on a specific date.
      * @param date  the date the events are being deleted on
+     * @return      true if any event was deleted and false if there were none on the date
      */
-    public void deleteAllEventsOn(LocalDate date) {
-        TreeSet<Event> eventList = events.remove(date);
-        if (eventList != null) {
-            eventList.clear();
-            oneTimeEventsList.removeIf(event -> event.getStartDate().equals(date));
+    public boolean deleteAllEventsOn(LocalDate date) {
+        long start = startTimer();
+        boolean deleted = false;
+        // only the events on this date are removed from the other lists
+        for (Event event : new ArrayList<>(events.eventsOn(date.toEpochDay()))) {
+            oneTimeEventsList.remove(event);
+            unindexName(event);
+        }
+        if (events.count(date.toEpochDay()) > 0) {
+            dirtyMonths.add(YearMonth.from(date));
+            deleted = true;
         }
+        events.remove(date.toEpochDay());
+        for (RecurringEvent recurringEvent : recurringEvents.on(date)) {
+            if (recurringEvents.exclude(recurringEvent, date)) deleted = recurringDirty = true;
+        }
+        if (deleted) {
+            invalidateMonth(date);
+            for (CalendarListener listener : listeners) listener.eventsDeletedOn(date);
+        }
+        stopTimer(CalendarMetrics.Operation.DELETE_ALL_EVENTS_ON, start);
+        return deleted;
     }
 
     /**
@@ -212,10 +751,8 @@ public class MyCalendar {
      * @return      true if there is an event on that date
      */
     private boolean hasEventsOn(LocalDate date) {
-        if (events.get(date) != null) {
-            return events.get(date).size() > 0;
-        }
-        return false;
+        if (events.count(date.toEpochDay()) > 0) return true;
+        return recurringEvents.anyOn(date, recurringEvent -> true);
     }
 
     /**
@@ -224,27 +761,104 @@ public class MyCalendar {
      * @return      True if the {@code RecurringEvent} event got removed
      */
     public boolean deleteRecurringEvent(String name) {
-        for (RecurringEvent recurringEvent: recurringEventsList) {
-            if (recurringEvent.getName().equals(name)) {
-                for (LocalDate date : recurringEvent.getDates()) {
-                    TreeSet<Event> eventList = events.get(date);
-                    eventList.removeIf(event -> event.getName().equals(name));
-                }
-                return recurringEventsList.removeIf(event -> event.getName().equals(name));
+        long start = startTimer();
+        // the dates of a recurring event are never stored, so only the list needs updating
+        int nameId = names.find(name);
+        ArrayList<RecurringEvent> named = nameId < 0 ? null : recurringEventsByName.remove(nameId);
+        if (named != null) {
+            for (RecurringEvent event : named) {
+                recurringEvents.remove(event);
+                invalidateMonths(event);
             }
+            recurringDirty = true;
+            for (CalendarListener listener : listeners) listener.recurringEventDeleted(name);
         }
-        return false;
+        stopTimer(CalendarMetrics.Operation.DELETE_RECURRING_EVENT, start);
+        return named != null;
+    }
+
+    /**
+     * Gets the months whose one time events changed since {@link #markClean()} was last called.
+     * @return  a read-only view of the months, in order
+     */
+    public NavigableSet<YearMonth> getDirtyMonths() {return Collections.unmodifiableNavigableSet(dirtyMonths);}
+
+    /**
+     * Checks if any recurring event was added, deleted, or lost a date since {@link #markClean()}
+     * was last called.
+     * @return  true if the recurring events changed
+     */
+    public boolean isRecurringDirty() {return recurringDirty;}
+
+    /**
+     * Forgets every change, once the calendar has been saved.
+     */
+    public void markClean() {
+        dirtyMonths.clear();
+        recurringDirty = false;
+    }
+
+    /**
+     * Gets the number of days with at least one one time event.
+     * @return  the number of days
+     */
+    int populatedDays() {return events.size();}
+
+    /**
+     * Removes a one time event from the index of events by name.
+     * @param event the event being removed
+     */
+    private void unindexName(Event event) {
+        ArrayList<Event> named = oneTimeEventsByName.get(event.getNameId());
+        if (named != null && named.remove(event) && named.isEmpty()) oneTimeEventsByName.remove(event.getNameId());
+    }
+
+    /**
+     * Forgets the month view of the month containing a date, since its events have changed.
+     * @param date  the date that changed
+     */
+    private void invalidateMonth(LocalDate date) {
+        if (!monthViews.isEmpty()) monthViews.remove(YearMonth.from(date));
+    }
+
+    /**
+     * Forgets the month views of every month a {@code RecurringEvent} takes place in.
+     * @param event the recurring event that was added or deleted
+     */
+    private void invalidateMonths(RecurringEvent event) {
+        if (monthViews.isEmpty()) return;
+        // at most MAX_MONTH_VIEWS are kept, fewer than the months of a long recurring event
+        YearMonth first = YearMonth.from(event.getStartDate());
+        YearMonth last = YearMonth.from(event.getEndDate());
+        monthViews.keySet().removeIf(month -> !month.isBefore(first) && !month.isAfter(last));
     }
 
     /**
      * Outputs a month view of {@code MyCalendar} as a String with the month and year at the top.
+     * Month views are kept until an event in that month changes, so showing an unchanged month
+     * again costs a map lookup. Only the {@value #MAX_MONTH_VIEWS} months shown most recently are kept.
      * @return  the String of the month view.
      */
     public String displayMonth() {
-        DateTimeFormatter monthYear = DateTimeFormatter.ofPattern("MMM yyyy");
-        DateTimeFormatter day = DateTimeFormatter.ofPattern("d");
+        long start = startTimer();
+        String monthView = monthViews.computeIfAbsent(YearMonth.from(firstDay),
+                month -> displayMonth(firstDay, today, this::hasEventsOn));
+        stopTimer(CalendarMetrics.Operation.DISPLAY_MONTH, start);
+        return monthView;
+    }
+
+    /**
+     * Outputs a month view as a String with the month and year at the top.
+     * @param firstDay      the first day of the month
+     * @param today         today's date, shown with [] brackets
+     * @param hasEventsOn   checks if a date has an event, shown with {} brackets
+     * @return  the String of the month view.
+     */
+    static String displayMonth(LocalDate firstDay, LocalDate today, Predicate<LocalDate> hasEventsOn) {
+        int lastDay = firstDay.lengthOfMonth();
 
-        StringBuilder stringBuilder = new StringBuilder(monthYear.format(firstDay));
+        StringBuilder stringBuilder = new StringBuilder(192);
+        stringBuilder.append(MONTH_YEAR.format(firstDay));
         stringBuilder.append("\nSun Mon Tue Wed Thu Fri Sat\n");
 
         String spaces = "    "; // add spaces to make the first day line up with the day of the week
@@ -256,32 +870,48 @@ public class MyCalendar {
             stringBuilder.append(spaces.repeat(Math.max(0, dayInt % 7)));
         }
         LocalDate nextDay = firstDay;
+        int dayOfWeek = dayInt % 7;
 
-        for (int i = 0; i < lastDay; i++) {
+        for (int i = 1; i <= lastDay; i++) {
             // add a new line for the next week
-            if (nextDay.getDayOfWeek().getValue() % 7 == 0) {
+            if (dayOfWeek == 0) {
                 stringBuilder.append("\n");
             }
 
             // add brackets to this day if it is today's date
             if (nextDay.equals(today)) {
-                stringBuilder.append(String.format("[%-2s]", day.format(nextDay)));
+                stringBuilder.append(TODAY_CELLS[i]);
             }
             // add curly brackets if this day has an event
-            else if (hasEventsOn(nextDay)) {
-                stringBuilder.append(String.format("{%-2s}", day.format(nextDay)));
+            else if (hasEventsOn.test(nextDay)) {
+                stringBuilder.append(EVENT_CELLS[i]);
             }
             else {
-                stringBuilder.append(String.format(" %-2s ", day.format(nextDay)));
+                stringBuilder.append(PLAIN_CELLS[i]);
             }
 
             // go to the next day
             nextDay = nextDay.plusDays(1);
+            dayOfWeek = (dayOfWeek + 1) % 7;
         }
         stringBuilder.append("\n\n");
         return stringBuilder.toString();
     }
 
+    /**
+     * Builds the cell for every day of the month, such as {@code "{7 }"}.
+     * @param open  the character before the day
+     * @param close the character after the day
+     * @return      the cells, indexed by day of the month
+     */
+    private static String[] dayCells(char open, char close) {
+        String[] cells = new String[32];
+        for (int day = 1; day < cells.length; day++) {
+            cells[day] = open + (day < 10 ? day + " " : String.valueOf(day)) + close;
+        }
+        return cells;
+    }
+
     /**
      * Outputs today's events as a String
      * @return  a String of today's events
@@ -290,7 +920,7 @@ public class MyCalendar {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("Today's Events:\n");
         if  (hasEventsOn(today)) {
-            for (Event event : events.get(today)) {
+            for (Event event : eventsOn(today)) {
                 stringBuilder.append(event);
             }
         }
@@ -303,16 +933,18 @@ public class MyCalendar {
      * @return  String of the selected day's events
      */
     public String displaySelectedDay() {
+        long start = startTimer();
         StringBuilder stringBuilder = new StringBuilder();
         DateTimeFormatter dayMonthDay = DateTimeFormatter.ofPattern("EEEE, MMMM d");
         stringBuilder.append(dayMonthDay.format(selectedDay)).append("\n");
         if  (hasEventsOn(selectedDay)) {
-            for (Event event : events.get(selectedDay)) {
+            for (Event event : eventsOn(selectedDay)) {
                 stringBuilder.append(event);
             }
         }
         else stringBuilder.append("No Events Today\n");
         stringBuilder.append("\n");
+        stopTimer(CalendarMetrics.Operation.DISPLAY_SELECTED_DAY, start);
         return stringBuilder.toString();
     }
 
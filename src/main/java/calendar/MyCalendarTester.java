@@ -1,10 +1,13 @@
 package calendar;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Scanner;
+import javax.management.JMException;
 
 /**
  * The front-end of {@code MyCalendar}. {@code MyCalendarTester} implements user
@@ -14,13 +17,13 @@ import java.util.Scanner;
  * and months or jump to a specific date. Today's date is shown with [] brackets and dates with an event have {} brackets.
  * Events can be added and deleted on {@code MyCalendar}.
  * @author Jonathan Stewart Thomas
- * @version 1.0.2.230215
+ * @version 1.0.3.230317
  */
 public class MyCalendarTester {
     private static final String MAIN_MENU_OPTIONS = """
             Main Menu\s
             Select one of the following options\s
-            [V]iew by  [C]reate [G]o to [E]vent list [D]elete  [Q]uit\s
+            [V]iew by  [C]reate [G]o to [E]vent list [D]elete  e[X]port  [Q]uit\s
             """;
     private static final String VIEW_BY_OPTIONS = """
             View by...\s
@@ -34,30 +37,127 @@ public class MyCalendarTester {
             Delete...
             [S]elected [A]ll [E]vents on... [R]ecurring
             """;
+    private static final int COMPACT_EVERY = 1000;
+    private static final long PARALLEL_LOAD_SIZE = 16 << 20;
+    private static final int BATCH_BUFFER_SIZE = 1 << 16;
+    private static final String STORE_DIRECTORY = "events.store";
+    private static final String METRICS_PROPERTY = "calendar.metrics";
+    private static final String METRICS_NAME = "MyCalendarTester";
     private static MyCalendar myCalendar;
+    private static SegmentedCalendarStore store;
+    private static boolean loadedFromStore;
+    private static CalendarJournal journal;
     private static Scanner stdio;
+    private static PrintStream messages = System.out;   // where loading and saving report problems
 
     /**
      * The main method of this program.
-     * It starts by reading the events.txt containing recurring and one time events,
-     * and adding them to the calendar. It then runs the main menu. Once the user selects
-     * [Q]uit, the events get saved to output.txt.
+     * It starts by loading the calendar with {@link #load()}. Changes made since it was saved are
+     * replayed from events.journal, and every change made in this session is added to the journal as
+     * it happens. It then runs the main menu. Once the user selects [Q]uit, the months that changed
+     * are saved to the events.store directory. The events are only written to output.txt when the
+     * user selects e[X]port.
+     * <p>
+     * With {@code --batch FILE} the menus aren't shown. The commands in the file, or on standard
+     * input if the file is {@code -} or left out, are run by {@code CommandRunner} instead, and a
+     * summary is printed to standard error once they are done. The exit status is 1 if any command failed,
+     * and 2 if the file of commands couldn't be opened or read, in which case nothing is saved.
+     * <p>
+     * With {@code -Dcalendar.metrics=true} the calendar's metrics are turned on and registered
+     * with JMX, so loading, saving and every change can be watched while the program runs.
      * @param args  arguments for the command line
      */
     public static void main(String[] args) {
         myCalendar = new MyCalendar();
+        boolean batch = args.length > 0 && args[0].equals("--batch");
+        if (batch) messages = System.err;
+        if (Boolean.getBoolean(METRICS_PROPERTY)) enableMetrics();
+        if (batch) {
+            System.exit(runBatch(args.length > 1 ? args[1] : "-"));
+        }
         stdio = new Scanner(System.in);
-        if (readFile()) {
+        if (load()) {
             System.out.println("Loading is done!");
         }
+        openJournal();
         runMainMenu();
         System.out.println("Goodbye!");
         stdio.close();
-        if(saveFile()) {
-            System.out.println("Events saved to output.txt");
+        boolean saved = saveStore();
+        if (saved) {
+            System.out.println("Events saved to " + STORE_DIRECTORY);
+        }
+        closeJournal(saved);
+    }
+
+    /**
+     * Turns on the metrics of the calendar and registers them with JMX under the name
+     * {@code MyCalendarTester}. If they can't be registered they are still recorded.
+     */
+    private static void enableMetrics() {
+        try {
+            myCalendar.enableMetrics().register(METRICS_NAME);
+        } catch (JMException e) {
+            messages.println("Metrics could not be registered: " + e.getMessage());
         }
     }
 
+    /**
+     * Loads the calendar, runs a script of commands on it, and saves it, as {@code main} does
+     * around the menus. The results of the commands are written to standard output through one
+     * large buffer, rather than a line at a time, and the calendar isn't printed first. A script
+     * writes output.txt, or any other file, with the {@code export} command. Problems loading and
+     * saving are reported on standard error, so standard output only has the results of the commands.
+     * @param script    the file of commands, or {@code -} for standard input
+     * @return          the exit status: 0 if every command ran, 1 if any failed, and 2 if the
+     *                  commands couldn't be opened or read
+     */
+    public static int runBatch(String script) {
+        messages = System.err;
+        BufferedReader in;
+        try {
+            in = openScript(script);
+        } catch (IOException e) {
+            System.err.println("Commands could not be opened: " + e.getMessage());
+            return 2;
+        }
+        boolean loaded = load();
+        openJournal();
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), BATCH_BUFFER_SIZE);
+        CommandRunner runner = new CommandRunner(myCalendar, out);
+        long start = System.nanoTime();
+        boolean ran = true;
+        try (in) {
+            runner.run(in);
+        } catch (IOException e) {
+            System.err.println("Commands could not be run: " + e.getMessage());
+            ran = false;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        boolean saved = false;
+        // a script cut short isn't saved, the changes it made stay in events.journal
+        if (ran) {
+            saved = saveStore();
+            saved &= closeJournal(saved);
+        }
+        else closeJournal();
+        System.err.println(runner.summary() + " in " + millis + " ms"
+                + (loaded ? "" : ", events not loaded") + (saved ? "" : ", events not saved"));
+        if (!ran) return 2;
+        return runner.getFailedCount() > 0 ? 1 : 0;
+    }
+
+    /**
+     * Opens a file of commands for {@link #runBatch(String)}.
+     * @param script    the file of commands, or {@code -} for standard input
+     * @return          the commands
+     * @throws IOException  if the file can't be opened
+     */
+    private static BufferedReader openScript(String script) throws IOException {
+        if (script.equals("-")) return new BufferedReader(new InputStreamReader(System.in), BATCH_BUFFER_SIZE);
+        return Files.newBufferedReader(Paths.get(script));
+    }
+
     /**
      * The main menu for {@code MyCalendarTester}. It first prints out the calendar and
      * today's events. Afterwards it prompts the user to select one of the following options.
@@ -75,7 +175,9 @@ public class MyCalendarTester {
                 case "G" -> goTo();
                 case "E" -> showEventList();
                 case "D" -> delete();
+                case "X" -> export();
             }
+            compactJournalIfDue();
         } while (!option.equals("Q"));
 
     }
@@ -176,6 +278,14 @@ public class MyCalendarTester {
         viewByDay();
     }
 
+    /**
+     * Exports every event on the calendar to output.txt, in the same format as events.txt.
+     */
+    public static void export() {
+        if (saveFile()) System.out.println("Events saved to output.txt\n");
+        else System.out.println("Export Failed!\n");
+    }
+
     /**
      * Displays all the events on the calendar. It will first show one time events
      * sorted by start date and time, then recurring events sorted by start date and time.
@@ -240,47 +350,201 @@ public class MyCalendarTester {
         else System.out.println("Deletion Failed!\n");
     }
 
+    /**
+     * Loads the calendar. If there is an events.snapshot it is read, since one is only left behind
+     * when the calendar wasn't saved to the store, so it is newer. Otherwise the events.store
+     * directory is read, or events.txt the first time, before anything has been saved to the store.
+     * Whichever is read, the whole load is timed as {@code LOAD}.
+     * @return  true if the calendar was loaded successfully and false if it failed
+     */
+    public static boolean load() {
+        long start = myCalendar.startTimer();
+        try {
+            return loadEvents();
+        } finally {
+            myCalendar.stopTimer(CalendarMetrics.Operation.LOAD, start);
+        }
+    }
+
+    /**
+     * Loads the calendar from events.snapshot, the events.store directory or events.txt, as
+     * described in {@link #load()}.
+     * @return  true if the calendar was loaded successfully and false if it failed
+     */
+    private static boolean loadEvents() {
+        try {
+            store = new SegmentedCalendarStore(Paths.get(STORE_DIRECTORY));
+            if (!Files.exists(Paths.get("events.snapshot")) && !store.isEmpty()) return readStore();
+        } catch (IOException e) {
+            messages.println("Store could not be opened, events won't be saved to it: " + e.getMessage());
+            store = null;
+        }
+        return Files.exists(Paths.get("events.snapshot")) ? readSnapshot() : readFile();
+    }
+
+    /**
+     * Reads the events.store directory to load saved events onto the calendar.
+     * If it can't be read the calendar isn't saved to the store when the program quits, so the
+     * files that weren't read aren't overwritten.
+     * @return  true if the store was read successfully and false if it failed
+     */
+    public static boolean readStore() {
+        try {
+            store.load(myCalendar);
+        } catch (IOException e) {
+            messages.println("Store could not be read: " + e.getMessage());
+            store = null;
+            return false;
+        }
+        loadedFromStore = true;
+        return true;
+    }
+
+    /**
+     * Saves the calendar to the events.store directory. Only the months that changed are
+     * written if the calendar was loaded from the store, and every month otherwise.
+     * @return  true if it was successful and false if it wasn't
+     */
+    public static boolean saveStore() {
+        if (store == null) return false;
+        long start = myCalendar.startTimer();
+        try {
+            if (loadedFromStore) store.save(myCalendar);
+            else store.saveAll(myCalendar);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            myCalendar.stopTimer(CalendarMetrics.Operation.SAVE, start);
+        }
+        loadedFromStore = true;
+        return true;
+    }
+
     /**
      * Reads events.txt to load saved events onto the calendar.
      * @return  true if the file was found and read successfully and false if it failed
      */
     public static boolean readFile() {
-        try {
-            Scanner scannerTextFile = new Scanner(new File("events.txt"));
-            while (scannerTextFile.hasNextLine()) {
-                String name = scannerTextFile.nextLine();
+        return readFile(new File("events.txt"), myCalendar);
+    }
 
-                String information = scannerTextFile.nextLine();
+    /**
+     * Reads a file in the events.txt format and adds its events to a calendar.
+     * The file is read by {@code ParallelEventLoader}, on every core if it is larger than 16 MB.
+     * A record that can't be parsed or conflicts with an event read before it is skipped.
+     * @param file      the file being read
+     * @param calendar  the calendar the events are added to
+     * @return  true if the file was found and read successfully and false if it failed
+     */
+    public static boolean readFile(File file, MyCalendar calendar) {
+        calendar.beginBatch();
+        try {
+            return readEvents(file, calendar);
+        } finally {
+            calendar.endBatch();
+        }
+    }
 
-                information = information.toUpperCase();
+    /**
+     * Reads the events of a file in the events.txt format into a calendar.
+     * @param file      the file being read
+     * @param calendar  the calendar the events are added to
+     * @return  true if the file was found and read successfully and false if it failed
+     */
+    private static boolean readEvents(File file, MyCalendar calendar) {
+        if (!file.isFile()) {
+            messages.println("File not found!");
+            return true;
+        }
+        // every file is read by the same parser and loses the same records, small files on one thread
+        int parallelism = file.length() > PARALLEL_LOAD_SIZE ? Runtime.getRuntime().availableProcessors() : 1;
+        try {
+            ImportResult result = ParallelEventLoader.load(file.toPath(), calendar, parallelism);
+            if (result.getErrorCount() > 0) {
+                messages.println("Skipped " + result.getErrorCount() + " records of " + file.getName()
+                        + ", the first at " + result.getErrors().get(0));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
 
-                DateTimeFormatter monthDayYear = DateTimeFormatter.ofPattern("M/d/yy");
-                DateTimeFormatter hourMinute = DateTimeFormatter.ofPattern("H:m");
+    /**
+     * Opens events.journal and replays the changes in it onto the calendar.
+     * From then on every change to the calendar is added to the journal. Every
+     * {@value #COMPACT_EVERY} changes the calendar is written to events.snapshot and the journal
+     * starts over.
+     * @return  true if the journal was opened and false if it couldn't be
+     */
+    public static boolean openJournal() {
+        try {
+            journal = new CalendarJournal(Paths.get("events.journal"), Paths.get("events.snapshot"), COMPACT_EVERY);
+            int replayed = journal.replayAndAttach(myCalendar);
+            if (replayed > 0) messages.println("Recovered " + replayed + " changes from events.journal");
+        } catch (IOException e) {
+            messages.println("Journal could not be opened, changes won't be recovered after a crash: " + e.getMessage());
+            journal = null;
+            return false;
+        }
+        return true;
+    }
 
-                String[] splitInfo = information.split(" ");
-                if (splitInfo[0].contains("S") || splitInfo[0].contains("M") || splitInfo[0].contains("T") || splitInfo[0].contains("W")
-                        || splitInfo[0].contains("R") || splitInfo[0].contains("F") || splitInfo[0].contains("A") ) {
+    /**
+     * Compacts events.journal into events.snapshot between menu options, once
+     * {@value #COMPACT_EVERY} changes have been made since it was last compacted.
+     */
+    private static void compactJournalIfDue() {
+        if (journal == null) return;
+        try {
+            journal.compactIfDue();
+        } catch (IOException e) {
+            messages.println("Journal could not be compacted: " + e.getMessage());
+        }
+    }
 
-                    LocalTime startTime = LocalTime.parse(splitInfo[1],hourMinute);
-                    LocalTime endTime = LocalTime.parse(splitInfo[2], hourMinute);
+    /**
+     * Closes events.journal without starting it over, so the next start replays this session's changes.
+     * @return  true if it was successful and false if it wasn't
+     */
+    public static boolean closeJournal() {
+        if (journal == null) return true;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
 
-                    LocalDate startDate = LocalDate.parse(splitInfo[3], monthDayYear);
-                    LocalDate endDate = LocalDate.parse(splitInfo[4], monthDayYear);
-                    RecurringEvent event = new RecurringEvent(name, splitInfo[0], startDate, endDate, startTime, endTime);
-                    myCalendar.add(event);
-                }
-                else {
-                    LocalDate date = LocalDate.parse(splitInfo[0], monthDayYear);
-                    LocalTime startTime = LocalTime.parse(splitInfo[1], hourMinute);
-                    LocalTime endTime = LocalTime.parse(splitInfo[2], hourMinute);
-                    Event event = new Event(name, date, startTime, endTime);
-                    myCalendar.add(event);
-                }
+    /**
+     * Starts events.journal over, so the next start doesn't replay this session's changes, and
+     * closes it. If the calendar couldn't be saved to the store the journal is compacted into
+     * events.snapshot instead, which the next start loads in place of the store.
+     * @param saved true if the calendar was just saved to the store
+     * @return      true if it was successful and false if it wasn't
+     */
+    public static boolean closeJournal(boolean saved) {
+        if (journal == null) return true;
+        try (CalendarJournal closing = journal) {
+            if (saved) closing.discard();
+            else closing.compact();
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
 
-            }
-            scannerTextFile.close();
-        } catch (FileNotFoundException e) {
-            System.out.println("File not found!");
+    /**
+     * Reads events.snapshot to load saved events onto the calendar.
+     * @return  true if the snapshot was read successfully and false if it failed
+     */
+    public static boolean readSnapshot() {
+        try {
+            CalendarSnapshot.read(Paths.get("events.snapshot"), myCalendar);
+        } catch (IOException e) {
+            messages.println("Snapshot could not be read: " + e.getMessage());
+            return false;
         }
         return true;
     }
@@ -290,17 +554,13 @@ public class MyCalendarTester {
      * @return  true if it was successful and false if it wasn't
      */
     public static boolean saveFile() {
-        try (FileWriter fileWriter = new FileWriter("output.txt")) {
-            BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
-            for (Event e: myCalendar.getOneTimeEventsList()) {
-                bufferedWriter.write(e.inFormatMonthDayYear());
-            }
-            for (RecurringEvent e: myCalendar.getRecurringEventsList()) {
-                bufferedWriter.write(e.inFormatMonthDayYear());
-            }
-            bufferedWriter.close();
+        long start = myCalendar.startTimer();
+        try {
+            CalendarExporter.export(myCalendar, Paths.get("output.txt"), CalendarExporter.Format.TEXT);
         } catch (IOException e) {
             return false;
+        } finally {
+            myCalendar.stopTimer(CalendarMetrics.Operation.SAVE, start);
         }
         return true;
     }
@@ -0,0 +1,81 @@
+package calendar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A dictionary giving each distinct event name an int id.
+ * Calendars read from files repeat the same few names, such as "Standup" or "CS 151", many
+ * thousands of times. Every {@code MyCalendar} has its own {@code NameTable}: each event added to
+ * it keeps the id of its name and shares the table's copy of the String, so a name is stored once
+ * per calendar and names are compared by comparing ids. Snapshots and journals of the calendar
+ * write its table, so each name is written once and events refer to it by id.
+ * <p>
+ * The table belongs to one calendar, so it never holds names of other calendars or tenants, and
+ * it is emptied when every event on the calendar is deleted. Ids are given out in order starting
+ * from 0. A {@code NameTable} is not safe to use from more than one thread.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.1.230317
+ */
+public class NameTable {
+    private final HashMap<String, Integer> ids;
+    private final ArrayList<String> names;
+
+    /**
+     * Creates an empty {@code NameTable}.
+     */
+    public NameTable() {
+        ids = new HashMap<>();
+        names = new ArrayList<>();
+    }
+
+    /**
+     * Gets the id of a name, giving it the next id if it doesn't have one yet.
+     * @param name  the name
+     * @return      the id of the name
+     */
+    public int idOf(String name) {
+        Integer id = ids.putIfAbsent(name, names.size());
+        if (id != null) return id;
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * Gets the id of a name without adding it.
+     * @param name  the name
+     * @return      the id of the name, or {@code -1} if it doesn't have one
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the copy of a name held by the table, adding it if it is new.
+     * @param name  the name
+     * @return      the String equal to {@code name} that was added first
+     */
+    public String intern(String name) {return names.get(idOf(name));}
+
+    /**
+     * Gets the name with an id.
+     * @param id    the id
+     * @return      the name
+     */
+    public String nameOf(int id) {return names.get(id);}
+
+    /**
+     * Gets the number of names in the table, which is also the next id it will give out.
+     * @return  the number of names
+     */
+    public int size() {return names.size();}
+
+    /**
+     * Removes every name, so ids are given out from 0 again.
+     */
+    public void clear() {
+        ids.clear();
+        names.clear();
+    }
+}
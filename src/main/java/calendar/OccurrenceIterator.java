@@ -0,0 +1,99 @@
+package calendar;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Iterates over every {@code Event} taking place between two dates in order of date and start time.
+ * One time events come straight from a sorted view of the calendar. The dates of each
+ * {@code RecurringEvent} are worked out one at a time as the iteration reaches them and merged in,
+ * so nothing is copied up front.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230223
+ */
+class OccurrenceIterator implements Iterator<Event> {
+    private static final Comparator<Cursor> CURSOR_ORDER = (c1, c2) -> {
+        int compared = c1.date.compareTo(c2.date);
+        if (compared != 0) return compared;
+        return Integer.compare(c1.recurringEvent.getTimeInterval().getStartMinute(),
+                c2.recurringEvent.getTimeInterval().getStartMinute());
+    };
+
+    private final Iterator<Event> oneTimeEvents;
+    private final PriorityQueue<Cursor> recurringEvents;
+    private final RecurringIndex index;
+    private final LocalDate to;
+    private Event nextOneTimeEvent;
+
+    /**
+     * The next date of a {@code RecurringEvent} that hasn't been returned yet.
+     */
+    private static class Cursor {
+        private final RecurringEvent recurringEvent;
+        private LocalDate date;
+
+        private Cursor(RecurringEvent recurringEvent, LocalDate date) {
+            this.recurringEvent = recurringEvent;
+            this.date = date;
+        }
+    }
+
+    /**
+     * Creates an {@code OccurrenceIterator}.
+     * @param oneTimeEvents     the one time events between the two dates sorted by date and start time
+     * @param index             the recurring events and their deleted dates
+     * @param from              the first date, inclusive
+     * @param to                the last date, inclusive
+     */
+    OccurrenceIterator(Iterable<Event> oneTimeEvents, RecurringIndex index, LocalDate from, LocalDate to) {
+        this.oneTimeEvents = oneTimeEvents.iterator();
+        this.recurringEvents = new PriorityQueue<>(CURSOR_ORDER);
+        this.index = index;
+        this.to = to;
+        // only the recurring events whose dates overlap the range are looked at
+        index.anyBetween(from, to, RecurringEvent.ALL_DAYS, recurringEvent -> {
+            LocalDate date = index.nextOccurrence(recurringEvent, from);
+            if (date != null && !date.isAfter(to)) recurringEvents.add(new Cursor(recurringEvent, date));
+            return false;
+        });
+        nextOneTimeEvent = this.oneTimeEvents.hasNext() ? this.oneTimeEvents.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextOneTimeEvent != null || !recurringEvents.isEmpty();
+    }
+
+    @Override
+    public Event next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Cursor cursor = recurringEvents.peek();
+        if (cursor == null || (nextOneTimeEvent != null && comesFirst(nextOneTimeEvent, cursor))) {
+            Event event = nextOneTimeEvent;
+            nextOneTimeEvent = oneTimeEvents.hasNext() ? oneTimeEvents.next() : null;
+            return event;
+        }
+
+        recurringEvents.poll();
+        RecurringEvent recurringEvent = cursor.recurringEvent;
+        Event event = new Event(recurringEvent.getName(), cursor.date, recurringEvent.getTimeInterval());
+        cursor.date = index.nextOccurrence(recurringEvent, cursor.date.plusDays(1));
+        if (cursor.date != null && !cursor.date.isAfter(to)) recurringEvents.add(cursor);
+        return event;
+    }
+
+    /**
+     * Checks if a one time event comes before the next date of a recurring event.
+     * @param event     the one time event
+     * @param cursor    the next date of the recurring event
+     * @return          true if the one time event comes first
+     */
+    private static boolean comesFirst(Event event, Cursor cursor) {
+        int compared = event.getStartDate().compareTo(cursor.date);
+        if (compared != 0) return compared < 0;
+        return event.getTimeInterval().getStartMinute() <= cursor.recurringEvent.getTimeInterval().getStartMinute();
+    }
+}
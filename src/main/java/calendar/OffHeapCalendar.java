@@ -0,0 +1,579 @@
+package calendar;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A calendar that keeps its one time events outside the Java heap, for calendars holding many
+ * millions of events. {@code OffHeapCalendar} follows the same rules as {@code MyCalendar}: events
+ * on a day never conflict, and a {@code RecurringEvent} is only added if none of its dates conflict.
+ * <p>
+ * Each one time event is a fixed width slot in a direct {@code ByteBuffer} holding its epoch day,
+ * start and end minute, the offset of its name, and the slot of the next event on the same day.
+ * The events on a day are linked in order of start time, and the first slot of each day is found
+ * through an open-addressing table of primitive arrays. Names are stored once each, as UTF-8, in a
+ * second direct buffer. Recurring events are rules rather than dates, so there are few of them and
+ * they stay on the heap, listed by the offset of their name so they can be deleted by name.
+ * <p>
+ * The garbage collector only sees a handful of arrays and buffers however many events there are.
+ * An {@code Event} is only created when one is returned, and the caller can drop it as soon as it
+ * is done with it. Each name is decoded once, the first time an event with it is returned, and
+ * every event returned with that name shares the one String. Names are never removed from the name
+ * buffer, nor their Strings dropped, until {@link #deleteAllEvents()}.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.1.230317
+ */
+public class OffHeapCalendar {
+    private static final int SLOT_SIZE = 16;
+    private static final int DAY = 0;           // int epoch day
+    private static final int START = 4;         // short start minute
+    private static final int END = 6;           // short end minute
+    private static final int NAME = 8;          // int offset of the name
+    private static final int NEXT = 12;         // int slot of the next event on the day
+    private static final int NONE = -1;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_NAME_BYTES = 1 << 14;
+    private static final int INITIAL_TABLE_SIZE = 64;
+
+    private ByteBuffer slots;
+    private int slotsUsed;
+    private int freeSlot;
+    private int size;
+
+    // each name is its hash, its id, its length, and its UTF-8 bytes
+    private static final int NAME_HASH = 0;
+    private static final int NAME_ID = 4;
+    private static final int NAME_LENGTH = 8;
+    private static final int NAME_BYTES = 12;
+
+    private ByteBuffer names;
+    private int namesUsed;
+    private int[] nameTable;        // offset of a name plus one, 0 if empty
+    private int nameCount;
+    private String[] nameStrings;   // the decoded names by id, null until an event with the name is returned
+
+    private long[] dayKeys;
+    private int[] dayHeads;
+    private int dayCount;
+
+    private final RecurringIndex recurringEvents;
+    private final HashMap<Integer, ArrayList<RecurringEvent>> recurringEventsByName;
+    private final LocalDate today;
+
+    /**
+     * Creates a new {@code OffHeapCalendar}.
+     */
+    public OffHeapCalendar() {
+        recurringEvents = new RecurringIndex();
+        recurringEventsByName = new HashMap<>();
+        today = LocalDate.now();
+        slots = ByteBuffer.allocateDirect(INITIAL_SLOTS * SLOT_SIZE);
+        names = ByteBuffer.allocateDirect(INITIAL_NAME_BYTES);
+        clear();
+    }
+
+    /**
+     * Creates an {@code OffHeapCalendar} holding the same events as a {@code MyCalendar}.
+     * @param calendar  the calendar being copied
+     * @return          the copy
+     */
+    public static OffHeapCalendar copyOf(MyCalendar calendar) {
+        OffHeapCalendar copy = new OffHeapCalendar();
+        for (Event event : calendar.getOneTimeEventsList()) copy.add(event);
+        // the recurring events of a calendar never conflict, so they are copied with their deleted dates as they are
+        for (RecurringEvent event : calendar.getRecurringEventsList()) {
+            copy.recurringEvents.add(event, calendar.getExcludedDates(event));
+            copy.addByName(event);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the number of one time events on the calendar.
+     * @return  the number of events
+     */
+    public int size() {return size;}
+
+    /**
+     * Gets the number of slots taken from the buffer, including the free slots of deleted events.
+     * @return  the number of slots
+     */
+    int slotsUsed() {return slotsUsed;}
+
+    /**
+     * Adds a {@code OneTimeEvent} to the calendar. If the event conflicts with an existing event
+     * it is not added.
+     * @param newEvent  the event being added
+     * @return          true if the event is successfully added and false if it conflicts with an event
+     */
+    public boolean add(Event newEvent) {
+        long day = newEvent.getStartDate().toEpochDay();
+        TimeInterval timeInterval = newEvent.getTimeInterval();
+        int start = timeInterval.getStartMinute();
+        int end = timeInterval.getEndMinute();
+
+        // find the event the new one goes after, checking for conflicts on the way
+        int table = dayTableSlot(day);
+        int previous = NONE;
+        int next = dayKeys[table] == EMPTY ? NONE : dayHeads[table];
+        while (next != NONE && startOf(next) < end) {
+            if (start < endOf(next)) return false;
+            previous = next;
+            next = slots.getInt(next * SLOT_SIZE + NEXT);
+        }
+        if (recurringEvents.anyOn(newEvent.getStartDate(),
+                recurringEvent -> recurringEvent.getTimeInterval().isConflicting(timeInterval))) return false;
+
+        int slot = allocateSlot();
+        int offset = slot * SLOT_SIZE;
+        slots.putInt(offset + DAY, (int) day);
+        slots.putShort(offset + START, (short) start);
+        slots.putShort(offset + END, (short) end);
+        slots.putInt(offset + NAME, nameOffset(newEvent.getName(), true));
+        slots.putInt(offset + NEXT, next);
+        if (previous != NONE) slots.putInt(previous * SLOT_SIZE + NEXT, slot);
+        else if (dayKeys[table] != EMPTY) dayHeads[table] = slot;
+        else putDay(table, day, slot);
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds a {@code RecurringEvent} to the calendar. If any of its dates conflicts with an
+     * existing event the {@code RecurringEvent} is not added at all.
+     * @param newEvent  the event being added
+     * @return          true if the event is successfully added and false if it conflicts with an event
+     */
+    public boolean add(RecurringEvent newEvent) {
+        int start = newEvent.getTimeInterval().getStartMinute();
+        int end = newEvent.getTimeInterval().getEndMinute();
+        for (LocalDate date = newEvent.nextOccurrence(newEvent.getStartDate()); date != null;
+             date = newEvent.nextOccurrence(date.plusDays(1))) {
+            for (int slot = headOf(date.toEpochDay()); slot != NONE && startOf(slot) < end;
+                 slot = slots.getInt(slot * SLOT_SIZE + NEXT)) {
+                if (start < endOf(slot)) return false;
+            }
+        }
+        if (recurringEvents.anyBetween(newEvent.getStartDate(), newEvent.getEndDate(), newEvent.getDayMask(),
+                recurringEvent -> recurringEvent.getTimeInterval().isConflicting(newEvent.getTimeInterval())
+                        && recurringEvents.sharesDate(recurringEvent, newEvent, Collections.emptySet()))) return false;
+        recurringEvents.add(newEvent);
+        addByName(newEvent);
+        return true;
+    }
+
+    /**
+     * Lists a {@code RecurringEvent} under the offset of its name, storing the name if it is new.
+     * @param event the event
+     */
+    private void addByName(RecurringEvent event) {
+        recurringEventsByName.computeIfAbsent(nameOffset(event.getName(), true), offset -> new ArrayList<>()).add(event);
+    }
+
+    /**
+     * Gets every event taking place on a date, including the dates of recurring events.
+     * @param date  the date
+     * @return      the events sorted by start time
+     */
+    public TreeSet<Event> eventsOn(LocalDate date) {
+        TreeSet<Event> eventList = new TreeSet<>(Event.START_TIME_ORDER);
+        for (int slot = headOf(date.toEpochDay()); slot != NONE; slot = slots.getInt(slot * SLOT_SIZE + NEXT)) {
+            eventList.add(eventAt(slot, date));
+        }
+        eventList.addAll(recurringEvents.on(date));
+        return eventList;
+    }
+
+    /**
+     * Checks if there is an {@code Event} on a certain date.
+     * @param date  The date we are checking.
+     * @return      true if there is an event on that date
+     */
+    public boolean hasEventsOn(LocalDate date) {
+        if (headOf(date.toEpochDay()) != NONE) return true;
+        return recurringEvents.anyOn(date, recurringEvent -> true);
+    }
+
+    /**
+     * Streams every event taking place between two dates in order of date and start time.
+     * Each date of a {@code RecurringEvent} is returned as its own {@code Event} on that date.
+     * Events are created as the stream reaches them. The calendar must not be changed while the
+     * stream is being used.
+     * @param from  the first date, inclusive
+     * @param to    the last date, inclusive
+     * @return      a stream of the events
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+    public Stream<Event> query(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        Iterable<Event> oneTimeEvents = () -> new Iterator<>() {
+            private LocalDate date = from.minusDays(1);
+            private int slot = NONE;
+
+            @Override
+            public boolean hasNext() {
+                while (slot == NONE && date.isBefore(to)) {
+                    date = date.plusDays(1);
+                    slot = headOf(date.toEpochDay());
+                }
+                return slot != NONE;
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Event event = eventAt(slot, date);
+                slot = slots.getInt(slot * SLOT_SIZE + NEXT);
+                return event;
+            }
+        };
+        Iterator<Event> iterator = new OccurrenceIterator(oneTimeEvents, recurringEvents, from, to);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Deletes an event on the specified date and with the specified name.
+     * @param name  the name of the event being deleted
+     * @param date  the date the event is on
+     * @return      true if the event was successfully deleted and false if it wasn't
+     */
+    public boolean deleteEvent(String name, LocalDate date) {
+        boolean deleted = false;
+        int nameOffset = nameOffset(name, false);
+        int table = dayTableSlot(date.toEpochDay());
+        if (nameOffset != NONE && dayKeys[table] != EMPTY) {
+            int previous = NONE;
+            int slot = dayHeads[table];
+            while (slot != NONE) {
+                int next = slots.getInt(slot * SLOT_SIZE + NEXT);
+                if (slots.getInt(slot * SLOT_SIZE + NAME) == nameOffset) {
+                    if (previous == NONE) dayHeads[table] = next;
+                    else slots.putInt(previous * SLOT_SIZE + NEXT, next);
+                    freeSlot(slot);
+                    deleted = true;
+                }
+                else previous = slot;
+                slot = next;
+            }
+            if (dayHeads[table] == NONE) removeDay(table);
+        }
+        // a recurring event only loses this one date
+        for (RecurringEvent recurringEvent : recurringEvents.on(date)) {
+            if (recurringEvent.getName().equals(name) && recurringEvents.exclude(recurringEvent, date)) deleted = true;
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes all events on a specific date.
+     * @param date  the date the events are being deleted on
+     * @return      true if any event was deleted and false if there were none on the date
+     */
+    public boolean deleteAllEventsOn(LocalDate date) {
+        boolean deleted = false;
+        int table = dayTableSlot(date.toEpochDay());
+        if (dayKeys[table] != EMPTY) {
+            for (int slot = dayHeads[table]; slot != NONE; ) {
+                int next = slots.getInt(slot * SLOT_SIZE + NEXT);
+                freeSlot(slot);
+                slot = next;
+            }
+            removeDay(table);
+            deleted = true;
+        }
+        for (RecurringEvent recurringEvent : recurringEvents.on(date)) {
+            if (recurringEvents.exclude(recurringEvent, date)) deleted = true;
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes a {@code RecurringEvent} with the name provided.
+     * @param name  name of the {@code RecurringEvent} being removed.
+     * @return      True if the {@code RecurringEvent} event got removed
+     */
+    public boolean deleteRecurringEvent(String name) {
+        int nameOffset = nameOffset(name, false);
+        if (nameOffset == NONE) return false;
+        ArrayList<RecurringEvent> named = recurringEventsByName.remove(nameOffset);
+        if (named == null) return false;
+        for (RecurringEvent event : named) recurringEvents.remove(event);
+        return true;
+    }
+
+    /**
+     * Deletes every event on the calendar and frees the space their names took up.
+     */
+    public void deleteAllEvents() {
+        recurringEvents.clear();
+        recurringEventsByName.clear();
+        clear();
+    }
+
+    /**
+     * Outputs a month view of the calendar as a String with the month and year at the top.
+     * @param month the month being displayed
+     * @return      the String of the month view.
+     */
+    public String displayMonth(YearMonth month) {
+        return MyCalendar.displayMonth(month.atDay(1), today, this::hasEventsOn);
+    }
+
+    /**
+     * Empties the slots, names, and day table.
+     */
+    private void clear() {
+        slotsUsed = 0;
+        freeSlot = NONE;
+        size = 0;
+        namesUsed = 0;
+        nameTable = new int[INITIAL_TABLE_SIZE];
+        nameCount = 0;
+        nameStrings = new String[INITIAL_TABLE_SIZE];
+        dayKeys = new long[INITIAL_TABLE_SIZE];
+        Arrays.fill(dayKeys, EMPTY);
+        dayHeads = new int[INITIAL_TABLE_SIZE];
+        dayCount = 0;
+    }
+
+    /**
+     * Creates the {@code Event} held in a slot.
+     * @param slot  the slot
+     * @param date  the date of the event
+     * @return      the event
+     */
+    private Event eventAt(int slot, LocalDate date) {
+        int offset = slot * SLOT_SIZE;
+        return new Event(nameAt(slots.getInt(offset + NAME)), date,
+                new TimeInterval(slots.getShort(offset + START), slots.getShort(offset + END)));
+    }
+
+    /**
+     * Gets the start minute of the event in a slot.
+     * @param slot  the slot
+     * @return      the start minute of the day
+     */
+    private int startOf(int slot) {return slots.getShort(slot * SLOT_SIZE + START);}
+
+    /**
+     * Gets the end minute of the event in a slot.
+     * @param slot  the slot
+     * @return      the end minute of the day
+     */
+    private int endOf(int slot) {return slots.getShort(slot * SLOT_SIZE + END);}
+
+    /**
+     * Gets a slot for a new event, reusing a deleted event's slot if there is one.
+     * @return  the slot
+     */
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = slots.getInt(slot * SLOT_SIZE + NEXT);
+            return slot;
+        }
+        if ((slotsUsed + 1) * (long) SLOT_SIZE > slots.capacity()) slots = grow(slots, slotsUsed * SLOT_SIZE);
+        return slotsUsed++;
+    }
+
+    /**
+     * Adds the slot of a deleted event to the free list.
+     * @param slot  the slot
+     */
+    private void freeSlot(int slot) {
+        slots.putInt(slot * SLOT_SIZE + NEXT, freeSlot);
+        freeSlot = slot;
+        size--;
+    }
+
+    /**
+     * Copies a buffer into a new direct buffer twice as large.
+     * @param buffer    the buffer
+     * @param used      the number of bytes in use
+     * @return          the new buffer
+     * @throws IllegalStateException    if the buffer can't grow past 2 GB
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int used) {
+        if (buffer.capacity() == Integer.MAX_VALUE) throw new IllegalStateException("off-heap calendar is full");
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, buffer.capacity() * 2L));
+        grown.put(0, buffer, 0, used);
+        return grown;
+    }
+
+    /**
+     * Gets the offset of a name in the name buffer.
+     * @param name      the name
+     * @param insert    true to add the name if it isn't there yet
+     * @return          the offset of the name, or {@code -1} if it isn't there and {@code insert} is false
+     */
+    private int nameOffset(String name, boolean insert) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = Arrays.hashCode(bytes);
+        int mask = nameTable.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int entry = nameTable[i];
+            if (entry == 0) break;
+            if (nameEquals(entry - 1, hash, bytes)) return entry - 1;
+        }
+        if (!insert) return NONE;
+
+        while ((long) namesUsed + NAME_BYTES + bytes.length > names.capacity()) names = grow(names, namesUsed);
+        int offset = namesUsed;
+        names.putInt(offset + NAME_HASH, hash);
+        names.putInt(offset + NAME_ID, nameCount);
+        names.putInt(offset + NAME_LENGTH, bytes.length);
+        names.put(offset + NAME_BYTES, bytes);
+        namesUsed += NAME_BYTES + bytes.length;
+        if (++nameCount * 2 > nameTable.length) resizeNameTable();
+        insertName(offset, hash);
+        return offset;
+    }
+
+    /**
+     * Checks if the name at an offset is the same as a name.
+     * @param offset    the offset of the stored name
+     * @param hash      the hash of the name
+     * @param bytes     the UTF-8 bytes of the name
+     * @return          true if they are the same
+     */
+    private boolean nameEquals(int offset, int hash, byte[] bytes) {
+        if (names.getInt(offset + NAME_HASH) != hash || names.getInt(offset + NAME_LENGTH) != bytes.length) return false;
+        int start = offset + NAME_BYTES;
+        for (int i = 0; i < bytes.length; i++) {
+            if (names.get(start + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the name at an offset, decoding it the first time it is asked for.
+     * @param offset    the offset of the name
+     * @return          the name, the same String every time
+     */
+    private String nameAt(int offset) {
+        int id = names.getInt(offset + NAME_ID);
+        if (id >= nameStrings.length) nameStrings = Arrays.copyOf(nameStrings, nameTable.length);
+        String name = nameStrings[id];
+        if (name == null) {
+            byte[] bytes = new byte[names.getInt(offset + NAME_LENGTH)];
+            names.get(offset + NAME_BYTES, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            nameStrings[id] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Adds a stored name to the name table.
+     * @param offset    the offset of the name
+     * @param hash      the hash of the name
+     */
+    private void insertName(int offset, int hash) {
+        int mask = nameTable.length - 1;
+        int i = spread(hash) & mask;
+        while (nameTable[i] != 0) i = (i + 1) & mask;
+        nameTable[i] = offset + 1;
+    }
+
+    /**
+     * Doubles the size of the name table.
+     */
+    private void resizeNameTable() {
+        int[] old = nameTable;
+        nameTable = new int[old.length * 2];
+        for (int entry : old) {
+            if (entry != 0) insertName(entry - 1, names.getInt(entry - 1 + NAME_HASH));
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash so nearby hashes don't cluster together.
+     * @param hash  the hash
+     * @return      the spread hash
+     */
+    private static int spread(long hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Gets the first slot of a day.
+     * @param day   the epoch day
+     * @return      the slot of the earliest event on the day, or {@code -1} if it has none
+     */
+    private int headOf(long day) {
+        int table = dayTableSlot(day);
+        return dayKeys[table] == EMPTY ? NONE : dayHeads[table];
+    }
+
+    /**
+     * Gets the position of a day in the day table.
+     * @param day   the epoch day
+     * @return      the position holding the day, or the empty position it would go in
+     */
+    private int dayTableSlot(long day) {
+        int mask = dayKeys.length - 1;
+        int i = spread(day) & mask;
+        while (dayKeys[i] != EMPTY && dayKeys[i] != day) i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Adds a day to the day table.
+     * @param table the empty position the day goes in
+     * @param day   the epoch day
+     * @param head  the slot of the first event on the day
+     */
+    private void putDay(int table, long day, int head) {
+        dayKeys[table] = day;
+        dayHeads[table] = head;
+        if (++dayCount * 2 > dayKeys.length) {
+            long[] oldKeys = dayKeys;
+            int[] oldHeads = dayHeads;
+            dayKeys = new long[oldKeys.length * 2];
+            Arrays.fill(dayKeys, EMPTY);
+            dayHeads = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int moved = dayTableSlot(oldKeys[i]);
+                dayKeys[moved] = oldKeys[i];
+                dayHeads[moved] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * Removes a day from the day table, moving back any days that were pushed past it.
+     * @param table the position of the day
+     */
+    private void removeDay(int table) {
+        int mask = dayKeys.length - 1;
+        int hole = table;
+        for (int i = (hole + 1) & mask; dayKeys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = spread(dayKeys[i]) & mask;
+            // move the day into the hole if the hole lies between its home and where it is now
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                dayKeys[hole] = dayKeys[i];
+                dayHeads[hole] = dayHeads[i];
+                hole = i;
+            }
+        }
+        dayKeys[hole] = EMPTY;
+        dayCount--;
+    }
+}
@@ -0,0 +1,144 @@
+package calendar;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The count and latency histogram of one kind of calendar operation.
+ * Latencies go into a fixed set of buckets, eight for every power of two nanoseconds, so a
+ * percentile is never more than an eighth above the true value. Recording a latency only adds to
+ * {@code LongAdder}s that already exist, so it doesn't allocate and threads recording at the
+ * same time don't wait on each other.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230308
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int MAX_EXPONENT = 45;        // about 9.8 hours
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final String name;
+    private final LongAdder count;
+    private final LongAdder totalNanos;
+    private final LongAccumulator maxNanos;
+    private final LongAdder[] buckets;
+
+    /**
+     * Creates an empty {@code OperationMetrics}.
+     * @param name  the name of the operation, such as {@code add}
+     */
+    OperationMetrics(String name) {
+        this.name = name;
+        count = new LongAdder();
+        totalNanos = new LongAdder();
+        maxNanos = new LongAccumulator(Math::max, 0);
+        buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Records one operation.
+     * @param nanos how long the operation took in nanoseconds
+     */
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets[bucketOf(nanos)].increment();
+    }
+
+    /**
+     * Gets the bucket a latency goes in.
+     * @param nanos the latency in nanoseconds
+     * @return      the index of the bucket
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        // the three bits after the highest one pick the bucket within the power of two
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest latency that goes in a bucket.
+     * @param bucket    the index of the bucket
+     * @return          the latency in nanoseconds
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+
+    /**
+     * Finds a percentile of the latencies in a histogram.
+     * @param bucketCounts  the number of latencies in each bucket
+     * @param percentile    the percentile, from 0 to 100
+     * @param maxNanos      the largest latency recorded
+     * @return              the percentile in nanoseconds, or 0 if nothing was recorded
+     */
+    static long percentileOf(long[] bucketCounts, double percentile, long maxNanos) {
+        long total = 0;
+        for (long bucketCount : bucketCounts) total += bucketCount;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) return Math.min(upperBoundOf(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Copies the number of latencies in each bucket.
+     * @return  the bucket counts
+     */
+    long[] bucketCounts() {
+        long[] bucketCounts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) bucketCounts[i] = buckets[i].sum();
+        return bucketCounts;
+    }
+
+    /**
+     * Gets the name of the operation.
+     * @return  the name, such as {@code add}
+     */
+    public String getName() {return name;}
+
+    @Override
+    public long getCount() {return count.sum();}
+
+    @Override
+    public long getTotalNanos() {return totalNanos.sum();}
+
+    @Override
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+
+    @Override
+    public long getMaxNanos() {return maxNanos.get();}
+
+    @Override
+    public long getMedianNanos() {return percentileOf(bucketCounts(), 50, getMaxNanos());}
+
+    @Override
+    public long get99thPercentileNanos() {return percentileOf(bucketCounts(), 99, getMaxNanos());}
+
+    /**
+     * Clears the count and histogram.
+     */
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (LongAdder bucket : buckets) bucket.reset();
+    }
+}
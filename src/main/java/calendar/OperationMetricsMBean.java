@@ -0,0 +1,44 @@
+package calendar;
+
+/**
+ * The JMX view of {@code OperationMetrics}.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230308
+ */
+public interface OperationMetricsMBean {
+    /**
+     * Gets the number of times the operation was done.
+     * @return  the count
+     */
+    long getCount();
+
+    /**
+     * Gets the time spent on the operation altogether.
+     * @return  the total in nanoseconds
+     */
+    long getTotalNanos();
+
+    /**
+     * Gets the average latency of the operation.
+     * @return  the mean in nanoseconds
+     */
+    long getMeanNanos();
+
+    /**
+     * Gets the longest latency of the operation.
+     * @return  the maximum in nanoseconds
+     */
+    long getMaxNanos();
+
+    /**
+     * Gets the median latency of the operation.
+     * @return  the median in nanoseconds
+     */
+    long getMedianNanos();
+
+    /**
+     * Gets the 99th percentile latency of the operation.
+     * @return  the 99th percentile in nanoseconds
+     */
+    long get99thPercentileNanos();
+}
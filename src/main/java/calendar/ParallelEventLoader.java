@@ -0,0 +1,391 @@
+package calendar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads large files in the events.txt format using every core.
+ * Each record in events.txt is exactly two lines: the name, then the schedule. The file is split
+ * into chunks that start on a name line and each chunk is parsed on its own thread straight from a
+ * memory-mapped buffer. The parsed events are then added to the calendar one at a time in file order,
+ * so when two events conflict the one written first is kept, however the file was split into chunks
+ * and whatever the parallelism.
+ * <p>
+ * A record that can't be parsed is skipped and reported in the {@link ImportResult}, along with
+ * the records that conflicted with an event, and the load carries on with the next record.
+ * {@code MyCalendarTester.readFile} reads every file through this loader, small files on one
+ * thread, so a file loads the same way whatever its size.
+ * <p>
+ * To find where each chunk starts, the newlines in every chunk are first counted in parallel. The
+ * number of newlines before a chunk tells whether a line near its start is a name or a schedule,
+ * so no chunk has to be read from the start of the file.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230228
+ */
+public class ParallelEventLoader {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 28;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelEventLoader() {}
+
+    /**
+     * Loads a file in the events.txt format into a calendar using all available cores.
+     * @param file      the file
+     * @param calendar  the calendar the events are added to
+     * @return          the events added and the records that were skipped
+     * @throws IOException  if the file can't be read
+     */
+    public static ImportResult load(Path file, MyCalendar calendar) throws IOException {
+        return load(file, calendar, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads a file in the events.txt format into a calendar.
+     * @param file          the file
+     * @param calendar      the calendar the events are added to
+     * @param parallelism   the number of threads parsing the file
+     * @return              the events added and the records that were skipped
+     * @throws IOException  if the file can't be read
+     */
+    public static ImportResult load(Path file, MyCalendar calendar, int parallelism) throws IOException {
+        ImportResult result = new ImportResult();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return result;
+            long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                    Math.max(MIN_CHUNK_SIZE, size / ((long) parallelism * CHUNKS_PER_THREAD) + 1));
+            int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+
+            // count the newlines in every chunk
+            List<Callable<Long>> counts = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = i * chunkSize;
+                long end = Math.min(size, start + chunkSize);
+                counts.add(() -> countNewlines(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+            }
+            List<Long> newlines = invokeAll(pool, counts);
+
+            // move each chunk start forward to the next name line
+            long[] starts = new long[chunks + 1];
+            long[] firstLines = new long[chunks + 1];
+            long linesBefore = 0;
+            for (int i = 1; i < chunks; i++) {
+                linesBefore += newlines.get(i - 1);
+                long rawStart = i * chunkSize;
+                long start = rawStart;
+                long line = linesBefore;
+                if (byteAt(channel, rawStart - 1) != '\n') {
+                    start = nextLineStart(channel, rawStart, size);
+                    line++;
+                }
+                if (line % 2 == 1) {
+                    start = nextLineStart(channel, start, size);
+                    line++;
+                }
+                // a record longer than a chunk moved the previous start past this one, so the previous
+                // chunk is left empty and this one starts where it would have
+                if (start < starts[i - 1]) {
+                    start = starts[i - 1];
+                    line = firstLines[i - 1];
+                }
+                starts[i] = start;
+                firstLines[i] = line;
+            }
+            starts[chunks] = size;
+
+            // parse every chunk
+            List<Callable<ChunkParser>> parsers = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = starts[i];
+                long end = starts[i + 1];
+                long firstLine = firstLines[i];
+                parsers.add(() -> new ChunkParser(
+                        channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, end - start)), firstLine).parse());
+            }
+            List<ChunkParser> parsed = invokeAll(pool, parsers);
+
+            // add the chunks in file order, as one batch
+            calendar.beginBatch();
+            try {
+                for (ChunkParser chunk : parsed) chunk.addTo(calendar, result);
+            } finally {
+                calendar.endBatch();
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs tasks in a pool and waits for all of them.
+     * @param pool  the pool
+     * @param tasks the tasks
+     * @return      the results in the same order as the tasks
+     * @throws IOException  if a task failed to read the file
+     */
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) results.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while loading", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Counts the newlines in a buffer.
+     * @param buffer    the buffer
+     * @return          the number of newlines
+     */
+    private static long countNewlines(ByteBuffer buffer) {
+        long count = 0;
+        while (buffer.hasRemaining()) {
+            if (buffer.get() == '\n') count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads one byte of a file.
+     * @param channel   the file
+     * @param position  the position of the byte
+     * @return          the byte
+     * @throws IOException  if the file can't be read
+     */
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    /**
+     * Finds the start of the line after the one containing a position.
+     * @param channel   the file
+     * @param position  the position
+     * @param size      the size of the file
+     * @return          the start of the next line, or the size of the file if there is none
+     * @throws IOException  if the file can't be read
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the records in one chunk of the file and adds them to the calendar.
+     */
+    private static class ChunkParser {
+        private final MappedByteBuffer buffer;
+        private final ArrayList<Event> events;
+        private final ArrayList<ImportResult.RecordError> errors;
+        private final NameTable names;
+        private long[] eventLines;
+        private long line;
+        private byte[] lineBytes;
+        private byte[] nameBytes;
+        private String name;
+
+        /**
+         * Creates a {@code ChunkParser}.
+         * @param buffer    the chunk, starting on a name line
+         * @param firstLine the index of the chunk's first line in the file
+         */
+        private ChunkParser(MappedByteBuffer buffer, long firstLine) {
+            this.buffer = buffer;
+            this.events = new ArrayList<>();
+            this.errors = new ArrayList<>();
+            this.names = new NameTable();
+            this.eventLines = new long[64];
+            this.line = firstLine;
+            this.lineBytes = new byte[128];
+            this.nameBytes = new byte[0];
+        }
+
+        /**
+         * Parses every record in the chunk, skipping those that can't be parsed.
+         * @return  this parser, holding the events and errors of the chunk
+         */
+        private ChunkParser parse() {
+            while (buffer.hasRemaining()) {
+                int length = readLine();
+                long recordLine = line;
+                // records with the same name are often next to each other, so the last name is reused,
+                // and the chunk keeps one String per name until the calendar interns it into its own table
+                if (name == null || !Arrays.equals(lineBytes, 0, length, nameBytes, 0, nameBytes.length)) {
+                    nameBytes = Arrays.copyOf(lineBytes, length);
+                    name = names.intern(new String(nameBytes, StandardCharsets.UTF_8));
+                }
+                if (!buffer.hasRemaining()) {
+                    errors.add(new ImportResult.RecordError(recordLine, "missing schedule line for " + name));
+                    break;
+                }
+                length = readLine();
+                try {
+                    Event event = parseSchedule(name, length);
+                    if (events.size() == eventLines.length) eventLines = Arrays.copyOf(eventLines, eventLines.length * 2);
+                    eventLines[events.size()] = recordLine;
+                    events.add(event);
+                } catch (DateTimeException | IndexOutOfBoundsException e) {
+                    errors.add(new ImportResult.RecordError(recordLine, e.getMessage()));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds the events of the chunk to a calendar in file order, and reports them and the
+         * skipped records in file order.
+         * @param calendar  the calendar the events are added to
+         * @param result    the result of the load
+         */
+        private void addTo(MyCalendar calendar, ImportResult result) {
+            int nextError = 0;
+            for (int i = 0; i < events.size(); i++) {
+                // records skipped before this one come first
+                while (nextError < errors.size() && errors.get(nextError).getLine() < eventLines[i]) {
+                    ImportResult.RecordError error = errors.get(nextError++);
+                    result.error(error.getLine(), error.getMessage());
+                }
+
+                Event event = events.get(i);
+                if (event instanceof RecurringEvent) {
+                    RecurringEvent recurringEvent = (RecurringEvent) event;
+                    if (calendar.add(recurringEvent)) result.recurringEventAdded();
+                    else result.error(eventLines[i], "conflicts with an event between "
+                            + recurringEvent.getStartDate() + " and " + recurringEvent.getEndDate());
+                }
+                else if (calendar.add(event)) result.eventAdded();
+                else result.error(eventLines[i], "conflicts with an event on " + event.getStartDate());
+            }
+            while (nextError < errors.size()) {
+                ImportResult.RecordError error = errors.get(nextError++);
+                result.error(error.getLine(), error.getMessage());
+            }
+        }
+
+        /**
+         * Reads the next line into {@code lineBytes}, without the line ending.
+         * @return  the length of the line
+         */
+        private int readLine() {
+            int length = 0;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') break;
+                if (length == lineBytes.length) lineBytes = Arrays.copyOf(lineBytes, length * 2);
+                lineBytes[length++] = b;
+            }
+            if (length > 0 && lineBytes[length - 1] == '\r') length--;
+            line++;
+            return length;
+        }
+
+        /**
+         * Parses a schedule line, either {@code M/d/yy H:m H:m} for a one time event or
+         * {@code days H:m H:m M/d/yy M/d/yy} for a recurring event.
+         * @param name      the name of the event
+         * @param length    the length of the schedule line in {@code lineBytes}
+         * @return          the event
+         */
+        private Event parseSchedule(String name, int length) {
+            int[] fields = splitFields(length);
+            if (isDays(fields[0], fields[1])) {
+                String days = new String(lineBytes, fields[0], fields[1] - fields[0], StandardCharsets.US_ASCII)
+                        .toUpperCase();
+                LocalTime startTime = parseTime(fields[2], fields[3]);
+                LocalTime endTime = parseTime(fields[4], fields[5]);
+                LocalDate startDate = parseDate(fields[6], fields[7]);
+                LocalDate endDate = parseDate(fields[8], fields[9]);
+                return new RecurringEvent(name, days, startDate, endDate, startTime, endTime);
+            }
+            LocalDate date = parseDate(fields[0], fields[1]);
+            return new Event(name, date, parseTime(fields[2], fields[3]), parseTime(fields[4], fields[5]));
+        }
+
+        /**
+         * Finds the start and end of up to five space separated fields.
+         * @param length    the length of the line
+         * @return          the start and end of each field, unused fields are empty
+         */
+        private int[] splitFields(int length) {
+            int[] fields = new int[10];
+            int field = 0;
+            int i = 0;
+            while (field < 5 && i < length) {
+                while (i < length && lineBytes[i] == ' ') i++;
+                fields[2 * field] = i;
+                while (i < length && lineBytes[i] != ' ') i++;
+                fields[2 * field + 1] = i;
+                field++;
+            }
+            return fields;
+        }
+
+        /**
+         * Checks if a field is a list of days, the same test {@code MyCalendarTester.readFile} uses.
+         * @param start the start of the field
+         * @param end   the end of the field
+         * @return      true if the field contains a day letter
+         */
+        private boolean isDays(int start, int end) {
+            for (int i = start; i < end; i++) {
+                switch (Character.toUpperCase((char) lineBytes[i])) {
+                    case 'S', 'M', 'T', 'W', 'R', 'F', 'A' -> {
+                        return true;
+                    }
+                    default -> {}
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Parses a date using the {@code M/d/yy} pattern.
+         * @param start the start of the field
+         * @param end   the end of the field
+         * @return      the date
+         */
+        private LocalDate parseDate(int start, int end) {return DateTimeText.parseDate(lineBytes, start, end, 2);}
+
+        /**
+         * Parses a time using the {@code H:m} pattern.
+         * @param start the start of the field
+         * @param end   the end of the field
+         * @return      the time
+         */
+        private LocalTime parseTime(int start, int end) {return DateTimeText.parseTime(lineBytes, start, end);}
+    }
+}
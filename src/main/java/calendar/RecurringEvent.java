@@ -1,21 +1,32 @@
 package calendar;
 
 import java.time.DateTimeException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 /**
  * An {@code Event} that is recurring.
- * A {@code RecurringEvent} takes place on multiple days of the week and repeats weekly
+ * A {@code RecurringEvent} takes place on multiple days of the week and repeats weekly.
+ * The dates are not stored, they are worked out from the days of the week, the first date,
+ * and the last date whenever they are needed. A {@code RecurringEvent} never changes once created;
+ * the dates deleted from it are kept by the calendar it is on.
  * @see calendar.Event
  * @author Jonathan Stewart Thomas
- * @version 1.0.1.230214
+ * @version 1.0.2.230221
  */
 public class RecurringEvent extends Event{
-    private final ArrayList<LocalDate> dates;
-    private final String days;
+    static final int ALL_DAYS = 0x7F;
+    private static final String[] DAYS_OF_MASK = new String[1 << 7];
+    private final int dayMask;
+    private final LocalDate firstDate;
+    private final LocalDate lastDate;
+
+    static {
+        // every event with the same days shares one String of them
+        for (int mask = 0; mask < DAYS_OF_MASK.length; mask++) DAYS_OF_MASK[mask] = convertDayMaskToDays(mask);
+    }
 
     /**
      * Creates a {@code RecurringEvent}.
@@ -27,7 +38,8 @@ public class RecurringEvent extends Event{
      * @param endDate               date the event stops recurring
      * @param startTime             time the event starts
      * @param endTime               time the event ends
-     * @throws DateTimeException    if the start date is after the end date
+     * @throws DateTimeException    if the start date is after the end date or the event
+     *                              never takes place between them
      */
     public RecurringEvent(String name, String days, LocalDate startDate,
                           LocalDate endDate, LocalTime startTime, LocalTime endTime) {
@@ -35,71 +47,156 @@ public class RecurringEvent extends Event{
         if (startDate.isAfter(endDate) || startDate.equals(endDate))
             throw new DateTimeException("end date must be after start date");
 
-        dates = new ArrayList<>();
-        this.days = days;
-        int[] recurringDays = convertDaysToDayOfWeekValue(days);
-        LocalDate[] recurringDates = new LocalDate[recurringDays.length];
-        recurringDates[0] = startDate;
-        LocalDate date = startDate;
-        int k = 1;
-        for (int i = 1; i < 7; i++) {
-            date = date.plusDays(1);
-            for (int day : recurringDays) {
-                if (date.getDayOfWeek().getValue() == day) {
-                    recurringDates[k] = date;
-                    k++;
-                    break;
-                }
-            }
-        }
+        dayMask = convertDaysToDayMask(days);
+        firstDate = firstOccurrenceFrom(startDate);
+        if (firstDate == null || firstDate.isAfter(endDate))
+            throw new DateTimeException("event must take place between the start and end date");
+        lastDate = lastOccurrenceUntil(endDate);
+    }
 
-        for (LocalDate d : recurringDates) {
-            while (d.isBefore(endDate) || d.isEqual(endDate)) {
-                dates.add(d);
-                d = d.plusWeeks(1);
-            }
-        }
+    /**
+     * Creates a {@code RecurringEvent} from its stored form, such as a snapshot.
+     * The first and last date must be dates the event takes place on.
+     * @param name          name of the event
+     * @param dayMask       days of the week the event takes place on as a bit mask
+     * @param firstDate     first date the event takes place on
+     * @param lastDate      last date the event takes place on
+     * @param timeInterval  time interval of the event
+     */
+    RecurringEvent(String name, int dayMask, LocalDate firstDate, LocalDate lastDate, TimeInterval timeInterval) {
+        super(name, firstDate, timeInterval);
+        this.dayMask = dayMask;
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
     }
 
     /**
-     * Converts a String of day abbreviations into integers referring to the day of the week.
+     * Converts a String of day abbreviations into a bit mask of the days of the week.
+     * Bit {@code 0} is Monday and bit {@code 6} is Sunday.
      * @param days  String of day abbreviations
-     * @return  integer array of days of the week values
-     */
-    private int[] convertDaysToDayOfWeekValue(String days) {
-        // Converting the String days into integers for the day of the week
-        char[] daysToCharArr = days.toCharArray();
-        int[] recurringDays = new int[daysToCharArr.length];
-        for (int i = 0; i< daysToCharArr.length; i++) {
-            if (daysToCharArr[i] == 'S') recurringDays[i] = 7;
-            else if (daysToCharArr[i] == 'M') recurringDays[i] = 1;
-            else if (daysToCharArr[i] == 'T') recurringDays[i] = 2;
-            else if (daysToCharArr[i] == 'W') recurringDays[i] = 3;
-            else if (daysToCharArr[i] == 'R') recurringDays[i] = 4;
-            else if (daysToCharArr[i] == 'F') recurringDays[i] = 5;
-            else recurringDays[i] = 6;
+     * @return  bit mask of the days of the week
+     */
+    private static int convertDaysToDayMask(String days) {
+        int mask = 0;
+        for (char day : days.toCharArray()) {
+            if (day == 'S') mask |= dayBit(DayOfWeek.SUNDAY);
+            else if (day == 'M') mask |= dayBit(DayOfWeek.MONDAY);
+            else if (day == 'T') mask |= dayBit(DayOfWeek.TUESDAY);
+            else if (day == 'W') mask |= dayBit(DayOfWeek.WEDNESDAY);
+            else if (day == 'R') mask |= dayBit(DayOfWeek.THURSDAY);
+            else if (day == 'F') mask |= dayBit(DayOfWeek.FRIDAY);
+            else mask |= dayBit(DayOfWeek.SATURDAY);
         }
-        return recurringDays;
+        return mask;
+    }
+
+    /**
+     * Converts a bit mask of the days of the week into a String of day abbreviations,
+     * starting from Sunday.
+     * @param dayMask   bit mask of the days of the week
+     * @return  String of day abbreviations
+     */
+    static String convertDayMaskToDays(int dayMask) {
+        StringBuilder days = new StringBuilder(7);
+        if ((dayMask & dayBit(DayOfWeek.SUNDAY)) != 0) days.append('S');
+        if ((dayMask & dayBit(DayOfWeek.MONDAY)) != 0) days.append('M');
+        if ((dayMask & dayBit(DayOfWeek.TUESDAY)) != 0) days.append('T');
+        if ((dayMask & dayBit(DayOfWeek.WEDNESDAY)) != 0) days.append('W');
+        if ((dayMask & dayBit(DayOfWeek.THURSDAY)) != 0) days.append('R');
+        if ((dayMask & dayBit(DayOfWeek.FRIDAY)) != 0) days.append('F');
+        if ((dayMask & dayBit(DayOfWeek.SATURDAY)) != 0) days.append('A');
+        return days.toString();
+    }
+
+    /**
+     * Gets the bit for a day of the week in a day mask.
+     * @param dayOfWeek the day of the week
+     * @return          the bit for that day
+     */
+    public static int dayBit(DayOfWeek dayOfWeek) {return 1 << (dayOfWeek.getValue() - 1);}
+
+    /**
+     * Finds the first date on or after a date that falls on one of the days of the week,
+     * ignoring the start date and end date.
+     * @param date  the date to start from
+     * @return      the first matching date, or null if the event recurs on no days
+     */
+    private LocalDate firstOccurrenceFrom(LocalDate date) {
+        if (dayMask == 0) return null;
+        while ((dayMask & dayBit(date.getDayOfWeek())) == 0) date = date.plusDays(1);
+        return date;
     }
 
+    /**
+     * Finds the last date on or before a date that falls on one of the days of the week.
+     * @param date  the date to start from
+     * @return      the last matching date
+     */
+    private LocalDate lastOccurrenceUntil(LocalDate date) {
+        while ((dayMask & dayBit(date.getDayOfWeek())) == 0) date = date.minusDays(1);
+        return date;
+    }
+
+    /**
+     * Checks if the {@code RecurringEvent} takes place on a date.
+     * @param date  the date being checked
+     * @return      true if the event takes place on that date
+     */
+    public boolean occursOn(LocalDate date) {
+        return !date.isBefore(firstDate) && !date.isAfter(lastDate)
+                && (dayMask & dayBit(date.getDayOfWeek())) != 0;
+    }
+
+    /**
+     * Finds the first date on or after a date that the {@code RecurringEvent} takes place on.
+     * @param date  the date to start from
+     * @return      the next date the event takes place, or null if it doesn't take place again
+     */
+    public LocalDate nextOccurrence(LocalDate date) {
+        if (date.isBefore(firstDate)) date = firstDate;
+        if (date.isAfter(lastDate)) return null;
+        date = firstOccurrenceFrom(date);
+        return date.isAfter(lastDate) ? null : date;
+    }
+
+    /**
+     * Gets the days of the week the {@code RecurringEvent} takes place on as a bit mask.
+     * @return  the day mask
+     * @see #dayBit(DayOfWeek)
+     */
+    public int getDayMask() {return dayMask;}
+
+    /**
+     * Gets the days of the week the event takes place on as day abbreviations, such as {@code MW}.
+     * @return  the day abbreviations
+     */
+    public String getDays() {return DAYS_OF_MASK[dayMask];}
+
     /**
      * Gets the dates the {@code RecurringEvent} takes place on.
-     * @return  the dates.
+     * The dates are worked out each time this is called.
+     * @return  the dates in order.
      */
-    public ArrayList<LocalDate> getDates() {return dates;}
+    public ArrayList<LocalDate> getDates() {
+        ArrayList<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = nextOccurrence(firstDate); date != null; date = nextOccurrence(date.plusDays(1))) {
+            dates.add(date);
+        }
+        return dates;
+    }
 
     /**
      * Gets the date the {@code RecurringEvent} starts recurring
      * @return  the starting date
      */
     @Override
-    public LocalDate getStartDate() {return dates.get(0);}
+    public LocalDate getStartDate() {return firstDate;}
 
     /**
      * Gets the date the {@code RecurringEvent} stops recurring
      * @return  the ending date
      */
-    public LocalDate getEndDate() {return dates.get(dates.size() - 1);}
+    public LocalDate getEndDate() {return lastDate;}
 
     /**
      * Outputs {@code RecurringEvent} as a String using the {@code M/d/yy} pattern for the
@@ -108,9 +205,8 @@ public class RecurringEvent extends Event{
      */
     @Override
     public String inFormatMonthDayYear() {
-        DateTimeFormatter monthDayYear = DateTimeFormatter.ofPattern("M/d/yy");
         return String.format("%s\n%s %s %s %s\n", getName(),
-                days, monthDayYear.format(getStartDate()), monthDayYear.format(getEndDate()), getTimeInterval());
+                getDays(), MONTH_DAY_YEAR.format(getStartDate()), MONTH_DAY_YEAR.format(getEndDate()), getTimeInterval());
     }
 
     /**
@@ -119,8 +215,7 @@ public class RecurringEvent extends Event{
      */
     @Override
     public String toString() {
-        DateTimeFormatter monthDayYear = DateTimeFormatter.ofPattern("M/d/yy");
-        return String.format("%s: %s every %s from %s to %s\n", getName(), getTimeInterval(), days,
-                monthDayYear.format(getStartDate()), monthDayYear.format(getEndDate()));
+        return String.format("%s: %s every %s from %s to %s\n", getName(), getTimeInterval(), getDays(),
+                MONTH_DAY_YEAR.format(getStartDate()), MONTH_DAY_YEAR.format(getEndDate()));
     }
 }
@@ -0,0 +1,467 @@
+package calendar;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * The {@code RecurringEvent}s of a calendar and the dates deleted from each of them.
+ * <p>
+ * Each day of the week has an interval tree of the events taking place on it, keyed by their first
+ * and last date, so finding the events on a date only looks at the events on that day of the week
+ * whose dates cover it, instead of every recurring event on the calendar.
+ * <p>
+ * A {@code RecurringEvent} never changes. Deleting one of its dates is recorded here, keyed by the
+ * event, and only events with deleted dates have a set of them. Deleted dates can be read and added
+ * from any thread. Adding and removing events must be done by one thread at a time, with no
+ * other thread reading.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230314
+ */
+class RecurringIndex {
+    // two events can share a first date and start time once the first date is deleted from one of them
+    private static final Comparator<RecurringEvent> ORDER = Comparator
+            .<RecurringEvent>comparingLong(event -> event.getStartDate().toEpochDay())
+            .thenComparingInt(event -> event.getTimeInterval().getStartMinute())
+            .thenComparingInt(event -> event.getTimeInterval().getEndMinute())
+            .thenComparingLong(event -> event.getEndDate().toEpochDay())
+            .thenComparingInt(RecurringEvent::getDayMask)
+            .thenComparing(RecurringEvent::getName);
+    private final TreeSet<RecurringEvent> recurringEvents;
+    private final IntervalTree[] byDay;
+    private final ConcurrentHashMap<RecurringEvent, ConcurrentSkipListSet<LocalDate>> excludedDates;
+
+    /**
+     * Creates an empty {@code RecurringIndex}.
+     */
+    RecurringIndex() {
+        recurringEvents = new TreeSet<>(ORDER);
+        byDay = new IntervalTree[DayOfWeek.values().length];
+        for (int i = 0; i < byDay.length; i++) byDay[i] = new IntervalTree();
+        excludedDates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a {@code RecurringIndex} holding the same events and deleted dates as another.
+     * Later changes to either index don't change the other.
+     * @param other the index being copied
+     * @return      the copy
+     */
+    static RecurringIndex copyOf(RecurringIndex other) {
+        RecurringIndex copy = new RecurringIndex();
+        for (RecurringEvent event : other.recurringEvents) copy.add(event, other.getExcludedDates(event));
+        return copy;
+    }
+
+    /**
+     * Gets the recurring events.
+     * @return  the events sorted by first date and start time, then by the rest of the event
+     */
+    TreeSet<RecurringEvent> getRecurringEvents() {return recurringEvents;}
+
+    /**
+     * Checks if there are no recurring events.
+     * @return  true if there are none
+     */
+    boolean isEmpty() {return recurringEvents.isEmpty();}
+
+    /**
+     * Adds a recurring event.
+     * @param event the event
+     */
+    void add(RecurringEvent event) {
+        recurringEvents.add(event);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((event.getDayMask() & RecurringEvent.dayBit(day)) != 0) byDay[day.ordinal()].add(event);
+        }
+    }
+
+    /**
+     * Adds a recurring event with some of its dates already deleted.
+     * @param event         the event
+     * @param excluded      the dates deleted from it
+     */
+    void add(RecurringEvent event, Collection<LocalDate> excluded) {
+        add(event);
+        for (LocalDate date : excluded) exclude(event, date);
+    }
+
+    /**
+     * Removes a recurring event and forgets its deleted dates.
+     * @param event the event
+     */
+    void remove(RecurringEvent event) {
+        recurringEvents.remove(event);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((event.getDayMask() & RecurringEvent.dayBit(day)) != 0) byDay[day.ordinal()].remove(event);
+        }
+        excludedDates.remove(event);
+    }
+
+    /**
+     * Removes every recurring event.
+     */
+    void clear() {
+        recurringEvents.clear();
+        for (IntervalTree tree : byDay) tree.clear();
+        excludedDates.clear();
+    }
+
+    /**
+     * Deletes one date of a recurring event without changing the rest of it.
+     * @param event the event
+     * @param date  the date
+     * @return      true if the event took place on that date
+     */
+    boolean exclude(RecurringEvent event, LocalDate date) {
+        if (!occursOn(event, date)) return false;
+        return excludedDates.computeIfAbsent(event, key -> new ConcurrentSkipListSet<>()).add(date);
+    }
+
+    /**
+     * Gets the dates deleted from a recurring event.
+     * @param event the event
+     * @return      a read-only view of the deleted dates in order
+     */
+    NavigableSet<LocalDate> getExcludedDates(RecurringEvent event) {
+        NavigableSet<LocalDate> excluded = excludedDates.get(event);
+        return excluded == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(excluded);
+    }
+
+    /**
+     * Checks if a recurring event takes place on a date that wasn't deleted.
+     * @param event the event
+     * @param date  the date
+     * @return      true if the event takes place on that date
+     */
+    boolean occursOn(RecurringEvent event, LocalDate date) {
+        return event.occursOn(date) && !isExcluded(event, date);
+    }
+
+    /**
+     * Finds the first date on or after a date that a recurring event takes place on and wasn't deleted.
+     * @param event the event
+     * @param date  the date to start from
+     * @return      the next date, or null if the event doesn't take place again
+     */
+    LocalDate nextOccurrence(RecurringEvent event, LocalDate date) {
+        date = event.nextOccurrence(date);
+        while (date != null && isExcluded(event, date)) date = event.nextOccurrence(date.plusDays(1));
+        return date;
+    }
+
+    /**
+     * Checks if a date was deleted from a recurring event.
+     * @param event the event
+     * @param date  the date
+     * @return      true if it was deleted
+     */
+    private boolean isExcluded(RecurringEvent event, LocalDate date) {
+        // most events never lose a date, so they have no set to look in
+        Set<LocalDate> excluded = excludedDates.get(event);
+        return excluded != null && excluded.contains(date);
+    }
+
+    /**
+     * Finds the recurring events taking place on a date.
+     * @param date  the date
+     * @return      the events
+     */
+    ArrayList<RecurringEvent> on(LocalDate date) {
+        ArrayList<RecurringEvent> found = new ArrayList<>();
+        anyOn(date, event -> {
+            found.add(event);
+            return false;
+        });
+        return found;
+    }
+
+    /**
+     * Visits the recurring events taking place on a date, until the action asks to stop.
+     * @param date      the date
+     * @param action    called with each event, returns true to stop
+     * @return          true if the action stopped the visit
+     */
+    boolean anyOn(LocalDate date, Predicate<RecurringEvent> action) {
+        long day = date.toEpochDay();
+        return byDay[date.getDayOfWeek().ordinal()].visit(day, day, event -> !isExcluded(event, date) && action.test(event));
+    }
+
+    /**
+     * Visits the recurring events whose first and last dates overlap two dates. Each event is
+     * visited once, even if it takes place on none of the dates between them.
+     * @param from      the first date, inclusive
+     * @param to        the last date, inclusive
+     * @param dayMask   the days of the week an event must take place on at least one of
+     * @param action    called with each event, returns true to stop
+     * @return          true if the action stopped the visit
+     */
+    boolean anyBetween(LocalDate from, LocalDate to, int dayMask, Predicate<RecurringEvent> action) {
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        // an event on several of the days is in several trees
+        Set<RecurringEvent> visited = Integer.bitCount(dayMask) > 1
+                ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((dayMask & RecurringEvent.dayBit(day)) == 0) continue;
+            if (byDay[day.ordinal()].visit(first, last, event -> (visited == null || visited.add(event)) && action.test(event))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the recurring events whose time conflicts with an event on its date.
+     * @param event     the event being checked
+     * @param conflicts the list the conflicting recurring events are added to
+     */
+    void collectConflicts(Event event, Collection<Event> conflicts) {
+        TimeInterval timeInterval = event.getTimeInterval();
+        anyOn(event.getStartDate(), recurringEvent -> {
+            if (recurringEvent.getTimeInterval().isConflicting(timeInterval)) conflicts.add(recurringEvent);
+            return false;
+        });
+    }
+
+    /**
+     * Finds the recurring events whose time conflicts with a recurring event on a date both take
+     * place on. Only events on the same days of the week whose dates overlap are looked at.
+     * @param event         the recurring event being checked
+     * @param excludedDates the dates deleted from {@code event}
+     * @param conflicts     the list the conflicting recurring events are added to
+     */
+    void collectConflicts(RecurringEvent event, Set<LocalDate> excludedDates, Collection<Event> conflicts) {
+        TimeInterval timeInterval = event.getTimeInterval();
+        anyBetween(event.getStartDate(), event.getEndDate(), event.getDayMask(), recurringEvent -> {
+            if (recurringEvent.getTimeInterval().isConflicting(timeInterval)
+                    && sharesDate(recurringEvent, event, excludedDates)) {
+                conflicts.add(recurringEvent);
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Checks if two recurring events take place on a shared date that neither had deleted.
+     * @param event     an event in this index
+     * @param other     the other event
+     * @param excluded  the dates deleted from the other event
+     * @return          true if they share a date
+     */
+    boolean sharesDate(RecurringEvent event, RecurringEvent other, Set<LocalDate> excluded) {
+        int dayMask = event.getDayMask() & other.getDayMask();
+        if (dayMask == 0) return false;
+        LocalDate date = event.getStartDate().isAfter(other.getStartDate()) ? event.getStartDate() : other.getStartDate();
+        LocalDate last = event.getEndDate().isBefore(other.getEndDate()) ? event.getEndDate() : other.getEndDate();
+        for (; !date.isAfter(last); date = date.plusDays(1)) {
+            if ((dayMask & RecurringEvent.dayBit(date.getDayOfWeek())) != 0
+                    && !isExcluded(event, date) && !excluded.contains(date)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A treap of recurring events ordered by first date, where each node also keeps the latest last
+     * date under it, so a search skips every subtree that ends before the dates it looks for.
+     */
+    private static class IntervalTree {
+        private Node root;
+        private int seed = 0x9E3779B9;
+
+        /**
+         * A first date and the events starting on it.
+         */
+        private static class Node {
+            private final long first;
+            private final int priority;
+            private final ArrayList<RecurringEvent> events;
+            private long last;          // latest last date of the events of this node
+            private long maxLast;       // latest last date under this node
+            private Node left;
+            private Node right;
+
+            private Node(long first, int priority) {
+                this.first = first;
+                this.priority = priority;
+                this.events = new ArrayList<>(1);
+            }
+        }
+
+        /**
+         * Adds an event.
+         * @param event the event
+         */
+        void add(RecurringEvent event) {root = add(root, event.getStartDate().toEpochDay(), event);}
+
+        /**
+         * Removes an event.
+         * @param event the event
+         */
+        void remove(RecurringEvent event) {root = remove(root, event.getStartDate().toEpochDay(), event);}
+
+        /**
+         * Removes every event.
+         */
+        void clear() {root = null;}
+
+        /**
+         * Visits the events whose first and last dates overlap two epoch days.
+         * @param from      the first epoch day, inclusive
+         * @param to        the last epoch day, inclusive
+         * @param action    called with each event, returns true to stop
+         * @return          true if the action stopped the visit
+         */
+        boolean visit(long from, long to, Predicate<RecurringEvent> action) {return visit(root, from, to, action);}
+
+        /**
+         * Visits the events under a node whose first and last dates overlap two epoch days, walking
+         * down the right side in a loop so only left subtrees are visited recursively.
+         * @param node      the node, or null
+         * @param from      the first epoch day, inclusive
+         * @param to        the last epoch day, inclusive
+         * @param action    called with each event, returns true to stop
+         * @return          true if the action stopped the visit
+         */
+        private static boolean visit(Node node, long from, long to, Predicate<RecurringEvent> action) {
+            while (node != null && node.maxLast >= from) {
+                if (visit(node.left, from, to, action)) return true;
+                // everything from here on starts after the dates
+                if (node.first > to) return false;
+                if (node.last >= from) {
+                    for (RecurringEvent event : node.events) {
+                        if (event.getEndDate().toEpochDay() >= from && action.test(event)) return true;
+                    }
+                }
+                node = node.right;
+            }
+            return false;
+        }
+
+        /**
+         * Adds an event under a node, rotating the new node up while its priority is higher.
+         * @param node  the node, or null
+         * @param first the first epoch day of the event
+         * @param event the event
+         * @return      the node that takes the place of {@code node}
+         */
+        private Node add(Node node, long first, RecurringEvent event) {
+            if (node == null) {
+                node = new Node(first, nextPriority());
+                node.events.add(event);
+                node.last = event.getEndDate().toEpochDay();
+            }
+            else if (first == node.first) {
+                node.events.add(event);
+                node.last = Math.max(node.last, event.getEndDate().toEpochDay());
+            }
+            else if (first < node.first) {
+                node.left = add(node.left, first, event);
+                if (node.left.priority > node.priority) node = rotateRight(node);
+            }
+            else {
+                node.right = add(node.right, first, event);
+                if (node.right.priority > node.priority) node = rotateLeft(node);
+            }
+            update(node);
+            return node;
+        }
+
+        /**
+         * Removes an event under a node, merging the children of a node left with no events.
+         * @param node  the node, or null
+         * @param first the first epoch day of the event
+         * @param event the event
+         * @return      the node that takes the place of {@code node}
+         */
+        private static Node remove(Node node, long first, RecurringEvent event) {
+            if (node == null) return null;
+            if (first < node.first) node.left = remove(node.left, first, event);
+            else if (first > node.first) node.right = remove(node.right, first, event);
+            else if (node.events.remove(event)) {
+                if (node.events.isEmpty()) return merge(node.left, node.right);
+                node.last = Long.MIN_VALUE;
+                for (RecurringEvent other : node.events) node.last = Math.max(node.last, other.getEndDate().toEpochDay());
+            }
+            update(node);
+            return node;
+        }
+
+        /**
+         * Joins two treaps where every first date of the left one is before those of the right one.
+         * @param left  the left treap, or null
+         * @param right the right treap, or null
+         * @return      the joined treap
+         */
+        private static Node merge(Node left, Node right) {
+            if (left == null) return right;
+            if (right == null) return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
+            }
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+
+        /**
+         * Rotates the left child of a node up into its place.
+         * @param node  the node
+         * @return      the node that takes its place
+         */
+        private static Node rotateRight(Node node) {
+            Node left = node.left;
+            node.left = left.right;
+            left.right = node;
+            update(node);
+            return left;
+        }
+
+        /**
+         * Rotates the right child of a node up into its place.
+         * @param node  the node
+         * @return      the node that takes its place
+         */
+        private static Node rotateLeft(Node node) {
+            Node right = node.right;
+            node.right = right.left;
+            right.left = node;
+            update(node);
+            return right;
+        }
+
+        /**
+         * Works out the latest last date under a node from its own events and its children.
+         * @param node  the node
+         */
+        private static void update(Node node) {
+            long maxLast = node.last;
+            if (node.left != null) maxLast = Math.max(maxLast, node.left.maxLast);
+            if (node.right != null) maxLast = Math.max(maxLast, node.right.maxLast);
+            node.maxLast = maxLast;
+        }
+
+        /**
+         * Gets the next random priority from a xorshift generator.
+         * @return  the priority
+         */
+        private int nextPriority() {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return seed;
+        }
+    }
+}
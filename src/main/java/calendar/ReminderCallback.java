@@ -0,0 +1,16 @@
+package calendar;
+
+/**
+ * Receives the reminders of a {@code ReminderScheduler}.
+ * @see ReminderScheduler
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230312
+ */
+@FunctionalInterface
+public interface ReminderCallback {
+    /**
+     * Called when the reminder for an event is due.
+     * @param event the event, an {@code Event} on its date for each date of a {@code RecurringEvent}
+     */
+    void remind(Event event);
+}
@@ -0,0 +1,347 @@
+package calendar;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Sends a reminder a set time before each event on a {@code MyCalendar}, such as 15 minutes
+ * before, including each date of a {@code RecurringEvent}.
+ * <p>
+ * Only the reminders due within the next {@code window} are held, so the memory used depends on
+ * how busy the window is rather than on the size of the calendar. The events of each new day are
+ * read from the calendar's day index as the window moves forward. Reminders are kept in a
+ * hierarchical timing wheel of minutes: four levels of 64 slots, each level counting in steps 64
+ * times longer than the one below. Scheduling or cancelling a reminder only links or unlinks it
+ * from a slot, and a reminder is moved down a level at most three times before it is sent.
+ * <p>
+ * The scheduler listens to the calendar, so events added or deleted inside the window are
+ * scheduled or cancelled right away. Events put on the calendar without telling its listeners,
+ * such as by {@code CalendarSnapshot.read}, are only seen on days the window hasn't reached yet.
+ * <p>
+ * Time only moves when {@link #advanceTo(LocalDateTime)} is called, which sends every reminder
+ * due by then on the calling thread. Like {@code MyCalendar}, a {@code ReminderScheduler} must
+ * only be used from one thread, the same one that changes the calendar.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230312
+ */
+public class ReminderScheduler implements CalendarListener, AutoCloseable {
+    private static final Duration DEFAULT_WINDOW = Duration.ofDays(1);
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    private final MyCalendar calendar;
+    private final ReminderCallback callback;
+    private final long leadMinutes;
+    private final long windowMinutes;
+    // one extra level with a single slot holds reminders past the top level, which only happens
+    // with a window of decades
+    private final Reminder[][] wheel;
+    private final HashMap<Long, ArrayList<Reminder>> remindersByDay;
+    private final HashMap<String, ArrayList<Reminder>> recurringRemindersByName;
+    private long currentMinute;     // the next minute to send reminders for, in minutes since 1970
+    private long loadedThrough;     // the last epoch day whose events are scheduled
+    private int size;
+    private boolean closed;
+
+    /**
+     * A reminder waiting in a slot of the wheel.
+     */
+    private static class Reminder {
+        private final Event event;
+        private final RecurringEvent series;    // the recurring event the date belongs to, or null
+        private final long dueMinute;
+        private int level;
+        private int slot;
+        private Reminder previous;
+        private Reminder next;
+
+        private Reminder(Event event, RecurringEvent series, long dueMinute) {
+            this.event = event;
+            this.series = series;
+            this.dueMinute = dueMinute;
+        }
+    }
+
+    /**
+     * Creates a {@code ReminderScheduler} holding the reminders due in the next day, and starts
+     * listening to a calendar.
+     * @param calendar  the calendar
+     * @param lead      how long before each event its reminder is sent
+     * @param start     the time to start from, reminders of events starting earlier aren't sent
+     * @param callback  the callback reminders are sent to
+     * @throws IllegalArgumentException if {@code lead} is negative
+     */
+    public ReminderScheduler(MyCalendar calendar, Duration lead, LocalDateTime start, ReminderCallback callback) {
+        this(calendar, lead, DEFAULT_WINDOW, start, callback);
+    }
+
+    /**
+     * Creates a {@code ReminderScheduler} and starts listening to a calendar.
+     * @param calendar  the calendar
+     * @param lead      how long before each event its reminder is sent, to the minute
+     * @param window    how far ahead reminders are held, to the minute
+     * @param start     the time to start from, reminders of events starting earlier aren't sent
+     * @param callback  the callback reminders are sent to
+     * @throws IllegalArgumentException if {@code lead} is negative or {@code window} is under a minute
+     */
+    public ReminderScheduler(MyCalendar calendar, Duration lead, Duration window,
+                             LocalDateTime start, ReminderCallback callback) {
+        if (lead.isNegative()) throw new IllegalArgumentException("lead must not be negative");
+        if (window.toMinutes() < 1) throw new IllegalArgumentException("window must be at least a minute");
+        this.calendar = calendar;
+        this.callback = callback;
+        leadMinutes = lead.toMinutes();
+        windowMinutes = window.toMinutes();
+        wheel = new Reminder[LEVELS + 1][SLOTS];
+        remindersByDay = new HashMap<>();
+        recurringRemindersByName = new HashMap<>();
+        currentMinute = minuteOf(start);
+        loadedThrough = Math.floorDiv(currentMinute, MINUTES_PER_DAY) - 1;
+        calendar.addListener(this);
+        loadWindow();
+    }
+
+    /**
+     * Moves time forward, sending every reminder due up to and including a time in order.
+     * Reminders that came due while time wasn't moved are sent late rather than missed.
+     * Once the scheduler is closed, even by a reminder's callback, nothing more is sent.
+     * @param now   the current time, nothing happens if it is before the last time given
+     */
+    public void advanceTo(LocalDateTime now) {
+        long target = minuteOf(now);
+        while (!closed && currentMinute <= target) {
+            loadWindow();
+            // nothing held means nothing is due before the window has to move again
+            long stop = Math.min(target, currentMinute + windowMinutes);
+            if (size == 0) currentMinute = stop + 1;
+            while (!closed && currentMinute <= stop) tick();
+        }
+    }
+
+    /**
+     * Gets the number of reminders waiting to be sent.
+     * @return  the number of reminders
+     */
+    public int size() {return size;}
+
+    /**
+     * Stops listening to the calendar. No more reminders are sent.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        calendar.removeListener(this);
+        allEventsDeleted();
+    }
+
+    @Override
+    public void eventAdded(Event event) {
+        if (event.getStartDate().toEpochDay() <= loadedThrough) schedule(event, null);
+    }
+
+    @Override
+    public void recurringEventAdded(RecurringEvent event) {
+        LocalDate from = LocalDate.ofEpochDay(Math.floorDiv(currentMinute, MINUTES_PER_DAY));
+        LocalDate to = LocalDate.ofEpochDay(loadedThrough);
+        if (!from.isAfter(to)) scheduleDates(event, from, to);
+    }
+
+    @Override
+    public void eventDeleted(String name, LocalDate date) {
+        ArrayList<Reminder> reminders = remindersByDay.get(date.toEpochDay());
+        if (reminders == null) return;
+        for (Reminder reminder : new ArrayList<>(reminders)) {
+            if (reminder.event.getName().equals(name)) cancel(reminder);
+        }
+    }
+
+    @Override
+    public void recurringDateDeleted(RecurringEvent event, LocalDate date) {
+        ArrayList<Reminder> reminders = remindersByDay.get(date.toEpochDay());
+        if (reminders == null) return;
+        for (Reminder reminder : new ArrayList<>(reminders)) {
+            if (reminder.series == event) cancel(reminder);
+        }
+    }
+
+    @Override
+    public void eventsDeletedOn(LocalDate date) {
+        ArrayList<Reminder> reminders = remindersByDay.get(date.toEpochDay());
+        if (reminders == null) return;
+        for (Reminder reminder : new ArrayList<>(reminders)) cancel(reminder);
+    }
+
+    @Override
+    public void recurringEventDeleted(String name) {
+        // only the reminders of the deleted series are looked at
+        ArrayList<Reminder> reminders = recurringRemindersByName.get(name);
+        if (reminders == null) return;
+        for (Reminder reminder : new ArrayList<>(reminders)) cancel(reminder);
+    }
+
+    @Override
+    public void allEventsDeleted() {
+        for (Reminder[] slots : wheel) Arrays.fill(slots, null);
+        remindersByDay.clear();
+        recurringRemindersByName.clear();
+        size = 0;
+    }
+
+    /**
+     * Schedules the events of the days that have come into the window since it was last moved.
+     */
+    private void loadWindow() {
+        long through = Math.floorDiv(currentMinute + windowMinutes + leadMinutes, MINUTES_PER_DAY);
+        if (through <= loadedThrough) return;
+        // days before today only have events that already started
+        long fromDay = Math.max(loadedThrough + 1, Math.floorDiv(currentMinute, MINUTES_PER_DAY));
+        LocalDate from = LocalDate.ofEpochDay(fromDay);
+        LocalDate to = LocalDate.ofEpochDay(through);
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (Event event : calendar.oneTimeEventsOn(date)) schedule(event, null);
+        }
+        // only the recurring events whose dates overlap the new days are looked at
+        calendar.recurringIndex().anyBetween(from, to, RecurringEvent.ALL_DAYS, recurringEvent -> {
+            scheduleDates(recurringEvent, from, to);
+            return false;
+        });
+        loadedThrough = through;
+    }
+
+    /**
+     * Schedules a reminder for each date of a {@code RecurringEvent} between two dates.
+     * @param recurringEvent    the recurring event
+     * @param from              the first date, inclusive
+     * @param to                the last date, inclusive
+     */
+    private void scheduleDates(RecurringEvent recurringEvent, LocalDate from, LocalDate to) {
+        RecurringIndex index = calendar.recurringIndex();
+        LocalDate date = index.nextOccurrence(recurringEvent, from);
+        while (date != null && !date.isAfter(to)) {
+            schedule(new Event(recurringEvent.getName(), date, recurringEvent.getTimeInterval()), recurringEvent);
+            date = index.nextOccurrence(recurringEvent, date.plusDays(1));
+        }
+    }
+
+    /**
+     * Schedules the reminder of an event that hasn't started yet. A reminder whose time has
+     * already passed is sent at the next minute.
+     * @param event     the event
+     * @param series    the {@code RecurringEvent} the event is a date of, or null for a one time event
+     */
+    private void schedule(Event event, RecurringEvent series) {
+        long day = event.getStartDate().toEpochDay();
+        long startMinute = day * MINUTES_PER_DAY + event.getTimeInterval().getStartMinute();
+        if (startMinute < currentMinute) return;
+        Reminder reminder = new Reminder(event, series, Math.max(startMinute - leadMinutes, currentMinute));
+        place(reminder);
+        remindersByDay.computeIfAbsent(day, key -> new ArrayList<>()).add(reminder);
+        if (series != null) recurringRemindersByName.computeIfAbsent(series.getName(), key -> new ArrayList<>()).add(reminder);
+        size++;
+    }
+
+    /**
+     * Sends the reminders due at the current minute and moves to the next minute.
+     */
+    private void tick() {
+        // a level's slot is emptied into the levels below when the minute enters it, highest first
+        for (int level = LEVELS; level > 0; level--) {
+            if ((currentMinute & ((1L << SLOT_BITS * level) - 1)) == 0) cascade(level, slotOf(currentMinute, level));
+        }
+        int slot = slotOf(currentMinute, 0);
+        Reminder reminder;
+        // reminders are taken one at a time, so the callback can change the calendar
+        while ((reminder = wheel[0][slot]) != null) {
+            cancel(reminder);
+            callback.remind(reminder.event);
+        }
+        currentMinute++;
+    }
+
+    /**
+     * Moves the reminders in a slot into the lower levels.
+     * @param level the level of the slot
+     * @param slot  the slot
+     */
+    private void cascade(int level, int slot) {
+        Reminder reminder = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (reminder != null) {
+            Reminder next = reminder.next;
+            place(reminder);
+            reminder = next;
+        }
+    }
+
+    /**
+     * Links a reminder into the slot of the lowest level whose range holds both its minute and
+     * the current minute.
+     * @param reminder  the reminder, due at or after the current minute
+     */
+    private void place(Reminder reminder) {
+        int level = 0;
+        while (level < LEVELS && (reminder.dueMinute >> SLOT_BITS * (level + 1)) != (currentMinute >> SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Reminder head = wheel[level][slotOf(reminder.dueMinute, level)];
+        reminder.level = level;
+        reminder.slot = slotOf(reminder.dueMinute, level);
+        reminder.previous = null;
+        reminder.next = head;
+        if (head != null) head.previous = reminder;
+        wheel[level][reminder.slot] = reminder;
+    }
+
+    /**
+     * Removes a reminder from the wheel, from its day, and from its series.
+     * @param reminder  the reminder
+     */
+    private void cancel(Reminder reminder) {
+        unlink(reminder);
+        long day = reminder.event.getStartDate().toEpochDay();
+        ArrayList<Reminder> reminders = remindersByDay.get(day);
+        reminders.remove(reminder);
+        if (reminders.isEmpty()) remindersByDay.remove(day);
+        if (reminder.series != null) {
+            ArrayList<Reminder> series = recurringRemindersByName.get(reminder.series.getName());
+            series.remove(reminder);
+            if (series.isEmpty()) recurringRemindersByName.remove(reminder.series.getName());
+        }
+        size--;
+    }
+
+    /**
+     * Unlinks a reminder from its slot.
+     * @param reminder  the reminder
+     */
+    private void unlink(Reminder reminder) {
+        if (reminder.previous != null) reminder.previous.next = reminder.next;
+        else wheel[reminder.level][reminder.slot] = reminder.next;
+        if (reminder.next != null) reminder.next.previous = reminder.previous;
+    }
+
+    /**
+     * Gets the slot a minute falls in on a level of the wheel.
+     * @param minute    the minute
+     * @param level     the level, {@code LEVELS} for the single slot past the top level
+     * @return          the slot
+     */
+    private static int slotOf(long minute, int level) {
+        return level == LEVELS ? 0 : (int) (minute >> SLOT_BITS * level) & (SLOTS - 1);
+    }
+
+    /**
+     * Gets the minutes since 1970 of a time, ignoring seconds.
+     * @param time  the time
+     * @return      the minute
+     */
+    private static long minuteOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+}
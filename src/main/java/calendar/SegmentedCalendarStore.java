@@ -0,0 +1,156 @@
+package calendar;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Saves a {@code MyCalendar} as a directory of small files, so a save only rewrites the parts of
+ * the calendar that changed.
+ * <p>
+ * The one time events of each month are kept in their own file, such as {@code 2023-03.mycs},
+ * and the recurring events in {@code recurring.mycs}. Each file is a {@code CalendarSnapshot}.
+ * {@link #save(MyCalendar)} rewrites only the months {@code MyCalendar} marked as dirty, and the
+ * recurring file if a recurring event changed, so the time it takes depends on how much changed
+ * rather than on the size of the calendar. A month left with no events has its file deleted.
+ * <p>
+ * Every file is written to a temporary file and moved into place, so a file is never left half
+ * written. A save that fails part way leaves the calendar dirty, and the next save writes the
+ * same files again.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230310
+ */
+public class SegmentedCalendarStore {
+    private static final DateTimeFormatter MONTH_FILE = DateTimeFormatter.ofPattern("uuuu-MM");
+    private static final String EXTENSION = ".mycs";
+    private static final String RECURRING_FILE = "recurring" + EXTENSION;
+
+    private final Path directory;
+
+    /**
+     * Creates a {@code SegmentedCalendarStore}.
+     * @param directory the directory the files are kept in, created if it doesn't exist
+     * @throws IOException  if the directory can't be created
+     */
+    public SegmentedCalendarStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Reads every file in the store and adds its events to a calendar, which is then marked clean.
+     * @param calendar  the calendar the events are added to
+     * @throws IOException  if a file can't be read
+     */
+    public void load(MyCalendar calendar) throws IOException {
+        for (YearMonth month : months()) CalendarSnapshot.read(fileOf(month), calendar);
+        Path recurringFile = directory.resolve(RECURRING_FILE);
+        if (Files.exists(recurringFile)) CalendarSnapshot.read(recurringFile, calendar);
+        calendar.markClean();
+    }
+
+    /**
+     * Writes the months and recurring events of a calendar that changed since it was last
+     * loaded or saved, then marks the calendar clean.
+     * @param calendar  the calendar
+     * @return          the number of files written or deleted
+     * @throws IOException  if a file can't be written
+     */
+    public int save(MyCalendar calendar) throws IOException {
+        int written = 0;
+        for (YearMonth month : calendar.getDirtyMonths()) {
+            ArrayList<Event> events = new ArrayList<>(calendar.oneTimeEventsBetween(month.atDay(1), month.atEndOfMonth()));
+            if (events.isEmpty()) Files.deleteIfExists(fileOf(month));
+            else CalendarSnapshot.write(events, Collections.emptyList(), calendar.recurringIndex(), fileOf(month), 0);
+            written++;
+        }
+        if (calendar.isRecurringDirty()) {
+            CalendarSnapshot.write(Collections.emptyList(), calendar.getRecurringEventsList(), calendar.recurringIndex(),
+                    directory.resolve(RECURRING_FILE), 0);
+            written++;
+        }
+        calendar.markClean();
+        return written;
+    }
+
+    /**
+     * Writes every month and the recurring events of a calendar, and deletes the files of months
+     * it has no events in, such as when the store is first filled from another file.
+     * @param calendar  the calendar
+     * @return          the number of files written or deleted
+     * @throws IOException  if a file can't be written
+     */
+    public int saveAll(MyCalendar calendar) throws IOException {
+        int written = 0;
+        for (YearMonth month : months()) {
+            if (calendar.oneTimeEventsBetween(month.atDay(1), month.atEndOfMonth()).isEmpty()) {
+                Files.delete(fileOf(month));
+                written++;
+            }
+        }
+        YearMonth month = null;
+        ArrayList<Event> events = new ArrayList<>();
+        for (Event event : calendar.getOneTimeEventsList()) {
+            YearMonth eventMonth = YearMonth.from(event.getStartDate());
+            if (!eventMonth.equals(month) && !events.isEmpty()) {
+                CalendarSnapshot.write(events, Collections.emptyList(), calendar.recurringIndex(), fileOf(month), 0);
+                events.clear();
+                written++;
+            }
+            month = eventMonth;
+            events.add(event);
+        }
+        if (!events.isEmpty()) {
+            CalendarSnapshot.write(events, Collections.emptyList(), calendar.recurringIndex(), fileOf(month), 0);
+            written++;
+        }
+        CalendarSnapshot.write(Collections.emptyList(), calendar.getRecurringEventsList(), calendar.recurringIndex(),
+                directory.resolve(RECURRING_FILE), 0);
+        calendar.markClean();
+        return written + 1;
+    }
+
+    /**
+     * Checks if the store has no files yet, such as before the first save.
+     * @return  true if there are no month or recurring files
+     * @throws IOException  if the directory can't be read
+     */
+    public boolean isEmpty() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            return !files.iterator().hasNext();
+        }
+    }
+
+    /**
+     * Finds the months that have a file in the store.
+     * @return  the months, in order
+     * @throws IOException  if the directory can't be read
+     */
+    public ArrayList<YearMonth> months() throws IOException {
+        ArrayList<YearMonth> months = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    months.add(YearMonth.parse(name.substring(0, name.length() - EXTENSION.length()), MONTH_FILE));
+                } catch (DateTimeParseException e) {
+                    // not a month file, such as the recurring file
+                }
+            }
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    /**
+     * Gets the file the one time events of a month are kept in.
+     * @param month the month
+     * @return      the file
+     */
+    private Path fileOf(YearMonth month) {return directory.resolve(MONTH_FILE.format(month) + EXTENSION);}
+}
@@ -6,12 +6,25 @@ import java.time.LocalTime;
 /**
  * A time interval containing a start time and end time.
  * For example, {@code 10:30-11:30}
+ * <p>
+ * The interval is stored as the start and end minute of the day packed into one {@code int},
+ * so checking for a conflict is two integer comparisons. Times are kept to the minute, the
+ * precision events are read and saved with: a start time is rounded down and an end time is
+ * rounded up. An end time of {@code LocalTime.MAX} is kept as the end of the day, minute 1440.
  * @author Jonathan Stewart Thomas
- * @version 1.0.1.230214
+ * @version 1.0.2.230302
  */
 public class TimeInterval {
-    private final LocalTime startTime;
-    private final LocalTime endTime;
+    private static final int END_OF_DAY = 24 * 60;
+    private static final LocalTime[] MINUTES = new LocalTime[END_OF_DAY];
+
+    static {
+        for (int minute = 0; minute < MINUTES.length; minute++) {
+            MINUTES[minute] = LocalTime.of(minute / 60, minute % 60);
+        }
+    }
+
+    private final int minutes;  // start minute in the high 16 bits, end minute in the low 16 bits
 
     /**
      * Creates a {@code TimeInterval} with a start and end time.
@@ -22,52 +35,64 @@ public class TimeInterval {
     public TimeInterval(LocalTime startTime, LocalTime endTime) {
         if (startTime.isAfter(endTime) || startTime.equals(endTime))
             throw new DateTimeException("endTime must be after start time");
-        this.startTime = startTime;
-        this.endTime = endTime;
+        int endMinute = endTime.getHour() * 60 + endTime.getMinute();
+        if (endTime.getSecond() != 0 || endTime.getNano() != 0) endMinute++;
+        this.minutes = (startTime.getHour() * 60 + startTime.getMinute()) << 16 | endMinute;
+    }
+
+    /**
+     * Creates a {@code TimeInterval} from the start and end minute of the day.
+     * @param startMinute           start minute of the interval, from 0 to 1439
+     * @param endMinute             end minute of the interval, from 1 to 1440
+     * @throws DateTimeException    if a minute is out of range or the end is not after the start
+     */
+    public TimeInterval(int startMinute, int endMinute) {
+        if (startMinute < 0 || endMinute > END_OF_DAY)
+            throw new DateTimeException("minutes must be between 0 and " + END_OF_DAY);
+        if (startMinute >= endMinute)
+            throw new DateTimeException("endTime must be after start time");
+        this.minutes = startMinute << 16 | endMinute;
     }
 
+    /**
+     * Gets the time at a minute of the day without creating a new {@code LocalTime}.
+     * @param minute    the minute of the day, from 0 to 1440
+     * @return          the time, {@code LocalTime.MAX} for minute 1440
+     */
+    static LocalTime timeOfMinute(int minute) {return minute == END_OF_DAY ? LocalTime.MAX : MINUTES[minute];}
+
     /**
      * Gets the start time of the {@code TimeInterval}.
      * @return  the start time
      */
-    public LocalTime getStart() {return startTime;}
+    public LocalTime getStart() {return MINUTES[getStartMinute()];}
 
     /**
      * Gets the end time of the {@code TimeInterval}.
-     * @return  the end time
+     * @return  the end time, {@code LocalTime.MAX} if the interval lasts until the end of the day
      */
-    public LocalTime getEnd() {return endTime;}
+    public LocalTime getEnd() {return timeOfMinute(getEndMinute());}
 
     /**
-     * Finds if a {@code TimeInterval} is between the other.
-     * @param timeInterval  the other TimeInterval
-     * @return  true if the other is between this one
+     * Gets the start minute of the day of the {@code TimeInterval}.
+     * @return  the start minute, from 0 to 1439
      */
-    private boolean isBetween(TimeInterval timeInterval) {
-        return startTime.isAfter(timeInterval.startTime) && endTime.isBefore(timeInterval.endTime);
-    }
+    public int getStartMinute() {return minutes >>> 16;}
 
     /**
-     * Finds if a start or end time a {@code TimeInterval} is between {@code this}.
-     * @param startTime Interval start time
-     * @param endTime   Interval end time
-     * @return          true if either the start or end time is between {@code TimeInterval}
+     * Gets the end minute of the day of the {@code TimeInterval}.
+     * @return  the end minute, from 1 to 1440
      */
-    private boolean isBetween(LocalTime startTime, LocalTime endTime) {
-        return (this.startTime.isAfter(startTime) && this.startTime.isBefore(endTime))
-                || (this.endTime.isAfter(startTime) && this.endTime.isBefore(endTime));
-    }
+    public int getEndMinute() {return minutes & 0xFFFF;}
 
     /**
      * Checks if a {@code TimeInterval} is conflicting with this one.
+     * Intervals that only touch, such as {@code 10:00-11:00} and {@code 11:00-12:00}, don't conflict.
      * @param timeInterval  the other TimeInterval
      * @return              true if it is conflicting, false if it isn't
      */
     public boolean isConflicting(TimeInterval timeInterval) {
-        if (this.startTime.equals(timeInterval.startTime) || this.endTime.equals(timeInterval.endTime)) return true;
-        else if (this.isBetween(timeInterval)) return true;
-        else if (timeInterval.isBetween(this)) return true;
-        else return timeInterval.isBetween(startTime, endTime);
+        return getStartMinute() < timeInterval.getEndMinute() && timeInterval.getStartMinute() < getEndMinute();
     }
 
     /**
@@ -77,6 +102,6 @@ public class TimeInterval {
      */
     @Override
     public String toString() {
-        return startTime + "-" + endTime;
+        return getStart() + "-" + getEnd();
     }
 }
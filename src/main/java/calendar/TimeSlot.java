@@ -0,0 +1,56 @@
+package calendar;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * A free period of time on a date with no events, found by {@code MyCalendar.findFreeSlots}.
+ * For example, {@code 2023-02-28 13:00-15:30}
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230301
+ */
+public class TimeSlot {
+    private final LocalDate date;
+    private final TimeInterval timeInterval;
+
+    /**
+     * Creates a {@code TimeSlot}.
+     * @param date          the date of the slot
+     * @param timeInterval  the time the slot is free
+     */
+    public TimeSlot(LocalDate date, TimeInterval timeInterval) {
+        this.date = date;
+        this.timeInterval = timeInterval;
+    }
+
+    /**
+     * Gets the date of the {@code TimeSlot}.
+     * @return  the date
+     */
+    public LocalDate getDate() {return date;}
+
+    /**
+     * Gets the time the {@code TimeSlot} is free.
+     * @return  the time interval
+     */
+    public TimeInterval getTimeInterval() {return timeInterval;}
+
+    /**
+     * Gets how long the {@code TimeSlot} is free.
+     * @return  the length of the slot
+     */
+    public Duration getLength() {
+        // a slot ending at LocalTime.MAX lasts until midnight, not a nanosecond before it
+        return Duration.ofMinutes(timeInterval.getEndMinute() - timeInterval.getStartMinute());
+    }
+
+    /**
+     * Outputs {@code TimeSlot} as a String.
+     * For example, {@code 2023-02-28 13:00-15:30}
+     * @return  a String of {@code TimeSlot}
+     */
+    @Override
+    public String toString() {
+        return date + " " + timeInterval;
+    }
+}
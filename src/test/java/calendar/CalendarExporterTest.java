@@ -0,0 +1,108 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the text and CSV files written by {@code CalendarExporter} hold every event of a
+ * calendar, including names that need quoting and calendars larger than the export buffer.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class CalendarExporterTest {
+    @TempDir
+    Path directory;
+
+    private static MyCalendar sampleCalendar() {
+        MyCalendar calendar = new MyCalendar();
+        Random random = new Random(151);
+        String[] names = {"Standup", "Lunch, with \"Sam\"", "Caf\u00e9 \u2615", "CS 151"};
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 20000; i++) {
+            int start = random.nextInt(1380);
+            calendar.add(new Event(names[random.nextInt(names.length)], first.plusDays(random.nextInt(3650)),
+                    LocalTime.of(start / 60, start % 60), LocalTime.of((start + 45) / 60, (start + 45) % 60)));
+        }
+        calendar.add(new Event("Late", LocalDate.of(2040, 1, 1), LocalTime.of(23, 0), LocalTime.MAX));
+        assertTrue(calendar.add(new RecurringEvent("Gym", "MWF", LocalDate.of(2041, 2, 1), LocalDate.of(2041, 6, 30),
+                LocalTime.of(6, 0), LocalTime.of(7, 0))));
+        RecurringEvent gym = calendar.getRecurringEventsList().first();
+        assertTrue(calendar.deleteEvent("Gym", gym.getStartDate()));
+        assertTrue(calendar.deleteEvent("Gym", gym.getEndDate()));
+        return calendar;
+    }
+
+    /**
+     * Splits a CSV row into its fields, undoing the quoting of fields with commas or quotes.
+     * @param row   the row
+     * @return      the fields
+     */
+    private static List<String> csvFields(String row) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') field.append(row.charAt(++i));
+                else if (c == '"') quoted = false;
+                else field.append(c);
+            }
+            else if (c == '"') quoted = true;
+            else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Test
+    void writesTextLikeOutputTxt() throws IOException {
+        MyCalendar calendar = sampleCalendar();
+        Path file = directory.resolve("output.txt");
+        CalendarExporter.export(calendar, file, CalendarExporter.Format.TEXT);
+
+        StringBuilder expected = new StringBuilder();
+        for (Event event : calendar.getOneTimeEventsList()) expected.append(event.inFormatMonthDayYear());
+        for (RecurringEvent event : calendar.getRecurringEventsList()) expected.append(event.inFormatMonthDayYear());
+        assertEquals(expected.toString(), Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesEveryEventAsACsvRow() throws IOException {
+        MyCalendar calendar = sampleCalendar();
+        Path file = directory.resolve("events.csv");
+        CalendarExporter.export(calendar, file, CalendarExporter.Format.CSV);
+
+        List<String> rows = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals("type,name,days,start_date,end_date,start_time,end_time,excluded_dates", rows.get(0));
+        List<Event> oneTimeEvents = new ArrayList<>(calendar.getOneTimeEventsList());
+        List<RecurringEvent> recurringEvents = new ArrayList<>(calendar.getRecurringEventsList());
+        assertEquals(1 + oneTimeEvents.size() + recurringEvents.size(), rows.size());
+
+        for (int i = 0; i < oneTimeEvents.size(); i++) {
+            Event event = oneTimeEvents.get(i);
+            assertEquals(List.of("event", event.getName(), "", event.getStartDate().toString(), event.getStartDate().toString(),
+                    event.getTimeInterval().getStart().toString(), event.getTimeInterval().getEnd().toString(), ""), csvFields(rows.get(1 + i)));
+        }
+        RecurringEvent gym = recurringEvents.get(0);
+        assertEquals(List.of("recurring", "Gym", "MWF", gym.getStartDate().toString(), gym.getEndDate().toString(),
+                "06:00", "07:00", gym.getStartDate() + ";" + gym.getEndDate()), csvFields(rows.get(rows.size() - 1)));
+    }
+}
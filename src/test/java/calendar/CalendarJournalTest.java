@@ -0,0 +1,191 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a {@code CalendarJournal} cut short or damaged by a crash replays every change
+ * before the damage and nothing after it, and that changes made after the replay are journaled
+ * after the last good record.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.1.230317
+ */
+class CalendarJournalTest {
+    private static final LocalDate MONDAY = LocalDate.of(2023, 3, 6);
+
+    @TempDir
+    Path directory;
+
+    private static String contents(MyCalendar calendar) {
+        StringBuilder contents = new StringBuilder();
+        for (Event event : calendar.getOneTimeEventsList()) contents.append(event.inFormatMonthDayYear());
+        for (RecurringEvent event : calendar.getRecurringEventsList()) {
+            contents.append(event.inFormatMonthDayYear()).append(calendar.recurringIndex().getExcludedDates(event)).append('\n');
+        }
+        return contents.toString();
+    }
+
+    private CalendarJournal open(Path file) throws IOException {
+        return new CalendarJournal(file, directory.resolve("events.snapshot"), 1000);
+    }
+
+    /**
+     * Makes a change to the calendar that is journaled as one record.
+     * @param calendar  the calendar
+     * @param i         which change
+     */
+    private static void change(MyCalendar calendar, int i) {
+        switch (i % 6) {
+            case 0, 1, 2 -> calendar.add(new Event("Meeting " + i, MONDAY.plusDays(i), LocalTime.of(9, 0), LocalTime.of(10, 0)));
+            case 3 -> calendar.add(new RecurringEvent("Gym " + i, "TR", MONDAY, MONDAY.plusDays(60),
+                    LocalTime.of(i / 6, 0), LocalTime.of(i / 6, 30)));
+            case 4 -> calendar.deleteEvent("Gym " + (i - 1), MONDAY.plusDays(1));
+            default -> calendar.deleteAllEventsOn(MONDAY.plusDays(i - 3));
+        }
+    }
+
+    @Test
+    void replaysUpToTheLastWholeRecord() throws IOException {
+        Path file = directory.resolve("events.journal");
+        MyCalendar calendar = new MyCalendar();
+        List<Long> sizes = new ArrayList<>();
+        List<String> states = new ArrayList<>();
+        try (CalendarJournal journal = open(file)) {
+            assertEquals(0, journal.replayAndAttach(calendar));
+            for (int i = 0; i < 30; i++) {
+                journal.sync();
+                sizes.add(Files.size(file));
+                states.add(contents(calendar));
+                change(calendar, i);
+            }
+            journal.sync();
+            sizes.add(Files.size(file));
+            states.add(contents(calendar));
+        }
+        for (int i = 1; i < sizes.size(); i++) assertTrue(sizes.get(i) > sizes.get(i - 1), "change " + (i - 1) + " was journaled");
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals(bytes.length, sizes.get(sizes.size() - 1));
+
+        // cut the journal at every length from a whole journal down to its header
+        for (int length = bytes.length; length >= sizes.get(0); length--) {
+            Path torn = directory.resolve("torn.journal");
+            Files.write(torn, Arrays.copyOf(bytes, length));
+            int whole = 0;
+            while (whole + 1 < sizes.size() && sizes.get(whole + 1) <= length) whole++;
+
+            MyCalendar replayed = new MyCalendar();
+            try (CalendarJournal journal = open(torn)) {
+                assertEquals(whole, journal.replayAndAttach(replayed), "cut at " + length);
+                assertEquals(states.get(whole), contents(replayed), "cut at " + length);
+                assertEquals((long) sizes.get(whole), Files.size(torn), "the torn tail is dropped");
+            }
+        }
+    }
+
+    @Test
+    void stopsAtADamagedRecordAndAppendsAfterIt() throws IOException {
+        Path file = directory.resolve("events.journal");
+        MyCalendar calendar = new MyCalendar();
+        long beforeLast;
+        String stateBeforeLast;
+        try (CalendarJournal journal = open(file)) {
+            journal.replayAndAttach(calendar);
+            for (int i = 0; i < 10; i++) change(calendar, i);
+            journal.sync();
+            beforeLast = Files.size(file);
+            stateBeforeLast = contents(calendar);
+            change(calendar, 10);
+        }
+
+        // flip the last byte of the last record so its checksum fails
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+
+        MyCalendar replayed = new MyCalendar();
+        try (CalendarJournal journal = open(file)) {
+            assertEquals(10, journal.replayAndAttach(replayed));
+            assertEquals(stateBeforeLast, contents(replayed));
+            assertEquals(beforeLast, Files.size(file));
+            replayed.add(new Event("After", MONDAY.plusDays(100), LocalTime.of(12, 0), LocalTime.of(13, 0)));
+        }
+
+        MyCalendar again = new MyCalendar();
+        try (CalendarJournal journal = open(file)) {
+            assertEquals(11, journal.replayAndAttach(again));
+            assertEquals(contents(replayed), contents(again));
+            assertTrue(again.eventsOn(MONDAY.plusDays(100)).stream().anyMatch(event -> event.getName().equals("After")));
+        }
+    }
+
+    @Test
+    void replaysNamesAcrossDeletingEverythingAndReopening() throws IOException {
+        Path file = directory.resolve("events.journal");
+        MyCalendar calendar = new MyCalendar();
+        try (CalendarJournal journal = open(file)) {
+            journal.replayAndAttach(calendar);
+            calendar.add(new Event("Standup", MONDAY, LocalTime.of(9, 0), LocalTime.of(9, 15)));
+            calendar.add(new Event("Lunch", MONDAY, LocalTime.of(12, 0), LocalTime.of(13, 0)));
+            calendar.deleteAllEvents();
+            // the calendar gives the ids of Standup and Lunch to new names
+            calendar.add(new Event("Review", MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0)));
+            calendar.add(new Event("Standup", MONDAY.plusDays(1), LocalTime.of(9, 0), LocalTime.of(9, 15)));
+        }
+
+        MyCalendar replayed = new MyCalendar();
+        try (CalendarJournal journal = open(file)) {
+            assertEquals(5, journal.replayAndAttach(replayed));
+            assertEquals(contents(calendar), contents(replayed));
+            // the reopened journal numbers names as the replayed calendar does
+            replayed.add(new Event("Lunch", MONDAY.plusDays(1), LocalTime.of(12, 0), LocalTime.of(13, 0)));
+            replayed.deleteEvent("Review", MONDAY);
+        }
+
+        MyCalendar again = new MyCalendar();
+        try (CalendarJournal journal = open(file)) {
+            assertEquals(7, journal.replayAndAttach(again));
+            assertEquals(contents(replayed), contents(again));
+        }
+    }
+
+    @Test
+    void keepsAFailedCompactionForTheNextSync() throws IOException {
+        // the snapshot can't be written, because its directory doesn't exist
+        CalendarJournal journal = new CalendarJournal(directory.resolve("events.journal"),
+                directory.resolve("missing").resolve("events.snapshot"), 1);
+        MyCalendar calendar = new MyCalendar();
+        journal.replayAndAttach(calendar);
+        int[] batchesEnded = new int[1];
+        calendar.addListener(new CalendarListener() {
+            @Override
+            public void batchEnded() {batchesEnded[0]++;}
+        });
+
+        // the compaction due at the end of the batch fails without throwing out of addAll
+        ArrayList<AddResult> results = calendar.addAll(List.of(
+                new Event("Standup", MONDAY, LocalTime.of(9, 0), LocalTime.of(9, 15)),
+                new Event("Lunch", MONDAY, LocalTime.of(12, 0), LocalTime.of(13, 0))));
+        assertTrue(results.stream().allMatch(AddResult::isAccepted));
+        assertEquals(1, batchesEnded[0], "listeners after the journal still see the batch end");
+
+        assertThrows(IOException.class, journal::sync);
+        assertThrows(IOException.class, journal::compactIfDue);
+        assertThrows(UncheckedIOException.class,
+                () -> calendar.add(new Event("Review", MONDAY, LocalTime.of(14, 0), LocalTime.of(15, 0))));
+        assertThrows(IOException.class, journal::close);
+    }
+}
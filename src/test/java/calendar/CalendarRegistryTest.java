@@ -0,0 +1,105 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@code CalendarRegistry} drops the least recently used calendar once too many are
+ * loaded, saving it only if it changed, and that no change is lost when calendars are dropped
+ * and loaded again from many threads.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class CalendarRegistryTest {
+    private static final LocalDate MONDAY = LocalDate.of(2023, 3, 6);
+
+    @TempDir
+    Path directory;
+
+    private static Event meeting(int i) {
+        return new Event("Meeting " + i, MONDAY.plusDays(i / 20), LocalTime.of(i % 20, 0), LocalTime.of(i % 20, 30));
+    }
+
+    @Test
+    void savesOnlyChangedCalendarsWhenDroppingThem() throws IOException {
+        try (CalendarRegistry registry = new CalendarRegistry(directory, 2)) {
+            assertTrue(registry.<Boolean>apply("alice", calendar -> calendar.add(meeting(0))));
+            assertEquals(0, (int) registry.apply("bob", calendar -> calendar.getOneTimeEventsList().size()));
+            assertEquals(List.of("alice", "bob"), registry.loadedTenants());
+
+            // loading a third calendar drops alice, who was used least recently, and saves her change
+            registry.apply("carol", calendar -> calendar.add(meeting(1)));
+            assertFalse(registry.isLoaded("alice"));
+            assertTrue(Files.exists(directory.resolve("alice.mycs")));
+
+            // bob never changed, so dropping him writes nothing
+            registry.apply("alice", calendar -> null);
+            assertFalse(registry.isLoaded("bob"));
+            assertFalse(Files.exists(directory.resolve("bob.mycs")));
+            assertEquals(List.of(meeting(0).inFormatMonthDayYear()),
+                    registry.apply("alice", calendar -> calendar.getOneTimeEventsList().stream().map(Event::inFormatMonthDayYear).toList()));
+
+            // deleting one date of a recurring event is a change too
+            RecurringEvent gym = new RecurringEvent("Gym", "MW", MONDAY, MONDAY.plusDays(30), LocalTime.of(6, 0), LocalTime.of(7, 0));
+            registry.apply("dave", calendar -> calendar.add(gym));
+            registry.flush();
+            registry.apply("dave", calendar -> calendar.excludeDate(calendar.getRecurringEventsList().first(), MONDAY));
+            registry.apply("erin", calendar -> null);
+            registry.apply("frank", calendar -> null);
+            assertFalse(registry.isLoaded("dave"));
+            assertTrue(registry.<Boolean>apply("dave", calendar -> calendar.eventsOn(MONDAY).isEmpty()));
+        }
+        // closing saves carol, who was never dropped
+        MyCalendar carol = new MyCalendar();
+        CalendarSnapshot.read(directory.resolve("carol.mycs"), carol);
+        assertEquals(1, carol.getOneTimeEventsList().size());
+    }
+
+    @Test
+    void keepsEveryChangeWhileDroppingFromManyThreads() throws Exception {
+        int tenants = 20;
+        int threads = 8;
+        int changesPerThread = 400;
+        try (CalendarRegistry registry = new CalendarRegistry(directory, 4, 8)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < changesPerThread; i++) {
+                        int change = thread * changesPerThread + i;
+                        // each change lands on its own slot, so none is rejected as a conflict
+                        assertTrue(registry.<Boolean>apply("tenant-" + change % tenants, calendar -> calendar.add(meeting(change / tenants))));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+            executor.shutdown();
+            assertTrue(registry.size() <= 4);
+        }
+
+        int events = 0;
+        for (int tenant = 0; tenant < tenants; tenant++) {
+            MyCalendar calendar = new MyCalendar();
+            CalendarSnapshot.read(directory.resolve("tenant-" + tenant + ".mycs"), calendar);
+            events += calendar.getOneTimeEventsList().size();
+        }
+        assertEquals(threads * changesPerThread, events);
+    }
+}
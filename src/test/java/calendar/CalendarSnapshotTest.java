@@ -0,0 +1,112 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a calendar read back from a {@code CalendarSnapshot} has the same events and
+ * deleted dates as the calendar written, for version 2 snapshots and the version 1 snapshots
+ * written before snapshots had an id.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class CalendarSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private static MyCalendar sampleCalendar() {
+        MyCalendar calendar = new MyCalendar();
+        Random random = new Random(151);
+        String[] names = {"Standup", "CS 151", "Caf\u00e9 \u2615", "x".repeat(70000)};
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 5000; i++) {
+            int start = random.nextInt(1380);
+            calendar.add(new Event(names[random.nextInt(names.length)], first.plusDays(random.nextInt(365)),
+                    LocalTime.of(start / 60, start % 60), LocalTime.of((start + 30) / 60, (start + 30) % 60)));
+        }
+        // an event lasting until midnight
+        calendar.add(new Event("Late", LocalDate.of(2024, 1, 1), LocalTime.of(23, 0), LocalTime.MAX));
+
+        RecurringEvent gym = new RecurringEvent("Gym", "MWF", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 6, 30),
+                LocalTime.of(6, 0), LocalTime.of(7, 0));
+        assertTrue(calendar.add(gym));
+        assertTrue(calendar.deleteEvent("Gym", LocalDate.of(2024, 2, 5)));
+        assertTrue(calendar.deleteEvent("Gym", LocalDate.of(2024, 3, 1)));
+        assertTrue(calendar.add(new RecurringEvent("Chess", "A", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 12, 31),
+                LocalTime.of(18, 0), LocalTime.of(20, 0))));
+        return calendar;
+    }
+
+    private static String contents(MyCalendar calendar) {
+        StringBuilder contents = new StringBuilder();
+        for (Event event : calendar.getOneTimeEventsList()) contents.append(event.inFormatMonthDayYear());
+        for (RecurringEvent event : calendar.getRecurringEventsList()) {
+            contents.append(event.inFormatMonthDayYear()).append(calendar.recurringIndex().getExcludedDates(event)).append('\n');
+        }
+        return contents.toString();
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        MyCalendar calendar = sampleCalendar();
+        Path file = directory.resolve("events.snapshot");
+        CalendarSnapshot.write(calendar, file, 42);
+
+        MyCalendar read = new MyCalendar();
+        assertEquals(42, CalendarSnapshot.read(file, read));
+        assertEquals(42, CalendarSnapshot.readId(file));
+        assertEquals(contents(calendar), contents(read));
+
+        // the dates deleted before the snapshot stay deleted
+        assertTrue(read.eventsOn(LocalDate.of(2024, 2, 5)).isEmpty());
+        assertEquals(1, read.eventsOn(LocalDate.of(2024, 2, 7)).size());
+    }
+
+    @Test
+    void readsVersionOneSnapshots() throws IOException {
+        MyCalendar calendar = sampleCalendar();
+        Path file = directory.resolve("events.snapshot");
+        CalendarSnapshot.write(calendar, file, 42);
+
+        // version 1 had the same layout without the id after the version
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer version1 = ByteBuffer.allocate(bytes.length - Long.BYTES);
+        version1.put(bytes, 0, Integer.BYTES).putInt(1);
+        version1.put(bytes, 2 * Integer.BYTES + Long.BYTES, bytes.length - 2 * Integer.BYTES - Long.BYTES);
+        Path oldFile = directory.resolve("old.snapshot");
+        Files.write(oldFile, version1.array());
+
+        MyCalendar read = new MyCalendar();
+        assertEquals(0, CalendarSnapshot.read(oldFile, read));
+        assertEquals(0, CalendarSnapshot.readId(oldFile));
+        assertEquals(contents(calendar), contents(read));
+    }
+
+    @Test
+    void rejectsTruncatedAndForeignFiles() throws IOException {
+        Path file = directory.resolve("events.snapshot");
+        CalendarSnapshot.write(sampleCalendar(), file, 7);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = directory.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> CalendarSnapshot.read(truncated, new MyCalendar()));
+
+        Path text = directory.resolve("events.txt");
+        Files.writeString(text, "Standup\n3/1/23 9:00 9:15\n");
+        assertThrows(IOException.class, () -> CalendarSnapshot.read(text, new MyCalendar()));
+    }
+}
@@ -0,0 +1,52 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@code CommandRunner} lists a calendar the same way as the menus, empty or not, and
+ * only counts deleting everything when there was something to delete.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230317
+ */
+class CommandRunnerTest {
+
+    private static String run(CommandRunner runner, String script) throws IOException {
+        runner.run(new BufferedReader(new StringReader(script)));
+        return runner.summary();
+    }
+
+    @Test
+    void listsAnEmptyCalendarLikeTheMenus() throws IOException {
+        MyCalendar calendar = new MyCalendar();
+        StringWriter out = new StringWriter();
+        CommandRunner runner = new CommandRunner(calendar, out);
+        run(runner, "list\n");
+        assertEquals(0, runner.getFailedCount(), out.toString());
+        assertEquals(calendar.displayEventsList(), out.toString());
+        assertTrue(out.toString().startsWith("One Time Events:\n\n"), out.toString());
+
+        out.getBuffer().setLength(0);
+        run(runner, "recurring MWF 9:00 10:00 3/1/2023 3/31/2023 Gym\nlist\n");
+        assertEquals(0, runner.getFailedCount(), out.toString());
+        assertTrue(out.toString().endsWith(calendar.displayEventsList()), out.toString());
+        assertTrue(out.toString().contains("Gym"), out.toString());
+    }
+
+    @Test
+    void countsDeletingEverythingOnlyWhenThereWasSomething() throws IOException {
+        MyCalendar calendar = new MyCalendar();
+        CommandRunner runner = new CommandRunner(calendar, new StringWriter());
+        assertEquals("1 commands: 0 added, 0 rejected, 0 deleted, 0 failed", run(runner, "delete-all\n"));
+        assertEquals("4 commands: 1 added, 0 rejected, 1 deleted, 0 failed",
+                run(runner, "create 3/6/2023 9:00 10:00 Standup\ndelete-all\ndelete-all\n"));
+        assertTrue(calendar.getOneTimeEventsList().isEmpty());
+    }
+}
@@ -0,0 +1,239 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@code ConcurrentCalendar} with many threads changing it at once: only one booking of a
+ * slot wins, a recurring event never ends up conflicting with one time events added while it was
+ * being added, and the month view never waits for a change or shows one half made.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230317
+ */
+class ConcurrentCalendarTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 1000;
+    private static final LocalDate MONDAY = LocalDate.of(2023, 3, 6);
+
+    private static Event event(String name, LocalDate date, int startMinute, int endMinute) {
+        return new Event(name, date, LocalTime.of(startMinute / 60, startMinute % 60),
+                endMinute == 1440 ? LocalTime.MAX : LocalTime.of(endMinute / 60, endMinute % 60));
+    }
+
+    /**
+     * Checks that no two events on a date conflict.
+     * @param calendar  the calendar
+     * @param date      the date
+     */
+    private static void assertNoConflicts(ConcurrentCalendar calendar, LocalDate date) {
+        List<Event> events = new ArrayList<>(calendar.eventsOn(date));
+        for (int i = 0; i < events.size(); i++) {
+            for (int j = i + 1; j < events.size(); j++) {
+                assertFalse(events.get(i).getTimeInterval().isConflicting(events.get(j).getTimeInterval()),
+                        date + ": " + events.get(i) + " and " + events.get(j));
+            }
+        }
+    }
+
+    /**
+     * Runs tasks on their own threads, all starting at once, and waits for them.
+     * @param pool  the threads
+     * @param tasks the tasks
+     * @throws Exception    if a task failed
+     */
+    private static void runTogether(ExecutorService pool, List<Runnable> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Runnable task : tasks) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void booksASlotOnceWhenEveryThreadTriesAtOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            ConcurrentCalendar calendar = new ConcurrentCalendar();
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDate date = MONDAY.plusDays(round);
+                AtomicInteger booked = new AtomicInteger();
+                List<Runnable> tasks = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    // every booking overlaps every other one
+                    int start = 540 + t;
+                    tasks.add(() -> {
+                        if (calendar.add(event("Booking " + start, date, start, start + 60))) booked.incrementAndGet();
+                    });
+                }
+                runTogether(pool, tasks);
+                assertEquals(1, booked.get(), "round " + round);
+                assertEquals(1, calendar.eventsOn(date).size(), "round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void neverKeepsARecurringEventAndAOneTimeEventThatConflict() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            int recurringAdded = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                ConcurrentCalendar calendar = new ConcurrentCalendar();
+                RecurringEvent gym = new RecurringEvent("Gym", "MWF", MONDAY, MONDAY.plusWeeks(4),
+                        LocalTime.of(9, 0), LocalTime.of(10, 0));
+                Random random = new Random(round);
+                List<Runnable> tasks = new ArrayList<>();
+                // one thread books a date of the recurring event at its time, the others book around it
+                LocalDate conflictDate = MONDAY.plusWeeks(random.nextInt(4)).plusDays(2 * random.nextInt(3));
+                tasks.add(() -> calendar.add(event("Conflict", conflictDate, 570, 600)));
+                for (int t = 1; t < THREADS; t++) {
+                    long seed = random.nextLong();
+                    tasks.add(() -> {
+                        Random taskRandom = new Random(seed);
+                        for (int i = 0; i < 20; i++) {
+                            int start = 600 + taskRandom.nextInt(600);
+                            calendar.add(event("Meeting", MONDAY.plusDays(taskRandom.nextInt(28)), start, start + 30));
+                        }
+                    });
+                }
+                boolean[] added = new boolean[1];
+                tasks.add(1, () -> added[0] = calendar.add(gym));
+                runTogether(pool, tasks);
+
+                if (added[0]) recurringAdded++;
+                assertEquals(added[0], calendar.getRecurringEventsList().contains(gym), "round " + round);
+                // the other bookings never conflict with the recurring event, so exactly one of the two won
+                boolean conflictAdded = calendar.eventsOn(conflictDate).stream().anyMatch(event -> event.getName().equals("Conflict"));
+                assertTrue(added[0] != conflictAdded, "round " + round);
+                for (LocalDate date = MONDAY; date.isBefore(MONDAY.plusWeeks(4)); date = date.plusDays(1)) {
+                    assertNoConflicts(calendar, date);
+                }
+            }
+            assertTrue(recurringAdded > 0, "the recurring event won some rounds");
+            assertTrue(recurringAdded < ROUNDS, "the one time events won some rounds");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void showsMonthsWithoutWaitingForChangesOrSeeingThemHalfMade() throws Exception {
+        ConcurrentCalendar calendar = new ConcurrentCalendar();
+        YearMonth busyMonth = YearMonth.of(2023, 3);
+        YearMonth recurringMonth = YearMonth.of(2023, 5);
+        String emptyView = calendar.displayMonth(recurringMonth);
+        RecurringEvent everyDay = new RecurringEvent("Daily", "SMTWRFA", recurringMonth.atDay(1),
+                recurringMonth.atEndOfMonth(), LocalTime.of(8, 0), LocalTime.of(8, 30));
+        assertTrue(calendar.add(everyDay));
+        String fullView = calendar.displayMonth(recurringMonth);
+        assertTrue(calendar.deleteRecurringEvent("Daily"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            AtomicInteger writersLeft = new AtomicInteger(THREADS - 2);
+            List<Runnable> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS - 2; t++) {
+                long seed = t;
+                tasks.add(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        LocalDate date = busyMonth.atDay(1 + random.nextInt(busyMonth.lengthOfMonth()));
+                        if (random.nextInt(20) == 0) calendar.deleteAllEventsOn(date);
+                        else {
+                            int start = random.nextInt(1380);
+                            calendar.add(event("Call", date, start, start + 1 + random.nextInt(60)));
+                        }
+                        // a recurring event covering every day of a month is added and deleted as a whole
+                        if (i % 100 == 0 && seed == 0) {
+                            calendar.add(everyDay);
+                            calendar.deleteRecurringEvent("Daily");
+                        }
+                    }
+                    writersLeft.decrementAndGet();
+                });
+            }
+            for (int t = 0; t < 2; t++) {
+                tasks.add(() -> {
+                    while (writersLeft.get() > 0) {
+                        String view = calendar.displayMonth(recurringMonth);
+                        assertTrue(view.equals(emptyView) || view.equals(fullView), view);
+                        calendar.displayMonth(busyMonth);
+                        for (int day = 1; day <= busyMonth.lengthOfMonth(); day++) {
+                            LocalDate date = busyMonth.atDay(day);
+                            assertNoConflicts(calendar, date);
+                            for (Event event : calendar.eventsOn(date)) assertEquals(date, event.getStartDate());
+                        }
+                    }
+                });
+            }
+            runTogether(pool, tasks);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // a recurring event held part way through being added blocks other changes but not the month view
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecurringEvent slow = new RecurringEvent("Slow", "M", MONDAY.plusWeeks(8), MONDAY.plusWeeks(12),
+                LocalTime.of(7, 0), LocalTime.of(7, 30)) {
+            @Override
+            protected TimeInterval getTimeInterval() {
+                if (Thread.currentThread().getName().equals("slow-writer")) {
+                    inside.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getTimeInterval();
+            }
+        };
+        Thread writer = new Thread(() -> calendar.add(slow), "slow-writer");
+        writer.start();
+        try {
+            assertTrue(inside.await(10, TimeUnit.SECONDS));
+            Thread booking = new Thread(() -> calendar.add(event("Blocked", MONDAY.plusWeeks(20), 600, 630)));
+            booking.start();
+            booking.join(200);
+            assertTrue(booking.isAlive(), "a change to a day waits for the recurring change");
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                calendar.displayMonth(busyMonth);
+                calendar.eventsOn(MONDAY);
+            });
+            release.countDown();
+            booking.join(10000);
+            assertFalse(booking.isAlive());
+        } finally {
+            release.countDown();
+            writer.join(10000);
+        }
+        assertEquals(2, calendar.eventsOn(MONDAY.plusWeeks(20)).size() + calendar.eventsOn(MONDAY.plusWeeks(8)).size());
+    }
+}
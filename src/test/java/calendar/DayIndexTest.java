@@ -0,0 +1,97 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@code DayIndex} against a {@code TreeMap} of the same days, through enough adds and
+ * deletes to resize the table and to delete from the middle of long probe chains.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class DayIndexTest {
+    private static final LocalDate FIRST_DATE = LocalDate.of(2023, 1, 1);
+
+    private static Event eventAt(long day, int hour) {
+        return new Event("e" + hour, LocalDate.ofEpochDay(day), LocalTime.of(hour, 0), LocalTime.of(hour, 30));
+    }
+
+    private static void assertSameDays(TreeMap<Long, List<Event>> expected, DayIndex index, long firstDay, long lastDay) {
+        for (long day = firstDay; day <= lastDay; day++) {
+            List<Event> events = expected.getOrDefault(day, List.of());
+            assertEquals(events.size(), index.count(day), "count on " + LocalDate.ofEpochDay(day));
+            assertEquals(events, index.eventsOn(day), "events on " + LocalDate.ofEpochDay(day));
+        }
+        assertEquals(expected.size(), index.size());
+    }
+
+    @Test
+    void addsAndDeletesDaysThroughResizes() {
+        DayIndex index = new DayIndex();
+        TreeMap<Long, List<Event>> expected = new TreeMap<>();
+        long firstDay = FIRST_DATE.toEpochDay();
+        int range = 5000;
+        Random random = new Random(151);
+
+        for (int i = 0; i < 40000; i++) {
+            long day = firstDay + random.nextInt(range);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    Event event = eventAt(day, random.nextInt(24));
+                    List<Event> events = expected.computeIfAbsent(day, d -> new ArrayList<>());
+                    if (index.hasConflict(day, event.getTimeInterval())) {
+                        assertTrue(events.stream().anyMatch(e -> e.getTimeInterval().isConflicting(event.getTimeInterval())));
+                        continue;
+                    }
+                    index.add(event);
+                    events.add(event);
+                    events.sort(Event.START_TIME_ORDER);
+                }
+                case 2 -> assertEquals(expected.remove(day) != null, index.remove(day));
+                default -> {
+                    int hour = random.nextInt(24);
+                    List<Event> events = expected.get(day);
+                    boolean removed = events != null && events.removeIf(e -> e.getName().equals("e" + hour));
+                    if (events != null && events.isEmpty()) expected.remove(day);
+                    assertEquals(removed, index.removeIf(day, e -> e.getName().equals("e" + hour)));
+                }
+            }
+            expected.values().removeIf(List::isEmpty);
+            if (i % 5000 == 0) assertSameDays(expected, index, firstDay, firstDay + range);
+        }
+        assertSameDays(expected, index, firstDay, firstDay + range);
+    }
+
+    @Test
+    void keepsProbeChainsReachableAfterDeletes() {
+        DayIndex index = new DayIndex();
+        TreeMap<Long, List<Event>> expected = new TreeMap<>();
+        long firstDay = FIRST_DATE.toEpochDay();
+
+        // fill consecutive days, then delete every other one so the survivors must be found past the gaps
+        for (long day = firstDay; day < firstDay + 1000; day++) {
+            Event event = eventAt(day, 9);
+            index.add(event);
+            expected.put(day, new ArrayList<>(List.of(event)));
+        }
+        for (long day = firstDay; day < firstDay + 1000; day += 2) {
+            assertTrue(index.remove(day));
+            expected.remove(day);
+        }
+        assertFalse(index.remove(firstDay));
+        assertSameDays(expected, index, firstDay - 10, firstDay + 1010);
+
+        index.clear();
+        assertSameDays(new TreeMap<>(), index, firstDay - 10, firstDay + 1010);
+    }
+}
@@ -0,0 +1,115 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a calendar exported by {@code CalendarExporter} as iCalendar and imported again by
+ * {@code ICalendarImporter} has the same events and deleted dates, and that a file with a moved
+ * date and a broken {@code VEVENT} is imported as far as it can be.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class ICalendarImporterTest {
+    private static final ZoneId ZONE = ZoneId.of("America/Los_Angeles");
+
+    @TempDir
+    Path directory;
+
+    private static String contents(MyCalendar calendar) {
+        StringBuilder contents = new StringBuilder();
+        for (Event event : calendar.getOneTimeEventsList()) contents.append(event.inFormatMonthDayYear());
+        for (RecurringEvent event : calendar.getRecurringEventsList()) {
+            contents.append(event.inFormatMonthDayYear()).append(calendar.getExcludedDates(event)).append('\n');
+        }
+        return contents.toString();
+    }
+
+    @Test
+    void importsWhatWasExported() throws IOException {
+        MyCalendar calendar = new MyCalendar();
+        Random random = new Random(151);
+        // names with characters iCalendar escapes, and one long enough to be folded over many lines
+        String[] names = {"Standup", "Lunch, with Sam; maybe", "C:\\temp review", "Caf\u00e9 \u2615", "x".repeat(300)};
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 3000; i++) {
+            int start = random.nextInt(1380);
+            calendar.add(new Event(names[random.nextInt(names.length)], first.plusDays(random.nextInt(730)),
+                    LocalTime.of(start / 60, start % 60), LocalTime.of((start + 45) / 60, (start + 45) % 60)));
+        }
+        calendar.add(new Event("Late", LocalDate.of(2026, 1, 1), LocalTime.of(23, 0), LocalTime.MAX));
+        RecurringEvent gym = new RecurringEvent("Gym", "MWF", LocalDate.of(2026, 2, 1), LocalDate.of(2026, 6, 30),
+                LocalTime.of(6, 0), LocalTime.of(7, 0));
+        assertTrue(calendar.add(gym));
+        assertTrue(calendar.deleteEvent("Gym", LocalDate.of(2026, 2, 4)));
+        assertTrue(calendar.add(new RecurringEvent("Chess", "SA", LocalDate.of(2026, 2, 1), LocalDate.of(2026, 12, 31),
+                LocalTime.of(18, 0), LocalTime.of(20, 0))));
+
+        Path file = directory.resolve("events.ics");
+        CalendarExporter.export(calendar, file, CalendarExporter.Format.ICALENDAR);
+        MyCalendar imported = new MyCalendar();
+        ImportResult result = ICalendarImporter.read(file, imported);
+
+        assertEquals(List.of(), result.getErrors());
+        assertEquals(calendar.getOneTimeEventsList().size(), result.getEventsAdded());
+        assertEquals(2, result.getRecurringEventsAdded());
+        assertEquals(contents(calendar), contents(imported));
+    }
+
+    @Test
+    void movesARecurringDateAndSkipsBrokenEvents() throws IOException {
+        String ics = String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "VERSION:2.0",
+                "BEGIN:VEVENT",
+                "UID:gym@example.com",
+                "DTSTART:20230306T060000",
+                "DTEND:20230306T070000",
+                "SUMMARY:Gym",
+                "RRULE:FREQ=WEEKLY;BYDAY=MO,WE;COUNT=6",
+                "EXDATE:20230308T060000",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:broken@example.com",
+                "DTSTART:20231340T060000",
+                "DTEND:20231340T070000",
+                "SUMMARY:Broken",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:gym@example.com",
+                "RECURRENCE-ID:20230313T060000",
+                "DTSTART:20230313T080000",
+                "DTEND:20230313T090000",
+                "SUMMARY:Gym",
+                "END:VEVENT",
+                "END:VCALENDAR", "");
+        MyCalendar calendar = new MyCalendar();
+        ImportResult result = ICalendarImporter.read(new StringReader(ics), calendar, ZONE);
+
+        assertEquals(1, result.getErrorCount());
+        assertEquals(11, result.getErrors().get(0).getLine());
+        assertEquals(1, result.getEventsAdded());
+        assertEquals(1, result.getRecurringEventsAdded());
+
+        RecurringEvent gym = calendar.getRecurringEventsList().first();
+        assertEquals(LocalDate.of(2023, 3, 6), gym.getStartDate());
+        assertEquals(LocalDate.of(2023, 3, 22), gym.getEndDate());
+        assertEquals(List.of(LocalDate.of(2023, 3, 8), LocalDate.of(2023, 3, 13)), List.copyOf(calendar.getExcludedDates(gym)));
+        // the moved date is a one time event at its new time
+        List<Event> moved = List.copyOf(calendar.eventsOn(LocalDate.of(2023, 3, 13)));
+        assertEquals(1, moved.size());
+        assertEquals(LocalTime.of(8, 0), moved.get(0).getTimeInterval().getStart());
+    }
+}
@@ -0,0 +1,112 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that an {@code OffHeapCalendar} accepts, rejects, and deletes the same events as a
+ * {@code MyCalendar} given the same changes, gives back every name as it was added, and reuses the
+ * slots of deleted events.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230317
+ */
+class OffHeapCalendarTest {
+    private static final LocalDate FIRST = LocalDate.of(2023, 3, 1);
+    private static final int DAYS = 60;
+    private static final String[] NAMES = {"Standup", "CS 151", "Caf\u00e9 \u2615", "\u65e5\u672c\u8a9e",
+            "x".repeat(5000), ""};
+
+    private static String eventsOn(MyCalendar calendar, LocalDate date) {
+        return calendar.eventsOn(date).stream().map(Event::toString).collect(Collectors.joining());
+    }
+
+    private static String eventsOn(OffHeapCalendar calendar, LocalDate date) {
+        return calendar.eventsOn(date).stream().map(Event::toString).collect(Collectors.joining());
+    }
+
+    private static Event randomEvent(Random random) {
+        int start = random.nextInt(1380);
+        int end = start + 1 + random.nextInt(60);
+        return new Event(NAMES[random.nextInt(NAMES.length)], FIRST.plusDays(random.nextInt(DAYS)),
+                LocalTime.of(start / 60, start % 60), LocalTime.of(end / 60, end % 60));
+    }
+
+    @Test
+    void makesTheSameChangesAsMyCalendar() {
+        MyCalendar expected = new MyCalendar();
+        OffHeapCalendar calendar = new OffHeapCalendar();
+        Random random = new Random(18);
+        for (int i = 0; i < 20000; i++) {
+            LocalDate date = FIRST.plusDays(random.nextInt(DAYS));
+            String name = NAMES[random.nextInt(NAMES.length)];
+            int change = random.nextInt(100);
+            if (change < 70) {
+                Event event = randomEvent(random);
+                assertEquals(expected.add(event), calendar.add(event), "add " + event);
+            }
+            else if (change < 85) assertEquals(expected.deleteEvent(name, date), calendar.deleteEvent(name, date));
+            else if (change < 95) assertEquals(expected.deleteAllEventsOn(date), calendar.deleteAllEventsOn(date));
+            else if (change < 98) {
+                int start = random.nextInt(1380);
+                RecurringEvent event = new RecurringEvent("Every " + name, "MWF", date, date.plusDays(14),
+                        LocalTime.of(start / 60, start % 60), LocalTime.of((start + 30) / 60, (start + 30) % 60));
+                assertEquals(expected.add(event), calendar.add(event), "add " + event);
+            }
+            else {
+                assertEquals(expected.deleteRecurringEvent("Every " + name), calendar.deleteRecurringEvent("Every " + name));
+            }
+        }
+
+        assertEquals(expected.getOneTimeEventsList().size(), calendar.size());
+        for (int day = 0; day < DAYS + 14; day++) {
+            LocalDate date = FIRST.plusDays(day);
+            assertEquals(eventsOn(expected, date), eventsOn(calendar, date), date.toString());
+        }
+        assertEquals(expected.query(FIRST, FIRST.plusDays(DAYS + 14)).map(Event::inFormatMonthDayYear).collect(Collectors.toList()),
+                calendar.query(FIRST, FIRST.plusDays(DAYS + 14)).map(Event::inFormatMonthDayYear).collect(Collectors.toList()));
+    }
+
+    @Test
+    void reusesTheSlotsOfDeletedEvents() {
+        OffHeapCalendar calendar = new OffHeapCalendar();
+        Random random = new Random(180);
+        for (int i = 0; i < 5000; i++) calendar.add(randomEvent(random));
+        int added = calendar.size();
+        int slotsUsed = calendar.slotsUsed();
+        assertEquals(added, slotsUsed);
+
+        // delete every event, half a day at a time and half by name
+        for (int day = 0; day < DAYS; day++) {
+            LocalDate date = FIRST.plusDays(day);
+            if (day % 2 == 0) assertTrue(calendar.deleteAllEventsOn(date));
+            else for (String name : NAMES) calendar.deleteEvent(name, date);
+        }
+        assertEquals(0, calendar.size());
+        for (int day = 0; day < DAYS; day++) assertTrue(calendar.eventsOn(FIRST.plusDays(day)).isEmpty());
+
+        random = new Random(180);
+        for (int i = 0; i < 5000; i++) calendar.add(randomEvent(random));
+        assertEquals(added, calendar.size());
+        assertEquals(slotsUsed, calendar.slotsUsed(), "every slot was reused");
+
+        // names are stored once and given back as they were added, also after deleting everything
+        MyCalendar expected = new MyCalendar();
+        random = new Random(180);
+        for (int i = 0; i < 5000; i++) expected.add(randomEvent(random));
+        for (int day = 0; day < DAYS; day++) {
+            assertEquals(eventsOn(expected, FIRST.plusDays(day)), eventsOn(calendar, FIRST.plusDays(day)));
+        }
+        calendar.deleteAllEvents();
+        assertEquals(0, calendar.size());
+        Event cafe = new Event(NAMES[2], FIRST, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        assertTrue(calendar.add(cafe));
+        assertEquals(NAMES[2], calendar.eventsOn(FIRST).first().getName());
+    }
+}
@@ -0,0 +1,121 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@code ParallelEventLoader} loads a file of several chunks the same way on any number
+ * of threads as {@code MyCalendarTester.readFile}, keeping the event written first when two
+ * conflict, and that every chunk starts on a record with the right line number.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230317
+ */
+class ParallelEventLoaderTest {
+    private static final int[] PARALLELISMS = {1, 2, 3, 4, 7};
+
+    @TempDir
+    Path directory;
+
+    private static String contents(MyCalendar calendar) {
+        StringBuilder contents = new StringBuilder();
+        for (Event event : calendar.getOneTimeEventsList()) contents.append(event.inFormatMonthDayYear());
+        for (RecurringEvent event : calendar.getRecurringEventsList()) {
+            contents.append(event.inFormatMonthDayYear()).append(calendar.recurringIndex().getExcludedDates(event)).append('\n');
+        }
+        return contents.toString();
+    }
+
+    /**
+     * Writes a file of random records, with names of every length so chunks start anywhere in a record.
+     * @param file      the file, which is appended to
+     * @param first     the number of the first record
+     * @param records   the number of records
+     * @param random    the random numbers
+     * @param conflicts true to give events times that conflict and to write records that can't be parsed
+     * @throws IOException  if the file can't be written
+     */
+    private static void writeRecords(Path file, int first, int records, Random random, boolean conflicts)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = first; i < first + records; i++) {
+            text.append("Event ").append(i).append(" ").append("x".repeat(random.nextInt(40))).append('\n');
+            if (conflicts && i % 997 == 500) text.append("13/45/23 9:00 10:00\n");
+            else if (conflicts && i % 101 == 50) {
+                int hour = random.nextInt(23);
+                text.append("MWF ").append(hour).append(":00 ").append(hour).append(":45 ")
+                        .append(1 + random.nextInt(12)).append("/1/23 ").append(1 + random.nextInt(12)).append("/28/24\n");
+            }
+            else if (conflicts) {
+                int start = random.nextInt(1320);
+                text.append(1 + random.nextInt(12)).append('/').append(1 + random.nextInt(28)).append("/23 ")
+                        .append(start / 60).append(':').append(start % 60).append(' ')
+                        .append((start + 60) / 60).append(':').append((start + 60) % 60).append('\n');
+            }
+            else {
+                // a record of its own half hour, so nothing conflicts
+                int day = i / 46;
+                int start = i % 46 * 30;
+                text.append(1 + day / 28 % 12).append('/').append(1 + day % 28).append('/').append(23 + day / 336)
+                        .append(' ').append(start / 60).append(':').append(start % 60).append(' ')
+                        .append((start + 30) / 60).append(':').append((start + 30) % 60).append('\n');
+            }
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void loadsTheSameOnAnyNumberOfThreadsAsReadFile() throws IOException {
+        Path file = directory.resolve("events.txt");
+        writeRecords(file, 0, 60000, new Random(151), true);
+        assertTrue(Files.size(file) > 2 << 20, "the file has several chunks");
+
+        MyCalendar expected = new MyCalendar();
+        assertTrue(MyCalendarTester.readFile(file.toFile(), expected));
+        ImportResult first = null;
+        for (int parallelism : PARALLELISMS) {
+            MyCalendar calendar = new MyCalendar();
+            ImportResult result = ParallelEventLoader.load(file, calendar, parallelism);
+            assertEquals(contents(expected), contents(calendar), "parallelism " + parallelism);
+            if (first == null) first = result;
+            assertEquals(first.toString(), result.toString(), "parallelism " + parallelism);
+            assertEquals(first.getErrors().toString(), result.getErrors().toString(), "parallelism " + parallelism);
+        }
+
+        // a record that can't be parsed is reported on the line its name is on
+        List<ImportResult.RecordError> errors = first.getErrors();
+        assertTrue(errors.stream().anyMatch(error -> error.getLine() == 2 * 500 + 1));
+        assertTrue(first.getErrorCount() > 60, "conflicting records are skipped");
+        assertEquals(60000, first.getEventsAdded() + first.getRecurringEventsAdded() + first.getErrorCount());
+    }
+
+    @Test
+    void startsEveryChunkOnARecord() throws IOException {
+        Path file = directory.resolve("events.txt");
+        writeRecords(file, 0, 50000, new Random(7), false);
+        // a record longer than a chunk, then one that can't be parsed
+        String longName = "Long " + "y".repeat(3 << 19);
+        Files.writeString(file, longName + "\n12/31/25 9:00 10:00\nBroken\n12/31/25 10:00\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        writeRecords(file, 50000, 10000, new Random(8), false);
+
+        for (int parallelism : PARALLELISMS) {
+            MyCalendar calendar = new MyCalendar();
+            ImportResult result = ParallelEventLoader.load(file, calendar, parallelism);
+            assertEquals(1, result.getErrorCount(), "parallelism " + parallelism + ": " + result.getErrors());
+            assertEquals(2 * 50001 + 1, result.getErrors().get(0).getLine(), "parallelism " + parallelism);
+            assertEquals(60001, result.getEventsAdded(), "parallelism " + parallelism);
+            assertEquals(1, calendar.findByName(longName).size(), "parallelism " + parallelism);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the dates of a {@code RecurringEvent}, worked out from its days of the week, match
+ * the dates found by checking every day between its start and end date, both on the event and
+ * on a {@code MyCalendar} that had some of the dates deleted.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class RecurringEventTest {
+    private static final String DAY_LETTERS = "MTWRFAS";
+    private static final LocalTime NINE = LocalTime.of(9, 0);
+    private static final LocalTime TEN = LocalTime.of(10, 0);
+
+    private static List<LocalDate> everyDayBetween(String days, LocalDate startDate, LocalDate endDate) {
+        ArrayList<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (days.indexOf(DAY_LETTERS.charAt(date.getDayOfWeek().ordinal())) >= 0) dates.add(date);
+        }
+        return dates;
+    }
+
+    private static String randomDays(Random random) {
+        StringBuilder days = new StringBuilder();
+        while (days.length() == 0) {
+            for (char day : DAY_LETTERS.toCharArray()) {
+                if (random.nextInt(3) == 0) days.append(day);
+            }
+        }
+        return days.toString();
+    }
+
+    @Test
+    void startsOnTheFirstMatchingWeekday() {
+        // 1/1/23 is a Sunday, so a Monday and Wednesday event first takes place on 1/2/23
+        LocalDate sunday = LocalDate.of(2023, 1, 1);
+        RecurringEvent event = new RecurringEvent("CS 151", "MW", sunday, LocalDate.of(2023, 1, 31), NINE, TEN);
+        assertEquals(LocalDate.of(2023, 1, 2), event.getStartDate());
+        assertEquals(LocalDate.of(2023, 1, 30), event.getEndDate());
+        assertFalse(event.occursOn(sunday));
+        assertEquals(everyDayBetween("MW", sunday, LocalDate.of(2023, 1, 31)), event.getDates());
+
+        // the Sunday it was created with is free on a calendar
+        MyCalendar calendar = new MyCalendar();
+        assertTrue(calendar.add(event));
+        assertTrue(calendar.add(new Event("Brunch", sunday, NINE, TEN)));
+        assertFalse(calendar.add(new Event("Standup", LocalDate.of(2023, 1, 2), NINE, TEN)));
+    }
+
+    @Test
+    void rejectsDaysThatNeverComeBetweenTheDates() {
+        // a Tuesday to a Thursday never has a Saturday
+        assertThrows(DateTimeException.class, () -> new RecurringEvent("Chess", "A",
+                LocalDate.of(2023, 1, 3), LocalDate.of(2023, 1, 5), NINE, TEN));
+    }
+
+    @Test
+    void expandsLikeCheckingEveryDay() {
+        Random random = new Random(151);
+        for (int i = 0; i < 500; i++) {
+            String days = randomDays(random);
+            LocalDate startDate = LocalDate.of(2023, 1, 1).plusDays(random.nextInt(400));
+            LocalDate endDate = startDate.plusDays(1 + random.nextInt(120));
+            List<LocalDate> expected = everyDayBetween(days, startDate, endDate);
+            if (expected.isEmpty()) continue;
+
+            RecurringEvent event = new RecurringEvent("e", days, startDate, endDate, NINE, TEN);
+            assertEquals(expected, event.getDates(), days + " from " + startDate + " to " + endDate);
+            assertEquals(expected.get(0), event.getStartDate());
+            assertEquals(expected.get(expected.size() - 1), event.getEndDate());
+            for (LocalDate date = startDate.minusDays(7); !date.isAfter(endDate.plusDays(7)); date = date.plusDays(1)) {
+                assertEquals(expected.contains(date), event.occursOn(date), days + " on " + date);
+            }
+        }
+    }
+
+    @Test
+    void calendarLeavesOutDeletedDates() {
+        MyCalendar calendar = new MyCalendar();
+        LocalDate startDate = LocalDate.of(2023, 3, 1);
+        LocalDate endDate = LocalDate.of(2023, 6, 30);
+        RecurringEvent event = new RecurringEvent("Gym", "TRA", startDate, endDate, NINE, TEN);
+        assertTrue(calendar.add(event));
+
+        List<LocalDate> expected = new ArrayList<>(everyDayBetween("TRA", startDate, endDate));
+        Random random = new Random(151);
+        for (int i = 0; i < 10; i++) {
+            LocalDate deleted = expected.remove(random.nextInt(expected.size()));
+            assertTrue(calendar.deleteEvent("Gym", deleted));
+            assertFalse(calendar.deleteEvent("Gym", deleted));
+        }
+
+        for (LocalDate date = startDate.minusDays(7); !date.isAfter(endDate.plusDays(7)); date = date.plusDays(1)) {
+            boolean occurs = expected.contains(date);
+            assertEquals(occurs ? List.of(event) : List.of(), new ArrayList<>(calendar.eventsOn(date)), "events on " + date);
+            // a deleted date is free again
+            if (!occurs && date.getDayOfWeek() == DayOfWeek.TUESDAY && !date.isBefore(startDate) && !date.isAfter(endDate)) {
+                assertTrue(calendar.findConflicts(new Event("Dentist", date, NINE, TEN)).isEmpty());
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@code ReminderScheduler} sends every reminder once, in order, at the first
+ * {@code advanceTo} reaching its minute, including reminders due right around the minutes where
+ * the timing wheel cascades from the 64 and 4096 minute levels.
+ * @author Jonathan Stewart Thomas
+ * @version 1.0.0.230316
+ */
+class ReminderSchedulerTest {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int RECURRING_MINUTE = 3 * 60 + 7;
+
+    private static LocalDateTime timeOf(long minute) {
+        return LocalDate.ofEpochDay(Math.floorDiv(minute, MINUTES_PER_DAY)).atStartOfDay()
+                .plusMinutes(Math.floorMod(minute, MINUTES_PER_DAY));
+    }
+
+    private static long minuteOf(LocalDate date, LocalTime time) {
+        return date.toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Adds a one minute event starting at a minute unless something already starts then.
+     * @param calendar  the calendar
+     * @param minute    the minute since 1970 the event starts
+     * @param starts    the minutes events start at
+     */
+    private static void addAt(MyCalendar calendar, long minute, TreeSet<Long> starts) {
+        int minuteOfDay = (int) Math.floorMod(minute, MINUTES_PER_DAY);
+        if (minuteOfDay == MINUTES_PER_DAY - 1 || !starts.add(minute)) return;
+        LocalDateTime start = timeOf(minute);
+        assertTrue(calendar.add(new Event("at " + minute, start.toLocalDate(), start.toLocalTime(),
+                start.toLocalTime().plusMinutes(1))));
+    }
+
+    @Test
+    void sendsEveryReminderAcrossCascades() {
+        long lead = 15;
+        // start a little before a minute where all of the lower levels cascade at once
+        long boundary = (minuteOf(LocalDate.of(2023, 3, 1), LocalTime.MIDNIGHT) / 4096 + 1) * 4096;
+        long startMinute = boundary - 3000;
+        long endMinute = startMinute + 8 * MINUTES_PER_DAY;
+
+        MyCalendar calendar = new MyCalendar();
+        TreeSet<Long> starts = new TreeSet<>();
+        LocalDate firstDate = timeOf(startMinute).toLocalDate();
+        LocalDate lastDate = timeOf(endMinute).toLocalDate();
+        assertTrue(calendar.add(new RecurringEvent("Daily", "SMTWRFA", firstDate, lastDate,
+                LocalTime.of(RECURRING_MINUTE / 60, RECURRING_MINUTE % 60), LocalTime.of(RECURRING_MINUTE / 60, RECURRING_MINUTE % 60 + 1))));
+        for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            starts.add(date.toEpochDay() * MINUTES_PER_DAY + RECURRING_MINUTE);
+        }
+        // reminders due just before, at, and just after every 64 minute boundary
+        for (long minute = (startMinute / 64 + 1) * 64; minute < endMinute - 64; minute += 64) {
+            for (long due = minute - 1; due <= minute + 1; due++) addAt(calendar, due + lead, starts);
+        }
+        Random random = new Random(151);
+        for (int i = 0; i < 2000; i++) addAt(calendar, startMinute + lead + random.nextInt(8 * MINUTES_PER_DAY - 100), starts);
+
+        // the minute of the last advanceTo each reminder was sent during
+        List<Long> sentDue = new ArrayList<>();
+        Map<Long, Long> sentAt = new HashMap<>();
+        long[] now = new long[1];
+        ReminderScheduler scheduler = new ReminderScheduler(calendar, Duration.ofMinutes(lead), Duration.ofDays(10),
+                timeOf(startMinute), event -> {
+            long due = minuteOf(event.getStartDate(), event.getTimeInterval().getStart()) - lead;
+            sentDue.add(due);
+            assertEquals(null, sentAt.put(due, now[0]), "sent twice: " + event);
+        });
+
+        List<Long> targets = new ArrayList<>();
+        for (now[0] = startMinute; now[0] < endMinute; now[0] += 1 + random.nextInt(200)) {
+            targets.add(now[0]);
+            scheduler.advanceTo(timeOf(now[0]));
+        }
+        long lastTarget = targets.get(targets.size() - 1);
+        scheduler.close();
+
+        List<Long> expected = new ArrayList<>();
+        for (long start : starts) {
+            if (start - lead >= startMinute && start - lead <= lastTarget) expected.add(start - lead);
+        }
+        assertEquals(expected, sentDue);
+        for (long due : expected) {
+            long firstTargetReaching = targets.stream().filter(target -> target >= due).findFirst().orElseThrow();
+            assertEquals(firstTargetReaching, sentAt.get(due), "reminder due at " + timeOf(due));
+        }
+    }
+
+    @Test
+    void followsChangesToTheCalendar() {
+        LocalDate date = LocalDate.of(2023, 3, 6);
+        MyCalendar calendar = new MyCalendar();
+        List<String> sent = new ArrayList<>();
+        ReminderScheduler scheduler = new ReminderScheduler(calendar, Duration.ofMinutes(10), date.atStartOfDay(),
+                event -> sent.add(event.getName() + " " + event.getStartDate()));
+
+        calendar.add(new Event("Dentist", date, LocalTime.of(9, 0), LocalTime.of(10, 0)));
+        calendar.add(new Event("Lunch", date, LocalTime.of(12, 0), LocalTime.of(13, 0)));
+        RecurringEvent gym = new RecurringEvent("Gym", "MW", date, date.plusDays(10), LocalTime.of(6, 0), LocalTime.of(7, 0));
+        calendar.add(gym);
+        calendar.deleteEvent("Lunch", date);
+        calendar.excludeDate(gym, date.plusDays(2));
+        assertEquals(2, scheduler.size());
+
+        scheduler.advanceTo(date.plusDays(3).atStartOfDay());
+        assertEquals(List.of("Gym 2023-03-06", "Dentist 2023-03-06"), sent);
+        calendar.deleteRecurringEvent("Gym");
+        scheduler.advanceTo(date.plusDays(10).atStartOfDay());
+        assertEquals(2, sent.size());
+        scheduler.close();
+    }
+}